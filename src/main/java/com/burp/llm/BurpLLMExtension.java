@@ -4,15 +4,27 @@ import burp.api.montoya.BurpExtension;
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.logging.Logging;
 import com.burp.llm.config.ConfigSettings;
+import com.burp.llm.intruder.LLMPayloadGeneratorProvider;
+import com.burp.llm.knowledge.KnowledgeBase;
+import com.burp.llm.search.ConversationIndex;
+import com.burp.llm.search.ProjectIndexStore;
 import com.burp.llm.ui.ConfigTab;
+import com.burp.llm.ui.ConversationNavigator;
 import com.burp.llm.ui.LLMRequestEditorTab;
+import com.burp.llm.ui.SearchPanel;
+import com.burp.llm.ui.SelectionContextMenu;
+import com.burp.llm.ui.WebSocketChatTab;
+import com.burp.llm.api.ModelWarmer;
 import com.burp.llm.api.OllamaClient;
+import com.burp.llm.verify.VariantRunner;
+import com.burp.llm.websocket.WebSocketAnalyzer;
 
 public class BurpLLMExtension implements BurpExtension {
     private MontoyaApi api;
     private Logging logging;
     private ConfigSettings configSettings;
     private OllamaClient ollamaClient;
+    private ModelWarmer modelWarmer;
 
     @Override
     public void initialize(MontoyaApi api) {
@@ -28,17 +40,60 @@ public class BurpLLMExtension implements BurpExtension {
         // Initialize shared OllamaClient
         this.ollamaClient = new OllamaClient(configSettings);
         
+        // Keep the configured model loaded so the first question doesn't pay load_duration
+        this.modelWarmer = new ModelWarmer(configSettings, ollamaClient);
+        
+        // Notes about each target host, learned from answers and saved with the project
+        KnowledgeBase knowledgeBase = new KnowledgeBase(ollamaClient, configSettings, api.persistence().extensionData());
+        
+        // Recent frames of every WebSocket Burp opens, kept for questions asked in the WebSocket chat tab
+        WebSocketAnalyzer webSocketAnalyzer = new WebSocketAnalyzer(configSettings);
+        api.websockets().registerWebSocketCreatedHandler(webSocketAnalyzer);
+        
         // Initialize UI components
-        ConfigTab configTab = new ConfigTab(api, configSettings);
+        ConfigTab configTab = new ConfigTab(api, configSettings, ollamaClient, modelWarmer, knowledgeBase, webSocketAnalyzer);
+        
+        // Selections made in message editors are handed to the AI Chat tab through the context menu
+        SelectionContextMenu selectionMenu = new SelectionContextMenu();
+        api.userInterface().registerContextMenuItemsProvider(selectionMenu);
+        
+        // Test requests proposed in auto-verify mode share one per-host limit across all chat tabs
+        VariantRunner variantRunner = new VariantRunner(api, configSettings);
+        
+        // Every chat message is indexed for search and saved with the project; earlier sessions are loaded first
+        ConversationIndex conversationIndex = new ConversationIndex();
+        ProjectIndexStore indexStore = new ProjectIndexStore(api.persistence().extensionData());
+        int restoredMessages = indexStore.loadInto(conversationIndex);
+        conversationIndex.addListener(indexStore);
+        ConversationNavigator navigator = new ConversationNavigator(api, conversationIndex, indexStore);
         
         // Register the custom request editor tab
         api.userInterface().registerHttpRequestEditorProvider(
-            (creationContext) -> new LLMRequestEditorTab(api, ollamaClient, creationContext)
+            (creationContext) -> new LLMRequestEditorTab(api, ollamaClient, variantRunner, navigator, knowledgeBase, selectionMenu, creationContext)
+        );
+        api.userInterface().registerWebSocketMessageEditorProvider(
+            (creationContext) -> new WebSocketChatTab(api, ollamaClient, webSocketAnalyzer, knowledgeBase)
         );
         
+        // Offer model-generated payloads as an Intruder payload type
+        LLMPayloadGeneratorProvider payloadProvider = new LLMPayloadGeneratorProvider(ollamaClient, configSettings, logging);
+        api.intruder().registerPayloadGeneratorProvider(payloadProvider);
+        
         // Add the config tab to Burp's UI
         api.userInterface().registerSuiteTab("AI Config", configTab);
+        api.userInterface().registerSuiteTab("AI Search", new SearchPanel(navigator));
+        
+        // Pre-load the model and stop background work when the extension is unloaded
+        modelWarmer.start();
+        api.extension().registerUnloadingHandler(modelWarmer::shutdown);
+        api.extension().registerUnloadingHandler(payloadProvider::shutdown);
+        api.extension().registerUnloadingHandler(variantRunner::shutdown);
+        api.extension().registerUnloadingHandler(indexStore::shutdown);
+        api.extension().registerUnloadingHandler(knowledgeBase::shutdown);
+        api.extension().registerUnloadingHandler(ollamaClient::shutdown);
         
+        logging.logToOutput(String.format("Search index restored %d chat messages (%d terms)",
+            restoredMessages, conversationIndex.getTermCount()));
         logging.logToOutput("Burp AI Chat Integration Extension loaded successfully!");
     }
 } 
\ No newline at end of file
@@ -0,0 +1,308 @@
+package com.burp.llm.api;
+
+import com.burp.llm.config.ConfigSettings;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class AdmissionController {
+    // Interactive requests (a tester waiting in a chat tab) queue ahead of all background work. When one
+    // is waiting on a full backend, background generations beyond their configured share of its slots
+    // are preempted to make room.
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final ConfigSettings configSettings;
+    private final Map<String, BackendState> backends;
+    private final Map<String, TokenBucket> userBuckets;
+    private final AtomicLong preemptions = new AtomicLong();
+
+    public AdmissionController(ConfigSettings configSettings) {
+        this.configSettings = configSettings;
+        this.backends = new HashMap<>();
+        this.userBuckets = new HashMap<>();
+    }
+
+    public Permit acquire(String backend, String user, int promptTokens, Consumer<String> onStatus) throws IOException {
+        return acquire(backend, user, promptTokens, Priority.INTERACTIVE, onStatus);
+    }
+
+    public Permit acquire(String backend, String user, int promptTokens, Priority priority, Consumer<String> onStatus) throws IOException {
+        Ticket ticket = new Ticket(user, priority);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(configSettings.getMaxQueueWaitSeconds());
+        int lastReportedPosition = 0;
+
+        synchronized (this) {
+            BackendState state = backends.computeIfAbsent(backend, k -> new BackendState());
+            if (state.queuedPromptTokens + promptTokens > configSettings.getMaxQueuedPromptTokens() && !state.queue.isEmpty()) {
+                throw new IOException("Request rejected: " + state.queuedPromptTokens
+                    + " prompt tokens already queued for " + backend);
+            }
+            enqueue(state, ticket);
+            state.queuedPromptTokens += promptTokens;
+
+            try {
+                while (true) {
+                    state.bucket.configure(configSettings.getBackendRequestsPerMinute());
+                    TokenBucket userBucket = userBucket(user);
+
+                    Ticket first = firstEligible(state);
+                    if (state.inFlight < configSettings.getMaxInFlightPerBackend()
+                            && state.bucket.available() && first == ticket) {
+                        state.bucket.consume();
+                        userBucket.consume();
+                        state.inFlight++;
+                        Permit permit = new Permit(backend);
+                        if (priority == Priority.BACKGROUND) {
+                            state.background.add(permit);
+                        }
+                        if (lastReportedPosition > 0) {
+                            notifyStatus(onStatus, "");
+                        }
+                        return permit;
+                    }
+                    if (first == ticket && priority == Priority.INTERACTIVE) {
+                        preemptBackground(state);
+                    }
+
+                    int position = position(state, ticket);
+                    if (position != lastReportedPosition) {
+                        lastReportedPosition = position;
+                        notifyStatus(onStatus, "queued #" + position + " on " + backend
+                            + " (" + state.inFlight + " in flight)");
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new IOException("Timed out after " + configSettings.getMaxQueueWaitSeconds()
+                            + "s waiting in queue for " + backend);
+                    }
+                    long waitNanos = Math.min(remaining, Math.max(state.bucket.nanosUntilAvailable(),
+                        userBucket.nanosUntilAvailable()));
+                    if (waitNanos <= 0) {
+                        waitNanos = remaining;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.min(waitNanos, TimeUnit.SECONDS.toNanos(1)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while queued for " + backend);
+            } finally {
+                state.queue.remove(ticket);
+                state.queuedPromptTokens -= promptTokens;
+                notifyAll();
+            }
+        }
+    }
+
+    public synchronized int getInFlight(String backend) {
+        BackendState state = backends.get(backend);
+        return state != null ? state.inFlight : 0;
+    }
+
+    public synchronized int getQueueLength(String backend) {
+        BackendState state = backends.get(backend);
+        return state != null ? state.queue.size() : 0;
+    }
+
+    public long getPreemptionCount() {
+        return preemptions.get();
+    }
+
+    private synchronized void release(Permit permit) {
+        BackendState state = backends.get(permit.backend);
+        if (state != null && state.inFlight > 0) {
+            state.inFlight--;
+            state.background.remove(permit);
+        }
+        notifyAll();
+    }
+
+    // Interactive tickets go behind the other interactive ones but ahead of every background ticket
+    private static void enqueue(BackendState state, Ticket ticket) {
+        int index = state.queue.size();
+        if (ticket.priority == Priority.INTERACTIVE) {
+            index = 0;
+            while (index < state.queue.size() && state.queue.get(index).priority == Priority.INTERACTIVE) {
+                index++;
+            }
+        }
+        state.queue.add(index, ticket);
+    }
+
+    // Tickets are served in priority and then arrival order, except that a user who is out of tokens doesn't
+    // block everyone behind them. Interactive tickets are queued first, so background work only starts when
+    // no interactive request could take the slot.
+    private Ticket firstEligible(BackendState state) {
+        for (Ticket queued : state.queue) {
+            if (userBucket(queued.user).available()) {
+                return queued;
+            }
+        }
+        return null;
+    }
+
+    // Slots per backend that background work keeps even while interactive requests are waiting
+    private int backgroundSlots() {
+        return configSettings.getMaxInFlightPerBackend() * configSettings.getBackgroundSharePercent() / 100;
+    }
+
+    // Cancels the most recently started background generation beyond the reserved share: it has lost the
+    // least work, and it is queued again as background to resume once an interactive slot frees up
+    private void preemptBackground(BackendState state) {
+        if (!configSettings.isPreemptBackground() || state.inFlight < configSettings.getMaxInFlightPerBackend()) {
+            return;
+        }
+        int active = 0;
+        Permit newest = null;
+        for (Permit permit : state.background) {
+            if (permit.preempted) {
+                // One is already on its way out; wait for it before taking another
+                return;
+            }
+            active++;
+            newest = permit;
+        }
+        if (newest != null && active > backgroundSlots()) {
+            newest.preempt();
+            preemptions.incrementAndGet();
+        }
+    }
+
+    private TokenBucket userBucket(String user) {
+        TokenBucket bucket = userBuckets.computeIfAbsent(user, k -> new TokenBucket());
+        bucket.configure(configSettings.getUserRequestsPerMinute());
+        return bucket;
+    }
+
+    private static int position(BackendState state, Ticket ticket) {
+        int position = 1;
+        for (Ticket queued : state.queue) {
+            if (queued == ticket) {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private static void notifyStatus(Consumer<String> onStatus, String status) {
+        if (onStatus != null) {
+            onStatus.accept(status);
+        }
+    }
+
+    public class Permit implements AutoCloseable {
+        private final String backend;
+        private boolean released;
+        // Guarded by the controller's lock
+        private boolean preempted;
+        private Runnable onPreempt;
+
+        private Permit(String backend) {
+            this.backend = backend;
+        }
+
+        // Runs the action (typically cancelling the call) when the slot is reclaimed, at once if it already was
+        public void onPreempt(Runnable action) {
+            synchronized (AdmissionController.this) {
+                onPreempt = action;
+                if (!preempted) {
+                    return;
+                }
+            }
+            action.run();
+        }
+
+        public boolean isPreempted() {
+            synchronized (AdmissionController.this) {
+                return preempted;
+            }
+        }
+
+        private void preempt() {
+            preempted = true;
+            if (onPreempt != null) {
+                onPreempt.run();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(this);
+            }
+        }
+    }
+
+    private static class Ticket {
+        private final String user;
+        private final Priority priority;
+
+        Ticket(String user, Priority priority) {
+            this.user = user;
+            this.priority = priority;
+        }
+    }
+
+    private static class BackendState {
+        private final List<Ticket> queue = new ArrayList<>();
+        // Running background permits in the order they started
+        private final List<Permit> background = new ArrayList<>();
+        private final TokenBucket bucket = new TokenBucket();
+        private int inFlight;
+        private long queuedPromptTokens;
+    }
+
+    // Refills continuously at requestsPerMinute and allows a burst of ten seconds' worth of requests
+    static class TokenBucket {
+        private int requestsPerMinute;
+        private double tokens = -1;
+        private double capacity;
+        private double refillPerNano;
+        private long lastRefill = System.nanoTime();
+
+        void configure(int requestsPerMinute) {
+            if (requestsPerMinute != this.requestsPerMinute) {
+                this.requestsPerMinute = requestsPerMinute;
+                capacity = Math.max(1.0, requestsPerMinute / 6.0);
+                refillPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+                tokens = tokens < 0 ? capacity : Math.min(tokens, capacity);
+            }
+        }
+
+        boolean available() {
+            refill();
+            return tokens >= 1.0;
+        }
+
+        void consume() {
+            refill();
+            tokens -= 1.0;
+        }
+
+        long nanosUntilAvailable() {
+            refill();
+            if (tokens >= 1.0 || refillPerNano <= 0) {
+                return 0;
+            }
+            return (long) ((1.0 - tokens) / refillPerNano);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.burp.llm.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Java Flight Recorder events for the life of a chat request, so a recording of a stuttering Burp shows
+// the extension's share of EDT time, allocation and I/O waits next to Burp's own events. Without a
+// recording the JIT reduces them to nothing; fields that cost anything to fill are only filled after
+// shouldCommit(). Events that fire per chunk carry no stack trace.
+public final class ChatEvents {
+    private static final int CHUNK_BATCH_SIZE = 64;
+
+    public static final String COMPLETED = "completed";
+    public static final String CANCELLED = "cancelled";
+    public static final String PREEMPTED = "preempted";
+    public static final String TIMED_OUT = "timed out";
+    public static final String FAILED = "failed";
+
+    private ChatEvents() {
+    }
+
+    @Name("com.burp.llm.PromptBuild")
+    @Label("Prompt Build")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("Redacting, assembling and serializing one chat request")
+    static class PromptBuild extends Event {
+        @Label("Model")
+        String model;
+        @Label("Messages")
+        int messages;
+        @Label("Prompt Tokens")
+        @Description("Estimated")
+        int promptTokens;
+        @Label("Body Size")
+        @DataAmount
+        long bodyBytes;
+    }
+
+    @Name("com.burp.llm.HistoryCopy")
+    @Label("History Copy")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("Copying a conversation's message history for a new request")
+    static class HistoryCopy extends Event {
+        @Label("Messages")
+        int messages;
+    }
+
+    @Name("com.burp.llm.Connect")
+    @Label("Model Server Connect")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("Opening a connection to a model server, including TLS")
+    @StackTrace(false)
+    static class Connect extends Event {
+        @Label("Address")
+        String address;
+        @Label("Protocol")
+        String protocol;
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("com.burp.llm.FirstByte")
+    @Label("First Byte")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("From sending a request until the first streamed content arrives")
+    @StackTrace(false)
+    static class FirstByte extends Event {
+        @Label("Backend")
+        String backend;
+        @Label("Model")
+        String model;
+        @Label("Prompt Tokens")
+        int promptTokens;
+        @Label("Until Headers")
+        @Timespan
+        long headers;
+    }
+
+    @Name("com.burp.llm.ChunkBatch")
+    @Label("Chunk Batch")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("Consecutive streamed chunks of one answer, read and handed to the caller")
+    @StackTrace(false)
+    static class ChunkBatch extends Event {
+        @Label("Backend")
+        String backend;
+        @Label("Chunks")
+        int chunks;
+        @Label("Characters")
+        int characters;
+    }
+
+    @Name("com.burp.llm.EdtAppend")
+    @Label("Chat Append on EDT")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("Appending streamed text to a chat tab on the event dispatch thread")
+    @StackTrace(false)
+    public static class EdtAppend extends Event {
+        @Label("Characters")
+        int characters;
+        @Label("Queued")
+        @Description("Time the text waited for the event dispatch thread")
+        @Timespan
+        long queued;
+
+        // Call on the EDT just before appending; postedNanos is System.nanoTime() from when the text was handed over
+        public static EdtAppend start(long postedNanos) {
+            EdtAppend event = new EdtAppend();
+            event.queued = System.nanoTime() - postedNanos;
+            event.begin();
+            return event;
+        }
+
+        public void finish(int characters) {
+            this.characters = characters;
+            commit();
+        }
+    }
+
+    @Name("com.burp.llm.Completion")
+    @Label("Chat Request")
+    @Category({"Burp Extensions", "AI Chat"})
+    @Description("One streamed request to a model server, from admission until it completed, was cancelled or failed")
+    static class Completion extends Event {
+        @Label("Backend")
+        String backend;
+        @Label("Model")
+        String model;
+        @Label("Outcome")
+        String outcome;
+        @Label("Priority")
+        String priority;
+        @Label("Queued")
+        @Description("Time waiting for a slot on the backend")
+        @Timespan
+        long queued;
+        @Label("Prompt Tokens")
+        @Description("Estimated")
+        int promptTokens;
+        @Label("Answer Tokens")
+        @Description("As reported by the server, or -1")
+        int evalCount;
+        @Label("Answer Characters")
+        int characters;
+        @Label("Bytes Sent")
+        @DataAmount
+        long sentBytes;
+        @Label("Bytes Received")
+        @DataAmount
+        long receivedBytes;
+    }
+
+    // Groups the chunks of one stream into ChunkBatch events; not thread-safe, one per stream
+    static class ChunkBatcher {
+        private final String backend;
+        private ChunkBatch batch;
+
+        ChunkBatcher(String backend) {
+            this.backend = backend;
+        }
+
+        void onChunk(String content) {
+            if (batch == null) {
+                batch = new ChunkBatch();
+                batch.begin();
+            }
+            batch.chunks++;
+            batch.characters += content.length();
+            if (batch.chunks == CHUNK_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch != null) {
+                batch.backend = backend;
+                batch.commit();
+                batch = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.burp.llm.api;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Per-backend circuit breaker. A backend that refuses connections, or fails several requests in a row,
+// is opened so later requests fail immediately instead of waiting for the connect timeout. While open,
+// a cheap probe is sent after a backoff (half-open); a successful probe closes the circuit again.
+public class CircuitBreaker {
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long INITIAL_OPEN_MILLIS = 5_000;
+    private static final long MAX_OPEN_MILLIS = 60_000;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public interface Probe {
+        void ping(String backend) throws IOException;
+    }
+
+    public interface StateListener {
+        void onStateChanged(String backend, State state);
+    }
+
+    private final Probe probe;
+    private final Map<String, Circuit> circuits;
+    private final List<StateListener> listeners;
+    private final ScheduledExecutorService prober;
+
+    public CircuitBreaker(Probe probe) {
+        this.probe = probe;
+        this.circuits = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AI Chat circuit probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addStateListener(StateListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStateListener(StateListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void shutdown() {
+        prober.shutdownNow();
+    }
+
+    public boolean allowRequest(String backend) {
+        return getState(backend) == State.CLOSED;
+    }
+
+    public State getState(String backend) {
+        Circuit circuit = circuits.get(backend);
+        return circuit != null ? circuit.state : State.CLOSED;
+    }
+
+    public Map<String, State> getStates(List<String> backends) {
+        Map<String, State> states = new LinkedHashMap<>();
+        for (String backend : backends) {
+            states.put(backend, getState(backend));
+        }
+        return states;
+    }
+
+    // Milliseconds until the next probe of an open circuit, 0 when it is not open
+    public long retryInMillis(String backend) {
+        Circuit circuit = circuits.get(backend);
+        if (circuit == null) {
+            return 0;
+        }
+        synchronized (circuit) {
+            return circuit.state == State.OPEN
+                ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(circuit.probeAtNanos - System.nanoTime())) : 0;
+        }
+    }
+
+    public void recordSuccess(String backend) {
+        Circuit circuit = circuits.get(backend);
+        if (circuit == null) {
+            return;
+        }
+        boolean changed;
+        synchronized (circuit) {
+            circuit.consecutiveFailures = 0;
+            changed = circuit.state != State.CLOSED;
+            if (changed) {
+                circuit.state = State.CLOSED;
+                circuit.openMillis = INITIAL_OPEN_MILLIS;
+            }
+        }
+        if (changed) {
+            fireStateChanged(backend, State.CLOSED);
+        }
+    }
+
+    // Connection-level failures open the circuit at once; others only after several in a row
+    public void recordFailure(String backend, boolean connectionFailure) {
+        Circuit circuit = circuits.computeIfAbsent(backend, b -> new Circuit());
+        boolean opened = false;
+        synchronized (circuit) {
+            circuit.consecutiveFailures++;
+            if (circuit.state == State.CLOSED
+                    && (connectionFailure || circuit.consecutiveFailures >= FAILURE_THRESHOLD)) {
+                open(backend, circuit);
+                opened = true;
+            }
+        }
+        if (opened) {
+            fireStateChanged(backend, State.OPEN);
+        }
+    }
+
+    // Blocks background work until at least one of the backends accepts requests again
+    public void awaitAvailable(List<String> backends) throws InterruptedException {
+        while (true) {
+            for (String backend : backends) {
+                if (allowRequest(backend)) {
+                    return;
+                }
+            }
+            synchronized (this) {
+                wait(1000);
+            }
+        }
+    }
+
+    private void open(String backend, Circuit circuit) {
+        circuit.state = State.OPEN;
+        circuit.probeAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(circuit.openMillis);
+        if (!prober.isShutdown()) {
+            prober.schedule(() -> runProbe(backend, circuit), circuit.openMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void runProbe(String backend, Circuit circuit) {
+        synchronized (circuit) {
+            if (circuit.state != State.OPEN) {
+                return;
+            }
+            circuit.state = State.HALF_OPEN;
+        }
+        fireStateChanged(backend, State.HALF_OPEN);
+
+        try {
+            probe.ping(backend);
+            recordSuccess(backend);
+        } catch (IOException e) {
+            synchronized (circuit) {
+                circuit.openMillis = Math.min(MAX_OPEN_MILLIS, circuit.openMillis * 2);
+                open(backend, circuit);
+            }
+            fireStateChanged(backend, State.OPEN);
+        }
+    }
+
+    private void fireStateChanged(String backend, State state) {
+        synchronized (this) {
+            notifyAll();
+        }
+        for (StateListener listener : listeners) {
+            try {
+                listener.onStateChanged(backend, state);
+            } catch (Exception e) {
+                System.err.println("Error notifying circuit listener: " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Circuit {
+        private volatile State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openMillis = INITIAL_OPEN_MILLIS;
+        private long probeAtNanos;
+    }
+}
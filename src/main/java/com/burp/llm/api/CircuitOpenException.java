@@ -0,0 +1,11 @@
+package com.burp.llm.api;
+
+import java.io.IOException;
+
+// Thrown without touching the network when every usable backend has an open circuit
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(String backend, long retryInMillis) {
+        super(String.format("%s is unavailable (circuit open, next probe in %d s)", backend,
+            (retryInMillis + 999) / 1000));
+    }
+}
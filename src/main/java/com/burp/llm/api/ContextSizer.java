@@ -0,0 +1,61 @@
+package com.burp.llm.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Picks num_ctx from the estimated prompt size. Ollama reloads a model whenever num_ctx changes,
+// so sizes come from a few fixed buckets and a model keeps its current size while the prompt
+// still fits and would not use less than a quarter of it. Only requests that may shrink the size
+// (interactive chats) do so; small side calls reuse a larger current size, and preloads never change it.
+public class ContextSizer {
+    private static final int[] BUCKETS = {2048, 4096, 8192, 16384, 32768, 65536, 131072};
+    // Room left for the answer when the profile does not limit its length
+    static final int DEFAULT_ANSWER_RESERVE = 1024;
+
+    private final Map<String, Integer> currentSizes;
+
+    public ContextSizer() {
+        this.currentSizes = new ConcurrentHashMap<>();
+    }
+
+    // Size for a request about to run, recorded as the model's current size; modelLimit <= 0 means
+    // the model's maximum context is unknown
+    public int size(String model, int promptTokens, int numPredict, int modelLimit, boolean mayShrink) {
+        int needed = promptTokens + (numPredict > 0 ? numPredict : DEFAULT_ANSWER_RESERVE);
+        int bucket = bucketFor(needed);
+        Integer current = currentSizes.get(model);
+        if (current != null && needed <= current && (!mayShrink || bucket * 4 > current)) {
+            bucket = current;
+        }
+        if (modelLimit > 0) {
+            bucket = Math.min(bucket, modelLimit);
+        }
+        currentSizes.put(model, bucket);
+        return bucket;
+    }
+
+    // Size to load a model with ahead of use: its current size, or the smallest bucket before its first
+    // request. Nothing is recorded, so warm-ups and heartbeats never make the next request reload it.
+    public int preloadSize(String model, int numPredict, int modelLimit) {
+        Integer current = currentSizes.get(model);
+        if (current != null) {
+            return current;
+        }
+        int bucket = bucketFor(numPredict > 0 ? numPredict : DEFAULT_ANSWER_RESERVE);
+        return modelLimit > 0 ? Math.min(bucket, modelLimit) : bucket;
+    }
+
+    // Size the model was last loaded with by this extension, or -1 when it has not been used yet
+    public int currentSize(String model) {
+        return currentSizes.getOrDefault(model, -1);
+    }
+
+    static int bucketFor(int tokens) {
+        for (int bucket : BUCKETS) {
+            if (tokens <= bucket) {
+                return bucket;
+            }
+        }
+        return BUCKETS[BUCKETS.length - 1];
+    }
+}
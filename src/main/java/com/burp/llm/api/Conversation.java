@@ -0,0 +1,176 @@
+package com.burp.llm.api;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Message history of one chat, plus the HTTP messages the model has already seen in it
+public class Conversation {
+    private static final int MAX_CHAINED_DELTAS = 8;
+
+    private final List<JsonObject> messages;
+    private String lastRequest;
+    private String lastResponse;
+    private String pendingRequest;
+    private String pendingResponse;
+    private int chainedDeltas;
+    private boolean pendingDelta;
+    private TokenEstimator cachedEstimator;
+    private int cachedMessageCount = -1;
+    private int cachedHistoryTokens;
+    private RedactionVault redactionVault = new RedactionVault();
+    // Facts about the target sent ahead of the history; fixed for the whole chat so the server can reuse
+    // its cache of the prompt prefix. Null until the first question decides it, empty for none.
+    private String knowledgePrefix;
+
+    public Conversation() {
+        this.messages = new ArrayList<>();
+    }
+
+    public synchronized List<JsonObject> getMessages() {
+        ChatEvents.HistoryCopy event = new ChatEvents.HistoryCopy();
+        event.begin();
+        List<JsonObject> copy = new ArrayList<>(messages.size());
+        for (JsonObject message : messages) {
+            copy.add(message.deepCopy());
+        }
+        event.messages = copy.size();
+        event.commit();
+        return copy;
+    }
+
+    public synchronized int getMessageCount() {
+        return messages.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    public synchronized void addTurn(JsonObject userMessage, String assistantContent) {
+        messages.add(userMessage.deepCopy());
+        JsonObject assistantMessage = new JsonObject();
+        assistantMessage.addProperty("role", "assistant");
+        assistantMessage.addProperty("content", assistantContent);
+        messages.add(assistantMessage);
+
+        // Only once the turn is in the history can later questions be expressed relative to it
+        if (pendingRequest != null) {
+            lastRequest = pendingRequest;
+            lastResponse = pendingResponse;
+            chainedDeltas = pendingDelta ? chainedDeltas + 1 : 0;
+            pendingRequest = null;
+            pendingResponse = null;
+        }
+    }
+
+    public synchronized void clear() {
+        messages.clear();
+        knowledgePrefix = null;
+        cachedMessageCount = -1;
+        redactionVault = new RedactionVault();
+        lastRequest = null;
+        lastResponse = null;
+        pendingRequest = null;
+        pendingResponse = null;
+        chainedDeltas = 0;
+    }
+
+    public synchronized String getKnowledgePrefix() {
+        return knowledgePrefix;
+    }
+
+    public synchronized void setKnowledgePrefix(String knowledgePrefix) {
+        this.knowledgePrefix = knowledgePrefix;
+        cachedMessageCount = -1;
+    }
+
+    // The most recent answer in the history, or null
+    public synchronized String getLastAnswer() {
+        if (messages.isEmpty()) {
+            return null;
+        }
+        JsonObject last = messages.get(messages.size() - 1);
+        return "assistant".equals(last.get("role").getAsString()) ? last.get("content").getAsString() : null;
+    }
+
+    // Placeholders of secrets redacted from this chat's prompts; the history refers to them
+    public synchronized RedactionVault getRedactionVault() {
+        return redactionVault;
+    }
+
+    // The model only saw a digest of the pending exchange, so a later one must not be sent as a diff against it
+    public synchronized void forgetHttpMessages() {
+        lastRequest = null;
+        lastResponse = null;
+        pendingRequest = null;
+        pendingResponse = null;
+        pendingDelta = false;
+        chainedDeltas = 0;
+    }
+
+    // Sends only what changed when the request is a tweak of the last one discussed, e.g. in Repeater.
+    // With redactSecrets the messages are redacted before they are diffed or kept, so a delta names a
+    // changed secret by its placeholder, as the full prompt does.
+    public synchronized String buildAnalysisPrompt(String request, String response, String question, boolean redactSecrets) {
+        if (redactSecrets) {
+            request = Redactor.getInstance().redact(request, redactionVault);
+            response = Redactor.getInstance().redact(response, redactionVault);
+        }
+        pendingRequest = request;
+        pendingResponse = response;
+        String delta = deltaPrompt(request, response, question);
+        pendingDelta = delta != null;
+        return delta != null ? delta : OllamaClient.buildAnalysisPrompt(request, response, question);
+    }
+
+    // Same prompt as buildAnalysisPrompt, without recording anything, for budget projections
+    public synchronized String previewAnalysisPrompt(String request, String response, String question, boolean redactSecrets) {
+        if (redactSecrets) {
+            RedactionVault scratch = redactionVault.copy();
+            request = Redactor.getInstance().redact(request, scratch);
+            response = Redactor.getInstance().redact(response, scratch);
+        }
+        String delta = deltaPrompt(request, response, question);
+        return delta != null ? delta : OllamaClient.buildAnalysisPrompt(request, response, question);
+    }
+
+    public synchronized int estimateHistoryTokens(TokenEstimator estimator) {
+        if (estimator != cachedEstimator || messages.size() != cachedMessageCount) {
+            int tokens = knowledgePrefix == null || knowledgePrefix.isEmpty() ? 0
+                : estimator.estimate(knowledgePrefix) + TokenEstimator.MESSAGE_OVERHEAD_TOKENS;
+            for (JsonObject message : messages) {
+                tokens += estimator.estimate(message.get("content").getAsString()) + TokenEstimator.MESSAGE_OVERHEAD_TOKENS;
+            }
+            cachedEstimator = estimator;
+            cachedMessageCount = messages.size();
+            cachedHistoryTokens = tokens;
+        }
+        return cachedHistoryTokens;
+    }
+
+    private String deltaPrompt(String request, String response, String question) {
+        if (lastRequest != null && chainedDeltas < MAX_CHAINED_DELTAS
+                && HttpMessageDiff.sameEndpoint(lastRequest, request)) {
+            String requestDiff = HttpMessageDiff.diff(lastRequest, request);
+            String responseDiff = HttpMessageDiff.diff(lastResponse, response);
+            if (requestDiff != null && responseDiff != null
+                    && requestDiff.length() + responseDiff.length() < (request.length() + response.length()) / 2) {
+                return String.format("""
+                    The current HTTP request is a modified version of the most recent request discussed above.
+                    Apply these changes to it:
+                    %s
+                    The response changed as follows:
+                    %s
+                    Question: %s
+                    """, requestDiff, responseDiff, question);
+            }
+        }
+        return null;
+    }
+
+    public synchronized boolean isPendingDelta() {
+        return pendingDelta;
+    }
+}
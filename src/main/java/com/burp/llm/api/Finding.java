@@ -0,0 +1,86 @@
+package com.burp.llm.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+public class Finding {
+    private String title;
+    private String severity;
+    private String confidence;
+    private String detail;
+    private String evidence;
+    private String remediation;
+
+    public String getTitle() {
+        return title != null ? title : "";
+    }
+
+    public String getSeverity() {
+        return severity != null ? severity : "information";
+    }
+
+    public String getConfidence() {
+        return confidence != null ? confidence : "tentative";
+    }
+
+    public String getDetail() {
+        return detail != null ? detail : "";
+    }
+
+    public String getEvidence() {
+        return evidence != null ? evidence : "";
+    }
+
+    public String getRemediation() {
+        return remediation != null ? remediation : "";
+    }
+
+    // JSON schema passed as Ollama's "format" so the model can only answer with a findings object
+    public static JsonObject responseSchema() {
+        JsonObject item = new JsonObject();
+        item.addProperty("type", "object");
+        JsonObject properties = new JsonObject();
+        properties.add("title", stringProperty());
+        properties.add("severity", enumProperty("high", "medium", "low", "information"));
+        properties.add("confidence", enumProperty("certain", "firm", "tentative"));
+        properties.add("detail", stringProperty());
+        properties.add("evidence", stringProperty());
+        properties.add("remediation", stringProperty());
+        item.add("properties", properties);
+        item.add("required", stringArray("title", "severity", "confidence", "detail"));
+
+        JsonObject findings = new JsonObject();
+        findings.addProperty("type", "array");
+        findings.add("items", item);
+
+        JsonObject rootProperties = new JsonObject();
+        rootProperties.add("findings", findings);
+        rootProperties.add("summary", stringProperty());
+
+        JsonObject schema = new JsonObject();
+        schema.addProperty("type", "object");
+        schema.add("properties", rootProperties);
+        schema.add("required", stringArray("findings"));
+        return schema;
+    }
+
+    private static JsonObject stringProperty() {
+        JsonObject property = new JsonObject();
+        property.addProperty("type", "string");
+        return property;
+    }
+
+    private static JsonObject enumProperty(String... values) {
+        JsonObject property = stringProperty();
+        property.add("enum", stringArray(values));
+        return property;
+    }
+
+    private static JsonArray stringArray(String... values) {
+        JsonArray array = new JsonArray();
+        for (String value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+}
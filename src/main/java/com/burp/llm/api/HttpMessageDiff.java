@@ -0,0 +1,204 @@
+package com.burp.llm.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Describes how one raw HTTP message differs from a previous version in terms the model can apply:
+// start line, headers, query/form parameters and the changed body range
+public final class HttpMessageDiff {
+    private static final int MAX_RANGE_CHARS = 2000;
+
+    private HttpMessageDiff() {
+    }
+
+    // Returns null when the messages are too different for a diff to be worth sending
+    public static String diff(String previous, String current) {
+        Message before = Message.parse(previous);
+        Message after = Message.parse(current);
+        List<String> changes = new ArrayList<>();
+
+        diffStartLine(before, after, changes);
+        diffHeaders(before, after, changes);
+        if (!diffBody(before, after, changes)) {
+            return null;
+        }
+
+        if (changes.isEmpty()) {
+            return "- (unchanged)\n";
+        }
+        StringBuilder text = new StringBuilder();
+        for (String change : changes) {
+            text.append("- ").append(change).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Requests derive from each other when method and path match; responses always may
+    public static boolean sameEndpoint(String previousRequest, String currentRequest) {
+        Message before = Message.parse(previousRequest);
+        Message after = Message.parse(currentRequest);
+        return before.method().equals(after.method()) && before.path().equals(after.path());
+    }
+
+    private static void diffStartLine(Message before, Message after, List<String> changes) {
+        if (before.startLine.equals(after.startLine)) {
+            return;
+        }
+        if (!before.method().isEmpty() && !before.method().startsWith("HTTP/") && before.method().equals(after.method()) && before.path().equals(after.path())) {
+            diffParams("query param", parseParams(before.query()), parseParams(after.query()), changes);
+        } else {
+            changes.add("start line: " + quote(before.startLine) + " -> " + quote(after.startLine));
+        }
+    }
+
+    private static void diffHeaders(Message before, Message after, List<String> changes) {
+        for (Map.Entry<String, String> header : after.headers.entrySet()) {
+            String old = before.headers.get(header.getKey());
+            if (old == null) {
+                changes.add("header added: " + header.getKey() + ": " + header.getValue());
+            } else if (!old.equals(header.getValue())) {
+                changes.add("header " + header.getKey() + ": " + quote(old) + " -> " + quote(header.getValue()));
+            }
+        }
+        for (String name : before.headers.keySet()) {
+            if (!after.headers.containsKey(name)) {
+                changes.add("header removed: " + name);
+            }
+        }
+    }
+
+    private static boolean diffBody(Message before, Message after, List<String> changes) {
+        if (before.body.equals(after.body)) {
+            return true;
+        }
+
+        String contentType = after.headers.getOrDefault("content-type", "");
+        if (contentType.contains("application/x-www-form-urlencoded")) {
+            diffParams("body param", parseParams(before.body), parseParams(after.body), changes);
+            return true;
+        }
+
+        String old = before.body;
+        String now = after.body;
+        int prefix = 0;
+        int maxPrefix = Math.min(old.length(), now.length());
+        while (prefix < maxPrefix && old.charAt(prefix) == now.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = Math.min(old.length(), now.length()) - prefix;
+        while (suffix < maxSuffix && old.charAt(old.length() - 1 - suffix) == now.charAt(now.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        String removed = old.substring(prefix, old.length() - suffix);
+        String inserted = now.substring(prefix, now.length() - suffix);
+        if (removed.length() > MAX_RANGE_CHARS || inserted.length() > MAX_RANGE_CHARS) {
+            return false;
+        }
+        changes.add(String.format("body chars [%d..%d) of %d: %s -> %s (body is now %d chars)",
+            prefix, old.length() - suffix, old.length(), quote(removed), quote(inserted), now.length()));
+        return true;
+    }
+
+    private static void diffParams(String kind, Map<String, String> before, Map<String, String> after, List<String> changes) {
+        for (Map.Entry<String, String> param : after.entrySet()) {
+            String old = before.get(param.getKey());
+            if (old == null) {
+                changes.add(kind + " added: " + param.getKey() + "=" + quote(param.getValue()));
+            } else if (!old.equals(param.getValue())) {
+                changes.add(kind + " " + param.getKey() + ": " + quote(old) + " -> " + quote(param.getValue()));
+            }
+        }
+        for (String name : before.keySet()) {
+            if (!after.containsKey(name)) {
+                changes.add(kind + " removed: " + name);
+            }
+        }
+    }
+
+    private static Map<String, String> parseParams(String encoded) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return params;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals >= 0 ? pair.substring(0, equals) : pair;
+            String value = equals >= 0 ? pair.substring(equals + 1) : "";
+            // Repeated names keep their position by getting an index suffix
+            String key = name;
+            for (int i = 2; params.containsKey(key); i++) {
+                key = name + "[" + i + "]";
+            }
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\r", "\\r").replace("\n", "\\n") + "\"";
+    }
+
+    private static class Message {
+        private final String startLine;
+        private final Map<String, String> headers;
+        private final String body;
+
+        private Message(String startLine, Map<String, String> headers, String body) {
+            this.startLine = startLine;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        static Message parse(String raw) {
+            int headerEnd = raw.indexOf("\r\n\r\n");
+            int bodyStart = headerEnd + 4;
+            if (headerEnd < 0) {
+                headerEnd = raw.indexOf("\n\n");
+                bodyStart = headerEnd + 2;
+            }
+            if (headerEnd < 0) {
+                headerEnd = raw.length();
+                bodyStart = raw.length();
+            }
+
+            String[] lines = raw.substring(0, headerEnd).split("\r?\n");
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = lines[i].substring(0, colon).trim().toLowerCase();
+                String value = lines[i].substring(colon + 1).trim();
+                headers.merge(name, value, (a, b) -> a + ", " + b);
+            }
+            return new Message(lines.length > 0 ? lines[0] : "", headers, raw.substring(bodyStart));
+        }
+
+        String method() {
+            int space = startLine.indexOf(' ');
+            return space > 0 ? startLine.substring(0, space) : "";
+        }
+
+        private String target() {
+            String[] parts = startLine.split(" ");
+            return parts.length > 1 ? parts[1] : "";
+        }
+
+        String path() {
+            String target = target();
+            int question = target.indexOf('?');
+            return question >= 0 ? target.substring(0, question) : target;
+        }
+
+        String query() {
+            String target = target();
+            int question = target.indexOf('?');
+            return question >= 0 ? target.substring(question + 1) : "";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.burp.llm.api;
+
+import com.google.gson.Gson;
+
+import java.util.function.Consumer;
+
+// Scans a streamed JSON object character by character and hands out each element of one
+// top-level array, e.g. "findings", as soon as its closing brace arrives
+public class JsonArrayStreamParser<T> implements Consumer<String> {
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final String arrayName;
+    private final Class<T> elementType;
+    private final Consumer<T> onElement;
+    private final Gson gson;
+    private final StringBuilder lastString;
+    private final StringBuilder capture;
+    private int depth;
+    private int arrayDepth = -1;
+    private boolean inString;
+    private boolean escape;
+    private boolean capturing;
+    private int count;
+
+    public JsonArrayStreamParser(String arrayName, Class<T> elementType, Consumer<T> onElement) {
+        this.arrayName = arrayName;
+        this.elementType = elementType;
+        this.onElement = onElement;
+        this.gson = new Gson();
+        this.lastString = new StringBuilder();
+        this.capture = new StringBuilder();
+    }
+
+    @Override
+    public void accept(String chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            feed(chunk.charAt(i));
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    private void feed(char c) {
+        if (capturing) {
+            capture.append(c);
+        }
+
+        if (inString) {
+            if (escape) {
+                escape = false;
+            } else if (c == '\\') {
+                escape = true;
+            } else if (c == '"') {
+                inString = false;
+            } else if (!capturing && lastString.length() < MAX_KEY_LENGTH) {
+                lastString.append(c);
+            }
+            return;
+        }
+
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                lastString.setLength(0);
+            }
+            case '[' -> {
+                if (depth == 1 && arrayDepth < 0 && arrayName.contentEquals(lastString)) {
+                    arrayDepth = depth + 1;
+                }
+                depth++;
+            }
+            case '{' -> {
+                depth++;
+                if (!capturing && arrayDepth > 0 && depth == arrayDepth + 1) {
+                    capturing = true;
+                    capture.setLength(0);
+                    capture.append(c);
+                }
+            }
+            case '}', ']' -> {
+                depth--;
+                if (capturing && depth == arrayDepth) {
+                    capturing = false;
+                    emit();
+                }
+                if (arrayDepth > 0 && depth < arrayDepth) {
+                    arrayDepth = -1;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void emit() {
+        try {
+            T element = gson.fromJson(capture.toString(), elementType);
+            if (element != null) {
+                count++;
+                onElement.accept(element);
+            }
+        } catch (Exception e) {
+            System.err.println("Error parsing " + arrayName + " element: " + e.getMessage());
+        }
+    }
+}
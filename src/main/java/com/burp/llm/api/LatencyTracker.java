@@ -0,0 +1,73 @@
+package com.burp.llm.api;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LatencyTracker {
+    private static final int WINDOW_SIZE = 200;
+    private static final int MIN_SAMPLES = 10;
+
+    public enum Metric {
+        TIME_TO_FIRST_TOKEN,
+        // First-token time divided by prompt size, so big prompts get proportionally longer budgets
+        FIRST_TOKEN_PER_KILO_TOKEN,
+        // Longest pause between two chunks of one stream
+        MAX_CHUNK_GAP
+    }
+
+    private final Map<Metric, Map<String, Samples>> samples;
+
+    public LatencyTracker() {
+        this.samples = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            samples.put(metric, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void recordTimeToFirstToken(String backend, String model, long millis) {
+        record(Metric.TIME_TO_FIRST_TOKEN, backend, model, millis);
+    }
+
+    // Returns -1 until enough samples have been recorded to trust the distribution
+    public long timeToFirstTokenPercentile(String backend, String model, int percentile) {
+        return percentile(Metric.TIME_TO_FIRST_TOKEN, backend, model, percentile);
+    }
+
+    public void record(Metric metric, String backend, String model, long millis) {
+        samples.get(metric).computeIfAbsent(key(backend, model), k -> new Samples()).add(millis);
+    }
+
+    public long percentile(Metric metric, String backend, String model, int percentile) {
+        Samples values = samples.get(metric).get(key(backend, model));
+        return values != null ? values.percentile(percentile) : -1;
+    }
+
+    private static String key(String backend, String model) {
+        return backend + "|" + model;
+    }
+
+    // Fixed-size ring of the most recent samples
+    static class Samples {
+        private final long[] values = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+
+        synchronized void add(long value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            count = Math.min(count + 1, values.length);
+        }
+
+        synchronized long percentile(int percentile) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+}
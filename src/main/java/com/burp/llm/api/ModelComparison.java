@@ -0,0 +1,108 @@
+package com.burp.llm.api;
+
+import java.io.IOException;
+
+// Types for sending one prompt to several models or backends at once and comparing how they answer
+public final class ModelComparison {
+    private ModelComparison() {
+    }
+
+    // A model, optionally pinned to one server: "qwen2.5:14b" or "qwen2.5:14b@http://gpu2:11434"
+    public static class Target {
+        private final String model;
+        private final String backend;
+
+        public Target(String model, String backend) {
+            this.model = model;
+            this.backend = backend;
+        }
+
+        // Returns null for a blank spec; model names never contain '@', server URLs may
+        public static Target parse(String spec) {
+            String trimmed = spec.trim();
+            if (trimmed.isEmpty()) {
+                return null;
+            }
+            int at = trimmed.indexOf('@');
+            if (at < 0) {
+                return new Target(trimmed, null);
+            }
+            String backend = trimmed.substring(at + 1).trim();
+            while (backend.endsWith("/")) {
+                backend = backend.substring(0, backend.length() - 1);
+            }
+            return new Target(trimmed.substring(0, at).trim(), backend.isEmpty() ? null : backend);
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        // null means the primary server
+        public String getBackend() {
+            return backend;
+        }
+
+        @Override
+        public String toString() {
+            return backend != null ? model + " @ " + backend : model;
+        }
+    }
+
+    public static class Result {
+        private final long timeToFirstTokenMillis;
+        private final long totalMillis;
+        private final int tokens;
+        private final long generationNanos;
+        private final boolean exact;
+
+        // exact: tokens and generationNanos come from the server's eval_count and eval_duration,
+        // otherwise they are estimated locally from the streamed text and the time after the first token
+        Result(long timeToFirstTokenMillis, long totalMillis, int tokens, long generationNanos, boolean exact) {
+            this.timeToFirstTokenMillis = timeToFirstTokenMillis;
+            this.totalMillis = totalMillis;
+            this.tokens = tokens;
+            this.generationNanos = generationNanos;
+            this.exact = exact;
+        }
+
+        // -1 when no token arrived
+        public long getTimeToFirstTokenMillis() {
+            return timeToFirstTokenMillis;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+
+        public double getTokensPerSecond() {
+            return generationNanos > 0 ? tokens * 1e9 / generationNanos : 0;
+        }
+
+        // "TTFT 412 ms, 38.2 tok/s, 512 tokens, 13.8 s total"
+        public String describe() {
+            String approx = exact ? "" : "≈";
+            return String.format("TTFT %s, %s%.1f tok/s, %s%,d tokens, %.1f s total",
+                timeToFirstTokenMillis >= 0 ? timeToFirstTokenMillis + " ms" : "-",
+                approx, getTokensPerSecond(), approx, tokens, totalMillis / 1000.0);
+        }
+    }
+
+    // Calls for different targets arrive concurrently on stream threads; index is the target's position
+    public interface Listener {
+        void onChunk(int index, String chunk);
+
+        void onStatus(int index, String status);
+
+        // error is null when the answer completed
+        void onComplete(int index, Result result, IOException error);
+    }
+}
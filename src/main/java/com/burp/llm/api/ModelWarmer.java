@@ -0,0 +1,177 @@
+package com.burp.llm.api;
+
+import com.burp.llm.config.ConfigSettings;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ModelWarmer {
+    public enum LoadState {
+        COLD, LOADING, WARM
+    }
+
+    public interface StateListener {
+        void onStatesChanged();
+    }
+
+    private final ConfigSettings configSettings;
+    private final OllamaClient ollamaClient;
+    private final ScheduledExecutorService executor;
+    private final Map<String, LoadState> loadStates;
+    private final List<StateListener> listeners;
+    private final ConfigSettings.ConfigChangeListener configListener;
+    private ScheduledFuture<?> heartbeat;
+    private int heartbeatIntervalMinutes;
+    private String lastWarmedKey;
+
+    public ModelWarmer(ConfigSettings configSettings, OllamaClient ollamaClient) {
+        this.configSettings = configSettings;
+        this.ollamaClient = ollamaClient;
+        this.loadStates = new LinkedHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AI Chat model warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.configListener = this::onConfigChanged;
+        configSettings.addChangeListener(configListener);
+    }
+
+    public void start() {
+        // A server that comes back after an outage has usually lost its loaded models
+        ollamaClient.getCircuitBreaker().addStateListener((backend, state) -> {
+            if (state == CircuitBreaker.State.CLOSED && backend.equals(configSettings.getOllamaServer())
+                    && configSettings.isWarmUpOnChange()) {
+                warmUpNow();
+            }
+        });
+        onConfigChanged();
+    }
+
+    public void shutdown() {
+        configSettings.removeChangeListener(configListener);
+        executor.shutdownNow();
+    }
+
+    public void addStateListener(StateListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized Map<String, LoadState> getLoadStates() {
+        return new LinkedHashMap<>(loadStates);
+    }
+
+    public void warmUpNow() {
+        String model = configSettings.getModel();
+        executor.execute(() -> warmUp(model));
+    }
+
+    public void refreshNow() {
+        executor.execute(this::refreshLoadStates);
+    }
+
+    private synchronized void onConfigChanged() {
+        // Listeners fire on every settings keystroke, so only react when the target model actually changed
+        String key = configSettings.getOllamaServer() + "|" + configSettings.getModel();
+        if (configSettings.isWarmUpOnChange() && !key.equals(lastWarmedKey)) {
+            lastWarmedKey = key;
+            warmUpNow();
+        }
+        rescheduleHeartbeat();
+    }
+
+    private void rescheduleHeartbeat() {
+        int interval = configSettings.getKeepWarmIntervalMinutes();
+        boolean enabled = configSettings.isKeepWarmEnabled();
+
+        if (heartbeat != null && (!enabled || interval != heartbeatIntervalMinutes)) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        if (enabled && heartbeat == null && !executor.isShutdown()) {
+            heartbeatIntervalMinutes = interval;
+            heartbeat = executor.scheduleAtFixedRate(this::heartbeatTick, interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    private void heartbeatTick() {
+        // Background traffic pauses while the server is known to be down; the circuit probes it instead
+        if (!ollamaClient.getCircuitBreaker().allowRequest(configSettings.getOllamaServer())) {
+            return;
+        }
+        int hour = LocalTime.now().getHour();
+        if (hour < configSettings.getWorkingHoursStart() || hour >= configSettings.getWorkingHoursEnd()) {
+            refreshLoadStates();
+            return;
+        }
+        warmUp(configSettings.getModel());
+    }
+
+    private void warmUp(String model) {
+        if (model == null || model.trim().isEmpty()) {
+            return;
+        }
+        setState(model, LoadState.LOADING);
+        try {
+            ollamaClient.preloadModel(model);
+            setState(model, LoadState.WARM);
+        } catch (IOException e) {
+            System.err.println("Error warming up model " + model + ": " + e.getMessage());
+            setState(model, LoadState.COLD);
+        }
+    }
+
+    private void refreshLoadStates() {
+        List<String> loaded;
+        try {
+            loaded = ollamaClient.listLoadedModels();
+        } catch (IOException e) {
+            System.err.println("Error listing loaded models: " + e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            for (String model : new ArrayList<>(loadStates.keySet())) {
+                if (loadStates.get(model) != LoadState.LOADING && !loaded.contains(model)) {
+                    loadStates.put(model, LoadState.COLD);
+                }
+            }
+            for (String model : loaded) {
+                loadStates.put(model, LoadState.WARM);
+            }
+            String configured = configSettings.getModel();
+            if (configured != null && !configured.isEmpty()) {
+                loadStates.putIfAbsent(configured, LoadState.COLD);
+            }
+        }
+        fireStatesChanged();
+    }
+
+    private void setState(String model, LoadState state) {
+        synchronized (this) {
+            loadStates.put(model, state);
+        }
+        fireStatesChanged();
+    }
+
+    private void fireStatesChanged() {
+        for (StateListener listener : listeners) {
+            try {
+                listener.onStatesChanged();
+            } catch (Exception e) {
+                System.err.println("Error notifying model state listener: " + e.getMessage());
+            }
+        }
+    }
+}
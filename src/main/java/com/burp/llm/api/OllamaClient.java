@@ -4,36 +4,148 @@ import com.burp.llm.config.ConfigSettings;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
 import okhttp3.*;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.BufferedReader;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.Base64;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 import java.util.ArrayList;
 
 public class OllamaClient {
+    // Assumed context of a model whose limit /api/show did not report
+    private static final int UNKNOWN_CONTEXT_LIMIT = 8192;
+    // Smallest piece of a response worth analyzing on its own
+    private static final int MIN_CHUNK_TOKENS = 512;
+    // Instructions wrapped around each chunk
+    private static final int CHUNK_PROMPT_OVERHEAD_TOKENS = 200;
+    // Below this a gzip header and a Content-Encoding line save nothing worth the CPU
+    private static final int MIN_COMPRESSED_BODY_BYTES = 8 * 1024;
+    private static final String FINDINGS_INSTRUCTION =
+        "\nReport each distinct security issue as one element of the findings array, most severe first.";
+    private static final String VARIANTS_INSTRUCTION = """
+
+        Propose at most %d test requests that confirm or rule out the most likely vulnerabilities, most likely first.
+        Each one changes exactly one value of this request. location is query or body (a URL or form parameter),
+        json (a dotted property path in a JSON body), cookie, header, or path (the whole new path with its query
+        string; leave name empty). value is the complete new value, not URL-encoded; for json, a value that is itself
+        JSON (a number, true, null, an object) keeps that type. Say in expect what the response would show if the
+        hypothesis holds.""";
+
+    private static final String KNOWLEDGE_INSTRUCTION = """
+        You keep short notes about the web application at %s for a penetration tester, so that later questions
+        about it need no background. Update the notes with what the question and answer below establish. Keep only
+        durable facts: framework and server, authentication and session handling, endpoints and their parameters,
+        roles, defenses such as WAFs or CSRF tokens, and vulnerabilities confirmed or ruled out. Leave out details of
+        this one request, speculation, advice and secret values. One fact per entry, most useful first; merge
+        duplicates and drop notes the answer contradicts. All notes together must stay under %d tokens.
+
+        Current notes:
+        %s
+
+        Question:
+        %s
+
+        Answer:
+        %s""";
+    // An answer beyond this is cut for note-taking; facts worth keeping are rarely only at its end
+    private static final int MAX_KNOWLEDGE_ANSWER_CHARS = 8000;
+
+    // Owns the connection pool and dispatcher; every other client is derived from it, so rebuilding them on a
+    // settings change keeps open connections, including a shared HTTP/2 one, and starts no new threads
+    private final OkHttpClient baseClient;
     private OkHttpClient client;
+    // Same pool and settings without a read timeout; streams are bounded by the watchdog instead
+    private OkHttpClient streamClient;
+    // Cleartext HTTP/2 without an upgrade round trip, for http:// servers when enabled
+    private OkHttpClient h2cStreamClient;
     private final ConfigSettings configSettings;
     private final Gson gson;
-    private List<JsonObject> messageHistory;
+    private final AdmissionController admissionController;
+    private final LatencyTracker latencyTracker;
+    private final ExecutorService streamExecutor;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final Conversation defaultConversation;
+    private final Map<String, Integer> contextLengths = new ConcurrentHashMap<>();
+    private final ContextSizer contextSizer = new ContextSizer();
+    private final StreamWatchdog watchdog;
+    private final CircuitBreaker circuitBreaker;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final WireStats wireStats = new WireStats();
+    private final ConfigSettings.ConfigChangeListener configListener = this::buildClients;
 
     public OllamaClient(ConfigSettings configSettings) {
+        this(configSettings, new AdmissionController(configSettings));
+    }
+
+    public OllamaClient(ConfigSettings configSettings, AdmissionController admissionController) {
         this.configSettings = configSettings;
         this.gson = new Gson();
-        this.client = buildClient();
-        this.messageHistory = new ArrayList<>();
-        
-        configSettings.addChangeListener(() -> {
-            this.client = buildClient();
+        this.admissionController = admissionController;
+        this.latencyTracker = new LatencyTracker();
+        this.streamExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "AI Chat stream");
+            thread.setDaemon(true);
+            return thread;
         });
+        this.watchdog = new StreamWatchdog(configSettings, latencyTracker);
+        this.circuitBreaker = new CircuitBreaker(this::ping);
+        this.defaultConversation = new Conversation();
+        this.baseClient = new OkHttpClient.Builder().eventListenerFactory(wireStats).build();
+        buildClients();
+
+        configSettings.addChangeListener(configListener);
+    }
+
+    // Stops the stream, watchdog and probe threads and closes pooled connections when the extension is unloaded
+    public void shutdown() {
+        configSettings.removeChangeListener(configListener);
+        streamExecutor.shutdownNow();
+        watchdog.shutdown();
+        circuitBreaker.shutdown();
+        baseClient.dispatcher().executorService().shutdown();
+        baseClient.connectionPool().evictAll();
+    }
+
+    private void buildClients() {
+        this.client = buildClient();
+        this.streamClient = client.newBuilder().readTimeout(0, TimeUnit.SECONDS).build();
+        this.h2cStreamClient = streamClient.newBuilder().protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE)).build();
+    }
+
+    // https servers negotiate HTTP/2 through ALPN on their own; http:// ones only speak it when told to.
+    // Prior knowledge cannot go through the HTTP debugging proxy, which expects HTTP/1.1.
+    private OkHttpClient streamClientFor(String backend) {
+        if (configSettings.isHttp2Cleartext() && !configSettings.isUseProxy() && backend.startsWith("http://")) {
+            return h2cStreamClient;
+        }
+        return streamClient;
     }
 
     private OkHttpClient buildClient() {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+        OkHttpClient.Builder builder = baseClient.newBuilder()
             .connectTimeout(configSettings.getConnectTimeoutSeconds(), TimeUnit.SECONDS)
             .writeTimeout(configSettings.getWriteTimeoutSeconds(), TimeUnit.SECONDS)
             .readTimeout(configSettings.getReadTimeoutSeconds(), TimeUnit.SECONDS);
@@ -55,15 +167,68 @@ public class OllamaClient {
     }
 
     public void chat(String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk) throws IOException {
-        chatInternal(prompt, systemPrompt, base64Images, onChunk, false);
+        chat(prompt, systemPrompt, base64Images, onChunk, null);
     }
 
-    private void chatInternal(String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk, boolean isAnalysis) throws IOException {
-        String url = configSettings.getOllamaServer() + configSettings.getChatApiEndpoint();
-        
+    public void chat(String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        chat(defaultConversation, prompt, systemPrompt, base64Images, onChunk, onStatus);
+    }
+
+    public void chat(Conversation conversation, String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        chat(conversation, prompt, systemPrompt, base64Images, onChunk, null, onStatus);
+    }
+
+    // Reasoning of thinking models goes to onReasoning (or is dropped when it is null), never to onChunk
+    public void chat(Conversation conversation, String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onReasoning, Consumer<String> onStatus) throws IOException {
+        chatInternal(conversation, prompt, systemPrompt, base64Images, onChunk, onReasoning, onStatus, null, null);
+    }
+
+    // A null conversation sends the prompt on its own and keeps no history; a null backend uses the configured order
+    private void chatInternal(Conversation conversation, String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onReasoning, Consumer<String> onStatus, JsonObject format, String backend) throws IOException {
+        chatInternal(conversation, prompt, systemPrompt, base64Images, onChunk, onReasoning, onStatus, format, backend,
+            null, false, AdmissionController.Priority.INTERACTIVE);
+    }
+
+    // Work nobody is watching stream in: queued behind interactive requests and preempted for them
+    private void chatInBackground(String prompt, String systemPrompt, Consumer<String> onChunk, Consumer<String> onStatus, String backend) throws IOException {
+        chatInternal(null, prompt, systemPrompt, null, onChunk, null, onStatus, null, backend,
+            null, false, AdmissionController.Priority.BACKGROUND);
+    }
+
+    // A null model uses the configured one. A pinned request goes to backend alone, without failover,
+    // hedging or joining an identical stream, so its timing says something about that backend.
+    private PreparedRequest chatInternal(Conversation conversation, String prompt, String systemPrompt, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onReasoning, Consumer<String> onStatus, JsonObject format, String backend, String model, boolean pinned, AdmissionController.Priority priority) throws IOException {
+        if (model == null) {
+            model = configSettings.getModel();
+        }
+        ChatEvents.PromptBuild buildEvent = new ChatEvents.PromptBuild();
+        buildEvent.begin();
+        // Secrets leave as placeholders and are put back in the streamed answer; the history keeps the placeholders
+        RedactionVault.Restorer answerRestorer = null;
+        RedactionVault.Restorer reasoningRestorer = null;
+        if (configSettings.isRedactSecrets()) {
+            RedactionVault vault = conversation != null ? conversation.getRedactionVault() : new RedactionVault();
+            int known = vault.size();
+            prompt = Redactor.getInstance().redact(prompt, vault);
+            if (onStatus != null && vault.size() > known) {
+                onStatus.accept(String.format("redacted %d secrets", vault.size() - known));
+            }
+            answerRestorer = vault.restorer(onChunk, format != null);
+            onChunk = answerRestorer;
+            if (onReasoning != null) {
+                reasoningRestorer = vault.restorer(onReasoning, false);
+                onReasoning = reasoningRestorer;
+            }
+        }
+
         JsonObject jsonRequest = new JsonObject();
-        jsonRequest.addProperty("model", configSettings.getModel());
+        jsonRequest.addProperty("model", model);
         jsonRequest.addProperty("stream", true);
+        addKeepAlive(jsonRequest);
+        addThink(jsonRequest, model);
+        if (format != null) {
+            jsonRequest.add("format", format);
+        }
 
         JsonArray messages = new JsonArray();
 
@@ -74,10 +239,18 @@ public class OllamaClient {
             messages.add(systemMessage);
         }
 
-        if (!isAnalysis && !messageHistory.isEmpty()) {
-            for (JsonObject message : messageHistory) {
-                JsonObject messageCopy = message.deepCopy();
-                messages.add(messageCopy);
+        // Right after the system prompt and the same on every turn, so it stays inside the cached prompt prefix
+        String knowledge = conversation != null ? conversation.getKnowledgePrefix() : null;
+        if (knowledge != null && !knowledge.isEmpty()) {
+            JsonObject knowledgeMessage = new JsonObject();
+            knowledgeMessage.addProperty("role", "system");
+            knowledgeMessage.addProperty("content", knowledge);
+            messages.add(knowledgeMessage);
+        }
+
+        if (conversation != null) {
+            for (JsonObject message : conversation.getMessages()) {
+                messages.add(message);
             }
         }
 
@@ -96,65 +269,396 @@ public class OllamaClient {
         messages.add(userMessage);
         jsonRequest.add("messages", messages);
 
-        String jsonBody = gson.toJson(jsonRequest);
-        RequestBody requestBody = RequestBody.create(jsonBody, MediaType.get("application/json"));
+        TokenEstimator estimator = TokenEstimator.forModel(model);
+        int promptTokens = 0;
+        for (var message : messages) {
+            promptTokens += estimator.estimate(message.getAsJsonObject().get("content").getAsString())
+                + TokenEstimator.MESSAGE_OVERHEAD_TOKENS;
+        }
 
-        Request.Builder requestBuilder = new Request.Builder()
-            .url(url)
-            .post(requestBody);
+        // Only interactive free-form answers may shrink the context; side calls reuse it when it fits
+        addOptions(jsonRequest, model, promptTokens, priority == AdmissionController.Priority.INTERACTIVE && format == null, onStatus);
 
-        for (ConfigSettings.CustomHeader header : configSettings.getCustomHeaders()) {
-            if (header.getName() != null && !header.getName().trim().isEmpty()) {
-                requestBuilder.addHeader(header.getName().trim(), header.getValue());
+        PreparedRequest prepared = new PreparedRequest(gson.toJson(jsonRequest), promptTokens, backend, model, pinned, priority);
+        buildEvent.end();
+        if (buildEvent.shouldCommit()) {
+            buildEvent.model = model;
+            buildEvent.messages = messages.size();
+            buildEvent.promptTokens = promptTokens;
+            buildEvent.bodyBytes = prepared.utf8().length;
+            buildEvent.commit();
+        }
+        ReasoningFilter filter = new ReasoningFilter(onChunk, onReasoning);
+        try {
+            if (pinned) {
+                execute(prepared, filter, onStatus);
+            } else {
+                // Identical requests already streaming are joined instead of generated twice
+                singleFlight.execute(prepared.jsonBody, filter, onStatus,
+                    (delivered, chunk) -> executeFrom(prepared, delivered, chunk, onStatus));
             }
+        } catch (StreamTimeoutException e) {
+            // Keep what was already shown so a follow-up question can refer to it
+            filter.finish();
+            finishRestorers(answerRestorer, reasoningRestorer);
+            if (conversation != null && !filter.getAnswer().isEmpty()) {
+                conversation.addTurn(userMessage, filter.getAnswer() + "\n[answer cut off: " + e.getMessage() + "]");
+            }
+            throw e;
         }
+        filter.finish();
+        finishRestorers(answerRestorer, reasoningRestorer);
 
-        Request request = requestBuilder.build();
-        StringBuilder fullResponse = new StringBuilder();
+        // Reasoning is not kept in the history: it would only fill the context of later turns
+        String fullResponse = filter.getAnswer();
+        if (conversation != null && fullResponse.length() > 0) {
+            conversation.addTurn(userMessage, fullResponse);
+        }
+        return prepared;
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("Unexpected response code: " + response.code() + "\nError: " + errorBody);
+    private static void finishRestorers(RedactionVault.Restorer answerRestorer, RedactionVault.Restorer reasoningRestorer) {
+        if (reasoningRestorer != null) {
+            reasoningRestorer.finish();
+        }
+        if (answerRestorer != null) {
+            answerRestorer.finish();
+        }
+    }
+
+    private String execute(PreparedRequest prepared, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        List<String> configured = configSettings.getBackends();
+        if (prepared.pinned) {
+            String backend = prepared.backend != null ? prepared.backend : configured.get(0);
+            if (!circuitBreaker.allowRequest(backend)) {
+                throw new CircuitOpenException(backend, circuitBreaker.retryInMillis(backend));
+            }
+            return stream(backend, prepared, onChunk, onStatus, null);
+        }
+
+        // Backends with an open circuit are skipped, so the next healthy one becomes the primary
+        List<String> backends = new ArrayList<>();
+        for (String backend : configured) {
+            if (circuitBreaker.allowRequest(backend)) {
+                backends.add(backend);
+            }
+        }
+        String wanted = prepared.backend != null ? prepared.backend : configured.get(0);
+        if (backends.isEmpty()) {
+            throw new CircuitOpenException(wanted, circuitBreaker.retryInMillis(wanted));
+        }
+        if (backends.remove(wanted)) {
+            backends.add(0, wanted);
+        } else if (onStatus != null) {
+            onStatus.accept(wanted + " unavailable, using " + backends.get(0));
+        }
+
+        // Background work never hedges: a duplicate would take a second slot from interactive requests
+        if (prepared.priority == AdmissionController.Priority.BACKGROUND) {
+            return streamResumable(backends.get(0), prepared, onChunk, onStatus);
+        }
+        if (!configSettings.isHedgingEnabled() || backends.size() < 2) {
+            return stream(backends.get(0), prepared, onChunk, onStatus, null);
+        }
+        return executeHedged(backends, prepared, onChunk, onStatus);
+    }
+
+    // Sends the request to a second backend when the first one is slower to produce a token than it usually is
+    private String executeHedged(List<String> backends, PreparedRequest prepared, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        String primary = backends.get(0);
+        String model = prepared.model;
+        requestCount.incrementAndGet();
+
+        HedgeRace race = new HedgeRace(prepared, onChunk);
+        HedgeRace.Attempt primaryAttempt = race.start(primary, onStatus);
+
+        long hedgeDelay = latencyTracker.timeToFirstTokenPercentile(primary, model, configSettings.getHedgePercentile());
+        try {
+            if (hedgeDelay > 0 && !race.awaitFirstChunk(hedgeDelay) && !primaryAttempt.isDone() && tryReserveHedge()) {
+                String secondary = pickSecondary(backends, primary);
+                if (onStatus != null) {
+                    onStatus.accept("no token after " + hedgeDelay + " ms, hedging to " + secondary);
+                }
+                race.start(secondary, null);
+            }
+
+            String result = race.awaitResult();
+            if (race.winner() != null && race.winner() != primaryAttempt) {
+                hedgeWins.incrementAndGet();
+            }
+            return result;
+        } catch (InterruptedException e) {
+            race.cancelAll();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        }
+    }
+
+    private boolean tryReserveHedge() {
+        // Hedges may never exceed the configured share of requests, so a slow cluster is not flooded with duplicates
+        while (true) {
+            long hedges = hedgeCount.get();
+            if (hedges + 1 > requestCount.get() * configSettings.getHedgeBudgetPercent() / 100.0) {
+                return false;
+            }
+            if (hedgeCount.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private String pickSecondary(List<String> backends, String primary) {
+        String best = null;
+        int bestInFlight = Integer.MAX_VALUE;
+        for (String backend : backends) {
+            if (backend.equals(primary)) {
+                continue;
             }
+            int inFlight = admissionController.getInFlight(backend);
+            if (inFlight < bestInFlight) {
+                best = backend;
+                bestInFlight = inFlight;
+            }
+        }
+        return best;
+    }
+
+    private String stream(String backend, PreparedRequest prepared, Consumer<String> onChunk, Consumer<String> onStatus, Consumer<Call> onCall) throws IOException {
+        boolean compress = configSettings.isCompressRequests() && prepared.utf8().length >= MIN_COMPRESSED_BODY_BYTES;
+        RequestBody requestBody = RequestBody.create(compress ? prepared.gzipped() : prepared.utf8(), MediaType.get("application/json"));
+        WireStats.CallStats wire = wireStats.new CallStats(prepared.utf8().length);
+
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(backend + configSettings.getChatApiEndpoint())
+            .post(requestBody)
+            .tag(WireStats.CallStats.class, wire);
+        if (compress) {
+            requestBuilder.header("Content-Encoding", "gzip");
+        }
+        addCustomHeaders(requestBuilder);
 
-            ResponseBody body = response.body();
-            if (body == null) {
-                throw new IOException("Empty response from server");
+        Request request = requestBuilder.build();
+        StringBuilder fullResponse = new StringBuilder();
+        String model = prepared.model;
+        ChatEvents.Completion completion = new ChatEvents.Completion();
+        completion.begin();
+        long admissionNanos = System.nanoTime();
+        String outcome = ChatEvents.FAILED;
+        Call call = null;
+        ChatEvents.ChunkBatcher batcher = new ChatEvents.ChunkBatcher(backend);
+
+        // Wait for a slot on the backend before opening the connection, so the read timeout only covers generation
+        try (AdmissionController.Permit permit = admissionController.acquire(
+                backend, configSettings.getUserId(), prepared.promptTokens, prepared.priority, onStatus)) {
+            call = streamClientFor(backend).newCall(request);
+            if (onCall != null) {
+                onCall.accept(call);
             }
+            permit.onPreempt(call::cancel);
+            long startNanos = System.nanoTime();
+            completion.queued = startNanos - admissionNanos;
+            ChatEvents.FirstByte firstByte = new ChatEvents.FirstByte();
+            firstByte.begin();
 
-            try (BufferedReader reader = new BufferedReader(body.charStream())) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.trim().isEmpty()) {
-                        continue;
+            try (StreamWatchdog.Watch watch = watchdog.watch(backend, model, prepared.promptTokens, call);
+                 Response response = executeWatched(backend, call, watch, fullResponse)) {
+                firstByte.headers = System.nanoTime() - startNanos;
+                if (!response.isSuccessful()) {
+                    // Client errors such as an unknown model say nothing about the health of the server
+                    if (response.code() >= 500) {
+                        circuitBreaker.recordFailure(backend, false);
+                    } else {
+                        circuitBreaker.recordSuccess(backend);
                     }
+                    String errorBody = response.body() != null ? response.body().string() : "No error details";
+                    throw new IOException("Unexpected response code: " + response.code() + "\nError: " + errorBody);
+                }
+                circuitBreaker.recordSuccess(backend);
+                if (onStatus != null) {
+                    onStatus.accept("prompt sent to " + backend + ": " + wire.describeUpload());
+                }
+
+                ResponseBody body = response.body();
+                if (body == null) {
+                    throw new IOException("Empty response from server");
+                }
 
-                    try {
-                        JsonObject jsonResponse = gson.fromJson(line, JsonObject.class);
-                        if (jsonResponse.has("message")) {
-                            JsonObject messageObj = jsonResponse.getAsJsonObject("message");
-                            if (messageObj.has("content")) {
-                                String content = messageObj.get("content").getAsString();
-                                if (content != null && !content.isEmpty()) {
-                                    onChunk.accept(content);
-                                    fullResponse.append(content);
+                try (BufferedReader reader = new BufferedReader(body.charStream())) {
+                    String line;
+                    boolean thinking = false;
+                    while ((line = readWatched(backend, call, reader, watch, fullResponse)) != null) {
+                        if (line.trim().isEmpty()) {
+                            continue;
+                        }
+
+                        String content = null;
+                        try {
+                            JsonObject jsonResponse = gson.fromJson(line, JsonObject.class);
+                            if (jsonResponse.has("message")) {
+                                JsonObject messageObj = jsonResponse.getAsJsonObject("message");
+                                String thought = messageObj.has("thinking") ? messageObj.get("thinking").getAsString() : "";
+                                String text = messageObj.has("content") ? messageObj.get("content").getAsString() : "";
+                                // Separately reported reasoning is put back in tags so one filter handles both forms
+                                if (!thought.isEmpty()) {
+                                    content = (thinking ? "" : ReasoningFilter.OPEN_TAG) + thought;
+                                    thinking = true;
+                                }
+                                if (!text.isEmpty()) {
+                                    content = (content != null ? content : "")
+                                        + (thinking ? ReasoningFilter.CLOSE_TAG : "") + text;
+                                    thinking = false;
+                                }
+                            }
+                            if (jsonResponse.has("eval_count") && jsonResponse.has("eval_duration")) {
+                                prepared.evalCount = jsonResponse.get("eval_count").getAsInt();
+                                prepared.evalDurationNanos = jsonResponse.get("eval_duration").getAsLong();
+                            }
+                        } catch (Exception e) {
+                            System.err.println("Error parsing response line: " + e.getMessage());
+                        }
+
+                        if (content != null && !content.isEmpty()) {
+                            if (fullResponse.length() == 0) {
+                                latencyTracker.recordTimeToFirstToken(backend, model,
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                                firstByte.end();
+                                if (firstByte.shouldCommit()) {
+                                    firstByte.backend = backend;
+                                    firstByte.model = model;
+                                    firstByte.promptTokens = prepared.promptTokens;
+                                    firstByte.commit();
                                 }
                             }
+                            watch.onToken();
+                            onChunk.accept(content);
+                            fullResponse.append(content);
+                            batcher.onChunk(content);
                         }
-                    } catch (Exception e) {
-                        System.err.println("Error parsing response line: " + e.getMessage());
                     }
                 }
+                watch.onComplete();
+                outcome = ChatEvents.COMPLETED;
+            } catch (IOException e) {
+                if (permit.isPreempted()) {
+                    outcome = ChatEvents.PREEMPTED;
+                    throw new PreemptedException(backend, fullResponse.toString());
+                }
+                if (e instanceof StreamTimeoutException) {
+                    outcome = ChatEvents.TIMED_OUT;
+                } else if (call.isCanceled()) {
+                    outcome = ChatEvents.CANCELLED;
+                }
+                throw e;
+            }
+        } finally {
+            batcher.flush();
+            completion.end();
+            if (completion.shouldCommit()) {
+                completion.backend = backend;
+                completion.model = model;
+                completion.outcome = outcome;
+                completion.priority = prepared.priority.toString();
+                completion.promptTokens = prepared.promptTokens;
+                completion.evalCount = prepared.evalCount;
+                completion.characters = fullResponse.length();
+                completion.sentBytes = wire.getSent();
+                completion.receivedBytes = wire.getReceived();
+                completion.commit();
             }
         }
 
-        if (!isAnalysis && fullResponse.length() > 0) {
-            messageHistory.add(userMessage.deepCopy());
-            JsonObject assistantMessage = new JsonObject();
-            assistantMessage.addProperty("role", "assistant");
-            assistantMessage.addProperty("content", fullResponse.toString());
-            messageHistory.add(assistantMessage.deepCopy());
+        return fullResponse.toString();
+    }
+
+    // Continues an identical generation whose caller gave up after `delivered` was streamed, the way
+    // streamResumable continues after a preemption
+    private String executeFrom(PreparedRequest prepared, String delivered, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        if (delivered.isEmpty()) {
+            return execute(prepared, onChunk, onStatus);
+        }
+        String closed = "";
+        if (delivered.lastIndexOf(ReasoningFilter.OPEN_TAG) > delivered.lastIndexOf(ReasoningFilter.CLOSE_TAG)) {
+            closed = ReasoningFilter.CLOSE_TAG;
+            onChunk.accept(closed);
+        }
+        ReasoningFilter seen = new ReasoningFilter(text -> { }, null);
+        seen.accept(delivered);
+        PreparedRequest current = seen.getAnswer().isEmpty() ? prepared : prepared.continuation(seen.getAnswer());
+        return closed + execute(current, onChunk, onStatus);
+    }
+
+    // Streams a background request and, each time an interactive request takes its slot, queues the rest of
+    // the answer again as a continuation of what was already delivered
+    private String streamResumable(String backend, PreparedRequest prepared, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        StringBuilder delivered = new StringBuilder();
+        // Tracks the answer so far; reasoning is not resent, the continuation picks up the answer
+        ReasoningFilter seen = new ReasoningFilter(text -> { }, null);
+        Consumer<String> tee = chunk -> {
+            seen.accept(chunk);
+            onChunk.accept(chunk);
+        };
+        PreparedRequest current = prepared;
+        while (true) {
+            try {
+                return delivered + stream(backend, current, tee, onStatus, null);
+            } catch (PreemptedException e) {
+                String partial = e.getPartialResponse();
+                delivered.append(partial);
+                if (partial.lastIndexOf(ReasoningFilter.OPEN_TAG) > partial.lastIndexOf(ReasoningFilter.CLOSE_TAG)) {
+                    // Cut off while reasoning: close the block so the answer of the next attempt is not taken for more of it
+                    tee.accept(ReasoningFilter.CLOSE_TAG);
+                    delivered.append(ReasoningFilter.CLOSE_TAG);
+                }
+                current = seen.getAnswer().isEmpty() ? prepared : prepared.continuation(seen.getAnswer());
+                if (onStatus != null) {
+                    onStatus.accept("paused for an interactive request, resuming");
+                }
+            }
+        }
+    }
+
+    private Response executeWatched(String backend, Call call, StreamWatchdog.Watch watch, StringBuilder received) throws IOException {
+        try {
+            return call.execute();
+        } catch (IOException e) {
+            throw streamFailure(backend, call, watch, received, e, true);
+        }
+    }
+
+    private String readWatched(String backend, Call call, BufferedReader reader, StreamWatchdog.Watch watch, StringBuilder received) throws IOException {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw streamFailure(backend, call, watch, received, e, false);
+        }
+    }
+
+    // A call cancelled by the watchdog fails with a plain IOException; report which deadline was missed instead.
+    // Calls cancelled by a hedge or by the user are not held against the backend; getting no response at all
+    // (refused, unresolvable or timed-out connection) opens the circuit straight away.
+    private IOException streamFailure(String backend, Call call, StreamWatchdog.Watch watch, StringBuilder received, IOException e, boolean beforeResponse) {
+        if (watch.expired() != null) {
+            circuitBreaker.recordFailure(backend, false);
+            return new StreamTimeoutException(watch.expired(), received.toString());
+        }
+        if (!call.isCanceled()) {
+            circuitBreaker.recordFailure(backend, beforeResponse);
+        }
+        return e;
+    }
+
+    // Cheapest request Ollama answers; used to probe backends with an open circuit
+    private void ping(String backend) throws IOException {
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(backend + "/api/tags")
+            .get();
+        addCustomHeaders(requestBuilder);
+
+        OkHttpClient probeClient = client.newBuilder().callTimeout(5, TimeUnit.SECONDS).build();
+        try (Response response = probeClient.newCall(requestBuilder.build()).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected response code: " + response.code());
+            }
         }
     }
 
@@ -179,7 +683,519 @@ public class OllamaClient {
     }
 
     public void analyzeRequest(String request, String response, String question, List<String> base64Images, Consumer<String> onChunk) throws IOException {
+        analyzeRequest(request, response, question, base64Images, onChunk, null);
+    }
+
+    public void analyzeRequest(String request, String response, String question, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        analyzeRequest(defaultConversation, request, response, question, base64Images, onChunk, onStatus);
+    }
+
+    public void analyzeRequest(Conversation conversation, String request, String response, String question, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onStatus) throws IOException {
+        analyzeRequest(conversation, request, response, question, base64Images, onChunk, null, onStatus);
+    }
+
+    public void analyzeRequest(Conversation conversation, String request, String response, String question, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onReasoning, Consumer<String> onStatus) throws IOException {
+        String prompt = analysisPrompt(conversation, request, response, question, onStatus);
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+
+        if (!conversation.isPendingDelta() && exceedsContext(conversation, systemPrompt, prompt)) {
+            int historyTokens = conversation.estimateHistoryTokens(TokenEstimator.forModel(configSettings.getModel()));
+            String merged = mapReducePrompt(request, response, question, systemPrompt, historyTokens,
+                AdmissionController.Priority.INTERACTIVE, redactionVault(conversation), onStatus);
+            if (merged != null) {
+                conversation.forgetHttpMessages();
+                prompt = merged;
+            }
+        }
+        
+        StringBuilder ignored = new StringBuilder();
+        chat(conversation, prompt, systemPrompt, base64Images, onChunk != null ? onChunk : ignored::append, onReasoning, onStatus);
+    }
+
+    // Free-form generation without history or the analysis system prompt, e.g. Intruder payloads
+    public void generate(String prompt, String systemPrompt, Consumer<String> onChunk) throws IOException {
+        chatInBackground(prompt, systemPrompt, onChunk, null, null);
+    }
+
+    // One-off analysis that neither reads nor extends the chat history, used for batch work
+    public String analyze(String request, String response, String question) throws IOException {
+        String prompt = buildAnalysisPrompt(request, response, question);
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+        RedactionVault vault = null;
+        if (exceedsContext(null, systemPrompt, prompt)) {
+            vault = redactionVault(null);
+            String merged = mapReducePrompt(request, response, question, systemPrompt, 0,
+                AdmissionController.Priority.BACKGROUND, vault, null);
+            if (merged != null) {
+                prompt = merged;
+            }
+        }
+
+        StringBuilder fullResponse = new StringBuilder();
+        chatInBackground(prompt, systemPrompt, fullResponse::append, null, null);
+        // The merged prompt carries this vault's placeholders, which the final call cannot restore
+        return vault != null ? vault.restore(fullResponse.toString()) : fullResponse.toString();
+    }
+
+    // Constrains the answer to the findings schema and reports each finding as soon as its JSON object is complete
+    public List<Finding> analyzeFindings(Conversation conversation, String request, String response, String question, List<String> base64Images, Consumer<Finding> onFinding, Consumer<String> onStatus) throws IOException {
+        String prompt = analysisPrompt(conversation, request, response, question + FINDINGS_INSTRUCTION, onStatus);
+        return findings(conversation, prompt, base64Images, onFinding, onStatus);
+    }
+
+    // Asks for test requests instead of an answer and hands out each one as soon as its JSON object is complete,
+    // so they can be sent while the model is still writing the rest; variants beyond maxVariants are dropped
+    public List<TestVariant> proposeVariants(Conversation conversation, String request, String response, String question, int maxVariants, Consumer<TestVariant> onVariant, Consumer<String> onStatus) throws IOException {
+        String prompt = analysisPrompt(conversation, request, response, question + String.format(VARIANTS_INSTRUCTION, maxVariants), onStatus);
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+
+        List<TestVariant> variants = new ArrayList<>();
+        JsonArrayStreamParser<TestVariant> parser = new JsonArrayStreamParser<>("variants", TestVariant.class, variant -> {
+            if (variants.size() < maxVariants) {
+                variants.add(variant);
+                if (onVariant != null) {
+                    onVariant.accept(variant);
+                }
+            }
+        });
+        chatInternal(conversation, prompt, systemPrompt, null, parser, null, onStatus, TestVariant.responseSchema(), null);
+        return variants;
+    }
+
+    // Folds one exchange into the notes about a host; runs as background work with a schema-constrained answer.
+    // Secrets are redacted without being restored, and placeholders are masked in the notes, so no secret
+    // and no placeholder a later chat could resolve to a different value is stored.
+    public List<String> updateKnowledge(String host, List<String> facts, String question, String answer, int maxTokens) throws IOException {
+        if (answer.length() > MAX_KNOWLEDGE_ANSWER_CHARS) {
+            answer = answer.substring(0, MAX_KNOWLEDGE_ANSWER_CHARS) + "\n[...]";
+        }
+        String prompt = String.format(KNOWLEDGE_INSTRUCTION, host, maxTokens,
+            facts.isEmpty() ? "(none yet)" : "- " + String.join("\n- ", facts), question, answer);
+        if (configSettings.isRedactSecrets()) {
+            prompt = Redactor.getInstance().redact(prompt, new RedactionVault());
+        }
+
+        StringBuilder json = new StringBuilder();
+        chatInternal(null, prompt, "", null, json::append, null, null, knowledgeSchema(), null,
+            null, false, AdmissionController.Priority.BACKGROUND);
+        List<String> updated = new ArrayList<>();
+        try {
+            JsonObject result = JsonParser.parseString(json.toString()).getAsJsonObject();
+            for (var fact : result.getAsJsonArray("facts")) {
+                String text = RedactionVault.maskPlaceholders(fact.getAsString()).trim();
+                if (!text.isEmpty()) {
+                    updated.add(text);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Unreadable notes from the model: " + e.getMessage());
+        }
+        return updated;
+    }
+
+    private static JsonObject knowledgeSchema() {
+        JsonObject item = new JsonObject();
+        item.addProperty("type", "string");
+        JsonObject facts = new JsonObject();
+        facts.addProperty("type", "array");
+        facts.add("items", item);
+        JsonObject properties = new JsonObject();
+        properties.add("facts", facts);
+        JsonArray required = new JsonArray();
+        required.add("facts");
+        JsonObject schema = new JsonObject();
+        schema.addProperty("type", "object");
+        schema.add("properties", properties);
+        schema.add("required", required);
+        return schema;
+    }
+
+    // Asks about a selected range only, sent with the minimal envelope built by SelectionEnvelope
+    public void analyzeSelection(Conversation conversation, String envelope, String question, List<String> base64Images, Consumer<String> onChunk, Consumer<String> onReasoning, Consumer<String> onStatus) throws IOException {
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+        chat(conversation, buildSelectionPrompt(envelope, question), systemPrompt, base64Images, onChunk, onReasoning, onStatus);
+    }
+
+    // Asks about a WebSocket conversation, sent with the window of frames picked by FrameWindow
+    public void analyzeWebSocket(Conversation conversation, String window, String question, Consumer<String> onChunk, Consumer<String> onReasoning, Consumer<String> onStatus) throws IOException {
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+        chat(conversation, buildWebSocketPrompt(window, question), systemPrompt, null, onChunk, onReasoning, onStatus);
+    }
+
+    // Streams the same prompt from every target at once on the shared stream threads and blocks until all
+    // have finished. Each target is pinned to its server, so no hedge or failover blurs its numbers, and
+    // nothing is added to any conversation.
+    public void compare(String prompt, List<String> base64Images, List<ModelComparison.Target> targets, ModelComparison.Listener listener) {
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            int index = i;
+            ModelComparison.Target target = targets.get(i);
+            futures.add(streamExecutor.submit(() -> compareTarget(index, target, prompt, systemPrompt, base64Images, listener)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error comparing models: " + e.getCause());
+        }
+    }
+
+    private void compareTarget(int index, ModelComparison.Target target, String prompt, String systemPrompt, List<String> base64Images, ModelComparison.Listener listener) {
+        long startNanos = System.nanoTime();
+        AtomicLong firstTokenNanos = new AtomicLong();
+        StringBuilder generated = new StringBuilder();
+        // Reasoning counts as generated output: it is what a thinking model spends its time on
+        Consumer<String> onReasoning = chunk -> {
+            firstTokenNanos.compareAndSet(0, System.nanoTime());
+            synchronized (generated) {
+                generated.append(chunk);
+            }
+        };
+        Consumer<String> onChunk = chunk -> {
+            onReasoning.accept(chunk);
+            listener.onChunk(index, chunk);
+        };
+
+        PreparedRequest prepared = null;
+        IOException error = null;
+        try {
+            prepared = chatInternal(null, prompt, systemPrompt, base64Images, onChunk, onReasoning,
+                status -> listener.onStatus(index, status), null, target.getBackend(), target.getModel(), true,
+                AdmissionController.Priority.INTERACTIVE);
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e.getMessage(), e);
+        }
+
+        long endNanos = System.nanoTime();
+        long firstToken = firstTokenNanos.get();
+        long ttftMillis = firstToken != 0 ? TimeUnit.NANOSECONDS.toMillis(firstToken - startNanos) : -1;
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+        ModelComparison.Result result;
+        if (prepared != null && prepared.evalCount >= 0) {
+            result = new ModelComparison.Result(ttftMillis, totalMillis, prepared.evalCount, prepared.evalDurationNanos, true);
+        } else {
+            int tokens;
+            synchronized (generated) {
+                tokens = TokenEstimator.forModel(target.getModel()).estimate(generated.toString());
+            }
+            result = new ModelComparison.Result(ttftMillis, totalMillis, tokens, firstToken != 0 ? endNanos - firstToken : 0, false);
+        }
+        listener.onComplete(index, result, error);
+    }
+
+    public List<Finding> analyzeSelectionFindings(Conversation conversation, String envelope, String question, List<String> base64Images, Consumer<Finding> onFinding, Consumer<String> onStatus) throws IOException {
+        return findings(conversation, buildSelectionPrompt(envelope, question + FINDINGS_INSTRUCTION), base64Images, onFinding, onStatus);
+    }
+
+    private List<Finding> findings(Conversation conversation, String prompt, List<String> base64Images, Consumer<Finding> onFinding, Consumer<String> onStatus) throws IOException {
+        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
+
+        List<Finding> findings = new ArrayList<>();
+        JsonArrayStreamParser<Finding> parser = new JsonArrayStreamParser<>("findings", Finding.class, finding -> {
+            findings.add(finding);
+            if (onFinding != null) {
+                onFinding.accept(finding);
+            }
+        });
+        chatInternal(conversation, prompt, systemPrompt, base64Images, parser, null, onStatus, Finding.responseSchema(), null);
+        return findings;
+    }
+
+    // Whether the prompt and the history sent with it leave no room for the answer in the model's context
+    private boolean exceedsContext(Conversation conversation, String systemPrompt, String prompt) {
+        if (!configSettings.isChunkedAnalysis()) {
+            return false;
+        }
+        String model = configSettings.getModel();
+        TokenEstimator estimator = TokenEstimator.forModel(model);
+        int tokens = estimator.estimate(systemPrompt) + estimator.estimate(prompt) + 2 * TokenEstimator.MESSAGE_OVERHEAD_TOKENS
+            + (conversation != null ? conversation.estimateHistoryTokens(estimator) : 0);
+        return tokens + answerReserve(model) > contextLimit(model);
+    }
+
+    private int contextLimit(String model) {
+        ConfigSettings.GenerationProfile profile = configSettings.getGenerationProfile(model);
+        if (!profile.isAutoContext()) {
+            return profile.getNumCtx();
+        }
+        int modelLimit = getContextLength(model);
+        return modelLimit > 0 ? modelLimit : UNKNOWN_CONTEXT_LIMIT;
+    }
+
+    private int answerReserve(String model) {
+        int numPredict = configSettings.getGenerationProfile(model).getNumPredict();
+        return numPredict > 0 ? numPredict : ContextSizer.DEFAULT_ANSWER_RESERVE;
+    }
+
+    // Map-reduce over a response body too large for the context: each structural chunk is analyzed on its own,
+    // spread over the usable backends, and the notes are merged into a prompt that fits. Returns that prompt,
+    // or null when even the request and headers leave no room for a useful chunk.
+    // With a vault, the messages and question are redacted with it up front. The chunk and condense calls then
+    // find no secret of their own to restore, so their notes, and the prompt built from them, keep the
+    // placeholders; only the final answer is restored, by whoever holds the vault.
+    private String mapReducePrompt(String request, String response, String question, String systemPrompt, int historyTokens, AdmissionController.Priority priority, RedactionVault vault, Consumer<String> onStatus) throws IOException {
+        if (vault != null) {
+            request = Redactor.getInstance().redact(request, vault);
+            response = Redactor.getInstance().redact(response, vault);
+            question = Redactor.getInstance().redact(question, vault);
+        }
+        String model = configSettings.getModel();
+        TokenEstimator estimator = TokenEstimator.forModel(model);
+        int headerEnd = headerEnd(response);
+        String headers = response.substring(0, headerEnd).trim();
+        String body = response.substring(headerEnd);
+
+        int available = contextLimit(model) - answerReserve(model) - estimator.estimate(systemPrompt)
+            - estimator.estimate(question) - CHUNK_PROMPT_OVERHEAD_TOKENS;
+        int chunkTokens = available - estimator.estimate(request) - estimator.estimate(headers);
+        if (chunkTokens < MIN_CHUNK_TOKENS) {
+            if (onStatus != null) {
+                onStatus.accept("request too large to analyze the response in chunks; it will be truncated");
+            }
+            return null;
+        }
+
+        List<ResponseChunker.Chunk> chunks = new ResponseChunker(chunkTokens, estimator).split(body);
+        int total = chunks.size();
+        if (total > configSettings.getMaxAnalysisChunks()) {
+            chunks = chunks.subList(0, configSettings.getMaxAnalysisChunks());
+            if (onStatus != null) {
+                onStatus.accept(String.format("response needs %d chunks, analyzing the first %d", total, chunks.size()));
+            }
+        }
+
+        List<String> notes = mapChunks(chunks, total, request, headers, question, systemPrompt, priority, onStatus);
+        if (chunks.size() < total) {
+            notes.add(String.format("[Parts %d-%d were not analyzed (chunk limit)]", chunks.size() + 1, total));
+        }
+
+        // Merge notes in groups until the final prompt fits next to the history
+        int notesBudget = available - historyTokens - estimator.estimate(request) - estimator.estimate(headers);
+        while (notes.size() > 1 && estimator.estimate(String.join("\n\n", notes)) > notesBudget) {
+            if (onStatus != null) {
+                onStatus.accept(String.format("condensing notes of %d chunks", notes.size()));
+            }
+            notes = condenseNotes(notes, question, systemPrompt, available, estimator, priority);
+        }
+
+        if (onStatus != null) {
+            onStatus.accept(String.format("merging findings of %d chunks", total));
+        }
+        return String.format("""
+            The body of the HTTP response below was too large for the context window, so it was split into %d parts
+            that were analyzed separately. These are the notes taken from each part.
+
+            HTTP Request:
+            %s
+
+            HTTP Response headers:
+            %s
+
+            %s
+
+            Question: %s
+            Answer the question from these notes as if you had read the whole response: merge duplicates,
+            keep exact values and name the part each finding comes from.
+            """, total, request, headers, String.join("\n\n", notes), question);
+    }
+
+    private List<String> mapChunks(List<ResponseChunker.Chunk> chunks, int total, String request, String headers, String question, String systemPrompt, AdmissionController.Priority priority, Consumer<String> onStatus) throws IOException {
+        List<String> backends = new ArrayList<>();
+        for (String backend : configSettings.getBackends()) {
+            if (circuitBreaker.allowRequest(backend)) {
+                backends.add(backend);
+            }
+        }
+        if (backends.isEmpty()) {
+            backends.add(configSettings.getOllamaServer());
+        }
+        // Admission control still limits each backend; this only avoids parking a thread per chunk in its queue
+        int parallelism = backends.size() * configSettings.getMaxInFlightPerBackend();
+
+        String[] notes = new String[chunks.size()];
+        AtomicReference<IOException> firstFailure = new AtomicReference<>();
+        ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(streamExecutor);
+        List<Future<Integer>> futures = new ArrayList<>();
+        int submitted = 0;
+        int finished = 0;
+        try {
+            while (finished < chunks.size()) {
+                while (submitted < chunks.size() && submitted - finished < parallelism) {
+                    int index = submitted++;
+                    ResponseChunker.Chunk chunk = chunks.get(index);
+                    String backend = backends.get(index % backends.size());
+                    String part = String.format("chunk %d/%d (%s)", index + 1, total, chunk.getLabel());
+                    if (onStatus != null) {
+                        onStatus.accept("analyzing " + part + " on " + backend);
+                    }
+                    futures.add(completion.submit(() -> {
+                        notes[index] = analyzeChunk(chunk, index, total, request, headers, question, systemPrompt,
+                            backend, part, priority, onStatus, firstFailure);
+                        return index;
+                    }));
+                }
+                completion.take();
+                finished++;
+                if (onStatus != null) {
+                    onStatus.accept(String.format("%d of %d chunks analyzed", finished, chunks.size()));
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while analyzing chunks");
+        }
+
+        List<String> relevant = new ArrayList<>();
+        int failed = 0;
+        for (int i = 0; i < notes.length; i++) {
+            if (notes[i] == null) {
+                failed++;
+            } else if (!notes[i].isBlank() && !notes[i].trim().toUpperCase().startsWith("NONE")) {
+                relevant.add(String.format("[Part %d of %d, %s]%n%s", i + 1, total, chunks.get(i).getLabel(), notes[i].trim()));
+            }
+        }
+        if (failed == notes.length && firstFailure.get() != null) {
+            throw firstFailure.get();
+        }
+        if (failed > 0) {
+            relevant.add(String.format("[%d parts could not be analyzed: %s]", failed, firstFailure.get().getMessage()));
+        }
+        if (relevant.isEmpty()) {
+            relevant.add("[No part contained anything relevant to the question]");
+        }
+        return relevant;
+    }
+
+    // Returns the notes for one chunk, or null when its analysis failed
+    private String analyzeChunk(ResponseChunker.Chunk chunk, int index, int total, String request, String headers, String question, String systemPrompt, String backend, String part, AdmissionController.Priority priority, Consumer<String> onStatus, AtomicReference<IOException> firstFailure) {
         String prompt = String.format("""
+            This is part %d of %d (%s) of the body of a large HTTP response that was split because it does not fit
+            in the context window.
+
+            HTTP Request:
+            %s
+
+            HTTP Response headers:
+            %s
+
+            Response body, part %d of %d:
+            %s
+
+            Question: %s
+            List only what this part shows that is relevant to the question, as short notes quoting exact values.
+            If nothing in this part is relevant, answer exactly: NONE
+            """, index + 1, total, chunk.getLabel(), request, headers, index + 1, total, chunk.getText(), question);
+
+        StringBuilder answer = new StringBuilder();
+        try {
+            chatInternal(null, prompt, systemPrompt, null, answer::append, null,
+                onStatus != null ? status -> {
+                    if (!status.isEmpty()) {
+                        onStatus.accept(part + ": " + status);
+                    }
+                } : null, null, backend, null, false, priority);
+            return answer.toString();
+        } catch (IOException e) {
+            firstFailure.compareAndSet(null, e);
+            System.err.println("Error analyzing " + part + ": " + e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            firstFailure.compareAndSet(null, new IOException("Error analyzing " + part + ": " + e.getMessage(), e));
+            System.err.println("Error analyzing " + part + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private List<String> condenseNotes(List<String> notes, String question, String systemPrompt, int budget, TokenEstimator estimator, AdmissionController.Priority priority) throws IOException {
+        List<String> condensed = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        int groupTokens = 0;
+        for (int i = 0; i <= notes.size(); i++) {
+            int tokens = i < notes.size() ? estimator.estimate(notes.get(i)) : 0;
+            if (i == notes.size() || (groupTokens + tokens > budget && !group.isEmpty())) {
+                if (group.size() == 1) {
+                    condensed.add(group.get(0));
+                } else {
+                    StringBuilder merged = new StringBuilder();
+                    chatInternal(null, String.format("""
+                        These are notes from separate parts of one large HTTP response, taken to answer: %s
+                        Merge them into one shorter list: drop duplicates, keep exact values and the part names.
+
+                        %s
+                        """, question, String.join("\n\n", group)), systemPrompt, null, merged::append, null, null, null, null,
+                        null, false, priority);
+                    condensed.add(merged.toString().trim());
+                }
+                group.clear();
+                groupTokens = 0;
+            }
+            if (i < notes.size()) {
+                group.add(notes.get(i));
+                groupTokens += tokens;
+            }
+        }
+        // Nothing could be grouped any further; sending it as it is beats looping forever
+        return condensed.size() < notes.size() ? condensed : List.of(String.join("\n\n", condensed));
+    }
+
+    private static int headerEnd(String message) {
+        int end = message.indexOf("\r\n\r\n");
+        if (end >= 0) {
+            return end + 4;
+        }
+        end = message.indexOf("\n\n");
+        return end >= 0 ? end + 2 : 0;
+    }
+
+    // Null when secrets are sent as they are
+    private RedactionVault redactionVault(Conversation conversation) {
+        if (!configSettings.isRedactSecrets()) {
+            return null;
+        }
+        return conversation != null ? conversation.getRedactionVault() : new RedactionVault();
+    }
+
+    // The messages are redacted here rather than in chatInternal, so the copies the conversation keeps
+    // to diff later requests against hold placeholders too
+    private String analysisPrompt(Conversation conversation, String request, String response, String question, Consumer<String> onStatus) {
+        RedactionVault vault = conversation.getRedactionVault();
+        int known = vault.size();
+        String prompt = conversation.buildAnalysisPrompt(request, response, question, configSettings.isRedactSecrets());
+        if (onStatus != null && conversation.isPendingDelta()) {
+            onStatus.accept(String.format("delta context: %,d of %,d chars", prompt.length(),
+                request.length() + response.length()));
+        }
+        if (onStatus != null && vault.size() > known) {
+            onStatus.accept(String.format("redacted %d secrets", vault.size() - known));
+        }
+        return prompt;
+    }
+
+    public static String buildSelectionPrompt(String envelope, String question) {
+        return String.format("""
+            %s
+            Question: %s
+            """, envelope, question);
+    }
+
+    public static String buildWebSocketPrompt(String window, String question) {
+        return String.format("""
+            WebSocket messages (">>" marks the selected one):
+            %s
+            Question: %s
+            """, window, question);
+    }
+
+    public static String buildAnalysisPrompt(String request, String response, String question) {
+        return String.format("""
             HTTP Request:
             %s
             
@@ -188,25 +1204,428 @@ public class OllamaClient {
             
             Question: %s
             """, request, response, question);
+    }
 
-        String systemPrompt = configSettings.isUseSystemPrompt() ? configSettings.getSystemPrompt() : "";
-        
-        if (onChunk != null) {
-            chat(prompt, systemPrompt, base64Images, onChunk);
+    // Sending an empty message list makes Ollama load the model without generating anything
+    public void preloadModel(String model) throws IOException {
+        String url = configSettings.getOllamaServer() + configSettings.getChatApiEndpoint();
+
+        JsonObject jsonRequest = new JsonObject();
+        jsonRequest.addProperty("model", model);
+        jsonRequest.addProperty("stream", false);
+        jsonRequest.add("messages", new JsonArray());
+        addKeepAlive(jsonRequest);
+        // Load with the context size the model already has, so neither this nor the next request reloads it
+        addOptions(jsonRequest, model, -1, false, null);
+
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(url)
+            .post(RequestBody.create(gson.toJson(jsonRequest), MediaType.get("application/json")));
+        addCustomHeaders(requestBuilder);
+
+        try (Response response = client.newCall(requestBuilder.build()).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "No error details";
+                throw new IOException("Unexpected response code: " + response.code() + "\nError: " + errorBody);
+            }
+        }
+    }
+
+    public List<String> listLoadedModels() throws IOException {
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(configSettings.getOllamaServer() + "/api/ps")
+            .get();
+        addCustomHeaders(requestBuilder);
+
+        List<String> models = new ArrayList<>();
+        try (Response response = client.newCall(requestBuilder.build()).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Unexpected response code: " + response.code());
+            }
+
+            JsonObject jsonResponse = gson.fromJson(response.body().charStream(), JsonObject.class);
+            if (jsonResponse != null && jsonResponse.has("models")) {
+                for (var element : jsonResponse.getAsJsonArray("models")) {
+                    JsonObject modelObj = element.getAsJsonObject();
+                    if (modelObj.has("name")) {
+                        models.add(modelObj.get("name").getAsString());
+                    }
+                }
+            }
+        }
+        return models;
+    }
+
+    // Maximum context of a model as reported by /api/show, or -1 when unknown
+    public int getContextLength(String model) {
+        Integer cached = contextLengths.get(model);
+        if (cached != null) {
+            return cached;
+        }
+        if (!circuitBreaker.allowRequest(configSettings.getOllamaServer())) {
+            return -1;
+        }
+
+        JsonObject jsonRequest = new JsonObject();
+        jsonRequest.addProperty("model", model);
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(configSettings.getOllamaServer() + "/api/show")
+            .post(RequestBody.create(gson.toJson(jsonRequest), MediaType.get("application/json")));
+        addCustomHeaders(requestBuilder);
+
+        int contextLength = -1;
+        try (Response response = client.newCall(requestBuilder.build()).execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                JsonObject jsonResponse = gson.fromJson(response.body().charStream(), JsonObject.class);
+                if (jsonResponse != null && jsonResponse.has("model_info")) {
+                    for (var entry : jsonResponse.getAsJsonObject("model_info").entrySet()) {
+                        if (entry.getKey().endsWith(".context_length")) {
+                            contextLength = entry.getValue().getAsInt();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            circuitBreaker.recordFailure(configSettings.getOllamaServer(), true);
+            System.err.println("Error reading context length of " + model + ": " + e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            System.err.println("Error reading context length of " + model + ": " + e.getMessage());
+            return -1;
+        }
+
+        // A failed lookup is tried again next time, e.g. once the model has been pulled
+        if (contextLength > 0) {
+            contextLengths.put(model, contextLength);
+        }
+        return contextLength;
+    }
+
+    private void addKeepAlive(JsonObject jsonRequest) {
+        String keepAlive = configSettings.getKeepAlive();
+        if (keepAlive == null || keepAlive.isEmpty()) {
+            return;
+        }
+        // Ollama accepts either a duration string ("30m") or a number of seconds (-1 keeps the model loaded forever)
+        try {
+            jsonRequest.addProperty("keep_alive", Long.parseLong(keepAlive));
+        } catch (NumberFormatException e) {
+            jsonRequest.addProperty("keep_alive", keepAlive);
+        }
+    }
+
+    // A negative promptTokens is a preload, which keeps the model's current context size
+    private void addOptions(JsonObject jsonRequest, String model, int promptTokens, boolean mayShrink, Consumer<String> onStatus) {
+        ConfigSettings.GenerationProfile profile = configSettings.getGenerationProfile(model);
+        JsonObject options = new JsonObject();
+
+        int numCtx;
+        if (!profile.isAutoContext()) {
+            numCtx = profile.getNumCtx();
+        } else if (promptTokens < 0) {
+            numCtx = contextSizer.preloadSize(model, profile.getNumPredict(), getContextLength(model));
         } else {
-            chat(prompt, systemPrompt, base64Images);
+            numCtx = contextSizer.size(model, promptTokens, profile.getNumPredict(), getContextLength(model), mayShrink);
+        }
+        options.addProperty("num_ctx", numCtx);
+        if (promptTokens > numCtx && onStatus != null) {
+            onStatus.accept(String.format("prompt ≈%,d tokens exceeds num_ctx %,d and will be truncated", promptTokens, numCtx));
+        }
+
+        if (profile.getNumPredict() > 0) {
+            options.addProperty("num_predict", profile.getNumPredict());
+        }
+        if (profile.getTemperature() != null) {
+            options.addProperty("temperature", profile.getTemperature());
+        }
+        if (!profile.getStop().isEmpty()) {
+            JsonArray stop = new JsonArray();
+            profile.getStop().forEach(stop::add);
+            options.add("stop", stop);
+        }
+        jsonRequest.add("options", options);
+    }
+
+    private void addThink(JsonObject jsonRequest, String model) {
+        switch (configSettings.getThinkMode(model)) {
+            case ON -> jsonRequest.addProperty("think", true);
+            case OFF -> jsonRequest.addProperty("think", false);
+            default -> {
+                // Leave the model's own behaviour
+            }
+        }
+    }
+
+    private void addCustomHeaders(Request.Builder requestBuilder) {
+        for (ConfigSettings.CustomHeader header : configSettings.getCustomHeaders()) {
+            if (header.getName() != null && !header.getName().trim().isEmpty()) {
+                requestBuilder.addHeader(header.getName().trim(), header.getValue());
+            }
         }
     }
 
     public void clearHistory() {
-        messageHistory.clear();
+        defaultConversation.clear();
     }
 
     public boolean isMultimodalModel() {
         return configSettings.isMultimodalModel();
     }
 
+    public String getHedgeSummary() {
+        return String.format("%d hedged of %d requests, %d won by the hedge",
+            hedgeCount.get(), requestCount.get(), hedgeWins.get());
+    }
+
+    public String getWireSummary() {
+        return wireStats.getSummary();
+    }
+
+    public long getPreemptionCount() {
+        return admissionController.getPreemptionCount();
+    }
+
+    public long getCoalescedCount() {
+        return singleFlight.getJoinedCount();
+    }
+
+    public LatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    // Short description of backends that are not accepting requests, empty when all are healthy
+    public String getCircuitSummary() {
+        List<String> unhealthy = new ArrayList<>();
+        for (Map.Entry<String, CircuitBreaker.State> entry : circuitBreaker.getStates(configSettings.getBackends()).entrySet()) {
+            if (entry.getValue() == CircuitBreaker.State.OPEN) {
+                unhealthy.add(String.format("%s down (retry in %d s)", entry.getKey(),
+                    (circuitBreaker.retryInMillis(entry.getKey()) + 999) / 1000));
+            } else if (entry.getValue() == CircuitBreaker.State.HALF_OPEN) {
+                unhealthy.add(entry.getKey() + " probing");
+            }
+        }
+        return String.join(", ", unhealthy);
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
     public ConfigSettings getConfigSettings() {
         return configSettings;
     }
-} 
\ No newline at end of file
+
+    // Serialized request body together with what was learned about it while building it
+    private static class PreparedRequest {
+        private final String jsonBody;
+        private final int promptTokens;
+        private final String backend;
+        private final String model;
+        private final boolean pinned;
+        private final AdmissionController.Priority priority;
+        // Counts from the final line of the stream, when the server reported them
+        private volatile int evalCount = -1;
+        private volatile long evalDurationNanos;
+        private byte[] utf8;
+        private byte[] gzipped;
+
+        PreparedRequest(String jsonBody, int promptTokens, String backend, String model, boolean pinned, AdmissionController.Priority priority) {
+            this.jsonBody = jsonBody;
+            this.promptTokens = promptTokens;
+            this.backend = backend;
+            this.model = model;
+            this.pinned = pinned;
+            this.priority = priority;
+        }
+
+        // The same request with the answer so far as a final assistant message, which Ollama continues
+        // instead of starting a new answer
+        PreparedRequest continuation(String partialAnswer) {
+            JsonObject jsonRequest = JsonParser.parseString(jsonBody).getAsJsonObject();
+            JsonObject assistantMessage = new JsonObject();
+            assistantMessage.addProperty("role", "assistant");
+            assistantMessage.addProperty("content", partialAnswer);
+            jsonRequest.getAsJsonArray("messages").add(assistantMessage);
+            int tokens = promptTokens + TokenEstimator.forModel(model).estimate(partialAnswer) + TokenEstimator.MESSAGE_OVERHEAD_TOKENS;
+            return new PreparedRequest(jsonRequest.toString(), tokens, backend, model, pinned, priority);
+        }
+
+        synchronized byte[] utf8() {
+            if (utf8 == null) {
+                utf8 = jsonBody.getBytes(StandardCharsets.UTF_8);
+            }
+            return utf8;
+        }
+
+        // Compressed once, so a hedged second send costs nothing extra. The fastest level already
+        // shrinks JSON-escaped HTTP messages several times over; higher levels cost more than the upload saves.
+        synchronized byte[] gzipped() throws IOException {
+            if (gzipped == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(utf8().length / 4);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                }) {
+                    gzip.write(utf8());
+                }
+                gzipped = out.toByteArray();
+            }
+            return gzipped;
+        }
+    }
+
+    // Streams the same request to several backends and keeps whichever produces a token first
+    private class HedgeRace {
+        private final PreparedRequest prepared;
+        private final Consumer<String> onChunk;
+        private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+
+        HedgeRace(PreparedRequest prepared, Consumer<String> onChunk) {
+            this.prepared = prepared;
+            this.onChunk = onChunk;
+        }
+
+        Attempt start(String backend, Consumer<String> onStatus) {
+            Attempt attempt = new Attempt();
+            attempts.add(attempt);
+            attempt.future = streamExecutor.submit(() -> {
+                try {
+                    return stream(backend, prepared, chunk -> accept(attempt, chunk), onStatus, call -> attempt.admitted(call));
+                } finally {
+                    attempt.finished = true;
+                    signal();
+                }
+            });
+            return attempt;
+        }
+
+        Attempt winner() {
+            return winner.get();
+        }
+
+        boolean awaitFirstChunk(long millis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + millis;
+            synchronized (this) {
+                while (winner.get() == null && !allFinished()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wait(remaining);
+                }
+            }
+            return winner.get() != null;
+        }
+
+        String awaitResult() throws IOException, InterruptedException {
+            synchronized (this) {
+                while (winner.get() == null && !allFinished()) {
+                    wait();
+                }
+            }
+
+            Attempt won = winner.get();
+            if (won != null) {
+                return result(won);
+            }
+
+            // Nobody produced a token: return the first clean (empty) result, otherwise the first error
+            IOException firstError = null;
+            for (Attempt attempt : attempts) {
+                try {
+                    return result(attempt);
+                } catch (IOException e) {
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                }
+            }
+            throw firstError;
+        }
+
+        void cancelAll() {
+            for (Attempt attempt : attempts) {
+                attempt.cancel();
+            }
+        }
+
+        private void accept(Attempt attempt, String chunk) {
+            if (winner.compareAndSet(null, attempt)) {
+                for (Attempt other : attempts) {
+                    if (other != attempt) {
+                        other.cancel();
+                    }
+                }
+                signal();
+            }
+            if (winner.get() == attempt) {
+                onChunk.accept(chunk);
+            }
+        }
+
+        private synchronized void signal() {
+            notifyAll();
+        }
+
+        private boolean allFinished() {
+            for (Attempt attempt : attempts) {
+                if (!attempt.finished) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String result(Attempt attempt) throws IOException, InterruptedException {
+            try {
+                return attempt.future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error streaming response: " + e.getCause().getMessage(), e.getCause());
+            } catch (CancellationException e) {
+                throw new IOException("Request cancelled");
+            }
+        }
+
+        private class Attempt {
+            private volatile Future<String> future;
+            private volatile Call call;
+            private volatile boolean finished;
+            private volatile boolean cancelled;
+
+            boolean isDone() {
+                return finished;
+            }
+
+            // Called once the backend admitted this attempt, just before the call is executed. An attempt
+            // that lost while it was still queued has no call to cancel yet, so it is cancelled here instead
+            // of streaming a whole duplicate generation; a cancelled call fails without being sent.
+            void admitted(Call admittedCall) {
+                call = admittedCall;
+                Attempt won = winner.get();
+                if (cancelled || (won != null && won != this)) {
+                    admittedCall.cancel();
+                }
+            }
+
+            void cancel() {
+                cancelled = true;
+                Call current = call;
+                if (current != null) {
+                    current.cancel();
+                }
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.burp.llm.api;
+
+import java.io.IOException;
+
+// A background generation cancelled to free its slot for an interactive request; carries what it had streamed
+public class PreemptedException extends IOException {
+    private final String partialResponse;
+
+    public PreemptedException(String backend, String partialResponse) {
+        super("Preempted on " + backend + " by an interactive request");
+        this.partialResponse = partialResponse;
+    }
+
+    public String getPartialResponse() {
+        return partialResponse;
+    }
+}
@@ -0,0 +1,117 @@
+package com.burp.llm.api;
+
+import java.util.function.Consumer;
+
+// Splits a streamed answer into reasoning and content. Reasoning arrives either inline between
+// <think> and </think> tags, possibly split across chunks, or as Ollama's separate "thinking" field,
+// which the client forwards in the same tags. Only content reaches the answer consumer.
+public class ReasoningFilter implements Consumer<String> {
+    static final String OPEN_TAG = "<think>";
+    static final String CLOSE_TAG = "</think>";
+
+    private final Consumer<String> onAnswer;
+    private final Consumer<String> onReasoning;
+    private final StringBuilder answer = new StringBuilder();
+    private final StringBuilder reasoning = new StringBuilder();
+    // Text held back because it could be the start of a tag that the next chunk completes
+    private final StringBuilder pending = new StringBuilder();
+    private boolean thinking;
+    private boolean trimAnswerStart;
+
+    public ReasoningFilter(Consumer<String> onAnswer, Consumer<String> onReasoning) {
+        this.onAnswer = onAnswer;
+        this.onReasoning = onReasoning;
+    }
+
+    @Override
+    public void accept(String chunk) {
+        pending.append(chunk);
+        int position = 0;
+        while (position < pending.length()) {
+            if (!thinking && answer.length() > 0) {
+                // Reasoning only precedes the answer, so a tag quoted inside the answer is left alone
+                emit(pending.substring(position));
+                position = pending.length();
+                break;
+            }
+            String tag = thinking ? CLOSE_TAG : OPEN_TAG;
+            int found = pending.indexOf(tag, position);
+            if (found >= 0 && !thinking && !pending.substring(position, found).isBlank()) {
+                // The answer started before the tag
+                found = -1;
+            }
+            if (found >= 0) {
+                emit(pending.substring(position, found));
+                position = found + tag.length();
+                thinking = !thinking;
+                // Models separate the reasoning from the answer with blank lines that are not part of it
+                trimAnswerStart = !thinking;
+                continue;
+            }
+
+            int keep = partialTagLength(pending, position, tag);
+            emit(pending.substring(position, pending.length() - keep));
+            position = pending.length() - keep;
+            break;
+        }
+        pending.delete(0, position);
+    }
+
+    // Flushes text held back for a tag that never completed
+    public void finish() {
+        if (pending.length() > 0) {
+            String rest = pending.toString();
+            pending.setLength(0);
+            emit(rest);
+        }
+    }
+
+    public String getAnswer() {
+        return answer.toString();
+    }
+
+    public String getReasoning() {
+        return reasoning.toString();
+    }
+
+    private void emit(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (thinking) {
+            reasoning.append(text);
+            if (onReasoning != null) {
+                onReasoning.accept(text);
+            }
+            return;
+        }
+        if (trimAnswerStart) {
+            text = text.stripLeading();
+            if (text.isEmpty()) {
+                return;
+            }
+            trimAnswerStart = false;
+        }
+        answer.append(text);
+        onAnswer.accept(text);
+    }
+
+    // Length of the longest suffix of buffer[from..] that is a proper prefix of tag
+    private static int partialTagLength(StringBuilder buffer, int from, String tag) {
+        int max = Math.min(tag.length() - 1, buffer.length() - from);
+        for (int length = max; length > 0; length--) {
+            int start = buffer.length() - length;
+            boolean matches = true;
+            for (int i = 0; i < length; i++) {
+                if (buffer.charAt(start + i) != tag.charAt(i)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return length;
+            }
+        }
+        return 0;
+    }
+}
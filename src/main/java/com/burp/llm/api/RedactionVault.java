@@ -0,0 +1,147 @@
+package com.burp.llm.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Secrets taken out of prompts and the placeholders that stand in for them. A conversation keeps one
+// vault, so the same cookie gets the same placeholder in every turn and the model can refer back to it;
+// the answer shown in Burp has the placeholders swapped back for the real values.
+public class RedactionVault {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\[\\[([A-Z]+)_(\\d+)]]");
+    // Longest placeholder the restorer holds back waiting for its closing brackets
+    private static final int MAX_PLACEHOLDER_LENGTH = 24;
+
+    private final Map<String, String> placeholders = new ConcurrentHashMap<>();
+    private final Map<String, String> secrets = new ConcurrentHashMap<>();
+    private final AtomicInteger counter = new AtomicInteger();
+
+    String placeholderFor(String secret, String kind) {
+        return placeholders.computeIfAbsent(secret, value -> {
+            String placeholder = "[[" + kind + "_" + counter.incrementAndGet() + "]]";
+            secrets.put(placeholder, value);
+            return placeholder;
+        });
+    }
+
+    static boolean isPlaceholder(String value) {
+        return PLACEHOLDER.matcher(value).matches();
+    }
+
+    // For text kept beyond one conversation: another conversation's vault would restore the same
+    // placeholder to its own, unrelated secret
+    public static String maskPlaceholders(String text) {
+        return text.indexOf("[[") < 0 ? text : PLACEHOLDER.matcher(text).replaceAll("<redacted>");
+    }
+
+    // Starts with this vault's placeholders; for redacting text that is only measured, not sent
+    RedactionVault copy() {
+        RedactionVault copy = new RedactionVault();
+        copy.placeholders.putAll(placeholders);
+        copy.secrets.putAll(secrets);
+        copy.counter.set(counter.get());
+        return copy;
+    }
+
+    public int size() {
+        return secrets.size();
+    }
+
+    public String restore(String text) {
+        return restore(text, false);
+    }
+
+    private String restore(String text, boolean jsonEscape) {
+        if (secrets.isEmpty() || text.indexOf("[[") < 0) {
+            return text;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        StringBuilder restored = new StringBuilder(text.length());
+        while (matcher.find()) {
+            String secret = secrets.get(matcher.group());
+            String replacement = secret == null ? matcher.group() : jsonEscape ? escapeJson(secret) : secret;
+            matcher.appendReplacement(restored, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(restored);
+        return restored.toString();
+    }
+
+    // Wraps a chunk consumer so streamed text reaches it with the secrets put back. jsonEscape is for
+    // structured output, where a restored value lands inside a JSON string.
+    public Restorer restorer(Consumer<String> onChunk, boolean jsonEscape) {
+        return new Restorer(onChunk, jsonEscape);
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    // A placeholder can arrive split over several chunks, so text from an unclosed "[[" on is held back
+    // until it either closes or grows too long to be one.
+    public class Restorer implements Consumer<String> {
+        private final Consumer<String> onChunk;
+        private final boolean jsonEscape;
+        private final StringBuilder pending = new StringBuilder();
+
+        private Restorer(Consumer<String> onChunk, boolean jsonEscape) {
+            this.onChunk = onChunk;
+            this.jsonEscape = jsonEscape;
+        }
+
+        @Override
+        public void accept(String chunk) {
+            if (secrets.isEmpty() && pending.length() == 0) {
+                onChunk.accept(chunk);
+                return;
+            }
+            pending.append(chunk);
+            int hold = holdFrom();
+            if (hold > 0) {
+                onChunk.accept(restore(pending.substring(0, hold), jsonEscape));
+                pending.delete(0, hold);
+            }
+        }
+
+        // Sends whatever is still held back; call once the stream has ended
+        public void finish() {
+            if (pending.length() > 0) {
+                onChunk.accept(restore(pending.toString(), jsonEscape));
+                pending.setLength(0);
+            }
+        }
+
+        // Index up to which pending can be sent now
+        private int holdFrom() {
+            int length = pending.length();
+            if (length == 0) {
+                return 0;
+            }
+            int open = pending.lastIndexOf("[[");
+            if (open >= 0 && pending.indexOf("]]", open) < 0 && length - open < MAX_PLACEHOLDER_LENGTH) {
+                return open;
+            }
+            return pending.charAt(length - 1) == '[' ? length - 1 : length;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.burp.llm.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Replaces credentials in outgoing prompts with placeholders in one pass. An Aho-Corasick automaton over
+// lower-cased ASCII finds every trigger (header names, parameter and JSON key names, token prefixes such
+// as "eyJ" or "AKIA"); only at those hits is a short anchored regex run to find the extent of the value.
+// The automaton is a dense transition table, so the scan costs one array read per character.
+public final class Redactor {
+    private static final int ALPHABET = 128;
+    // Longest value an anchored regex may consume, so a runaway match cannot make the pass quadratic
+    private static final int MAX_VALUE_LENGTH = 16 * 1024;
+
+    private enum Anchor {
+        // The value follows the trigger (header, parameter or JSON key)
+        AFTER,
+        // The trigger is the start of the value itself (token prefix)
+        AT
+    }
+
+    private static class Rule {
+        private final String trigger;
+        private final Anchor anchor;
+        private final Pattern value;
+        private final String kind;
+        private final boolean repeat;
+
+        // repeat: the pattern is applied again after each match, e.g. for every name=value pair of a Cookie header
+        Rule(String trigger, Anchor anchor, Pattern value, String kind, boolean repeat) {
+            this.trigger = trigger;
+            this.anchor = anchor;
+            this.value = value;
+            this.kind = kind;
+            this.repeat = repeat;
+        }
+    }
+
+    private static final Pattern AUTH_HEADER = Pattern.compile(
+        "[ \\t]*(?:(?:Bearer|Basic|Digest|Token|Negotiate|NTLM|AWS4-HMAC-SHA256)[ \\t]+)?([^\\r\\n]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HEADER_VALUE = Pattern.compile("[ \\t]*([^\\r\\n]+)");
+    private static final Pattern COOKIE_PAIR = Pattern.compile("[ \\t;]*[^=;\\r\\n]+=([^;\\r\\n]+)");
+    private static final Pattern PARAMETER_VALUE = Pattern.compile("([^&\\s\"'<>;,]+)");
+    private static final Pattern JSON_VALUE = Pattern.compile("\\s*:\\s*\"((?:[^\"\\\\\\r\\n]|\\\\.)+)\"");
+
+    private static final List<Rule> RULES = new ArrayList<>();
+
+    static {
+        for (String header : new String[] {"authorization", "proxy-authorization"}) {
+            RULES.add(new Rule("\n" + header + ":", Anchor.AFTER, AUTH_HEADER, "AUTH", false));
+        }
+        for (String header : new String[] {"x-api-key", "x-auth-token", "x-csrf-token", "x-xsrf-token", "api-key", "x-amz-security-token"}) {
+            RULES.add(new Rule("\n" + header + ":", Anchor.AFTER, HEADER_VALUE, "KEY", false));
+        }
+        RULES.add(new Rule("\ncookie:", Anchor.AFTER, COOKIE_PAIR, "COOKIE", true));
+        RULES.add(new Rule("\nset-cookie:", Anchor.AFTER, COOKIE_PAIR, "COOKIE", false));
+
+        String[] secretNames = {"password", "passwd", "pwd", "secret", "client_secret", "token", "access_token",
+            "refresh_token", "id_token", "api_key", "apikey", "api-key", "auth", "session", "sessionid", "jsessionid",
+            "phpsessid", "private_key", "signature", "sig", "code"};
+        for (String name : secretNames) {
+            String kind = name.startsWith("pass") || name.equals("pwd") ? "PASSWORD" : "SECRET";
+            for (String delimiter : new String[] {"?", "&", "\n", " "}) {
+                RULES.add(new Rule(delimiter + name + "=", Anchor.AFTER, PARAMETER_VALUE, kind, false));
+            }
+            RULES.add(new Rule("\"" + name + "\"", Anchor.AFTER, JSON_VALUE, kind, false));
+        }
+
+        RULES.add(new Rule("eyj", Anchor.AT, Pattern.compile("eyJ[A-Za-z0-9_-]{4,}\\.[A-Za-z0-9_-]{4,}\\.[A-Za-z0-9_-]*"), "JWT", false));
+        RULES.add(new Rule("akia", Anchor.AT, Pattern.compile("AKIA[0-9A-Z]{16}"), "KEY", false));
+        RULES.add(new Rule("asia", Anchor.AT, Pattern.compile("ASIA[0-9A-Z]{16}"), "KEY", false));
+        for (String prefix : new String[] {"ghp_", "gho_", "ghu_", "ghs_", "ghr_"}) {
+            RULES.add(new Rule(prefix, Anchor.AT, Pattern.compile("gh[pousr]_[A-Za-z0-9]{30,}"), "KEY", false));
+        }
+        RULES.add(new Rule("github_pat_", Anchor.AT, Pattern.compile("github_pat_[A-Za-z0-9_]{20,}"), "KEY", false));
+        RULES.add(new Rule("xox", Anchor.AT, Pattern.compile("xox[abposr]-[A-Za-z0-9-]{10,}"), "KEY", false));
+        RULES.add(new Rule("sk-", Anchor.AT, Pattern.compile("sk-(?:proj-|ant-)?[A-Za-z0-9_-]{20,}"), "KEY", false));
+        RULES.add(new Rule("aiza", Anchor.AT, Pattern.compile("AIza[0-9A-Za-z_-]{35}"), "KEY", false));
+        RULES.add(new Rule("-----begin", Anchor.AT, Pattern.compile(
+            "-----BEGIN [A-Z ]*PRIVATE KEY-----[\\s\\S]*?-----END [A-Z ]*PRIVATE KEY-----"), "KEY", false));
+    }
+
+    private static final Redactor INSTANCE = new Redactor();
+
+    // Dense goto table with failure transitions folded in: next state = delta[state * ALPHABET + c],
+    // stored as ~state when a trigger ends there so the scan needs no second lookup
+    private final int[] delta;
+    // Rules whose trigger ends in each state, including those reached through failure links
+    private final int[][] matches;
+
+    private Redactor() {
+        List<int[]> transitions = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        transitions.add(newRow());
+        outputs.add(new ArrayList<>());
+
+        for (int rule = 0; rule < RULES.size(); rule++) {
+            int state = 0;
+            for (char c : RULES.get(rule).trigger.toCharArray()) {
+                if (transitions.get(state)[c] < 0) {
+                    transitions.get(state)[c] = transitions.size();
+                    transitions.add(newRow());
+                    outputs.add(new ArrayList<>());
+                }
+                state = transitions.get(state)[c];
+            }
+            outputs.get(state).add(rule);
+        }
+
+        int states = transitions.size();
+        int[] fail = new int[states];
+        delta = new int[states * ALPHABET];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = transitions.get(0)[c];
+            if (next > 0) {
+                fail[next] = 0;
+                queue.add(next);
+                delta[c] = next;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs.get(state).addAll(outputs.get(fail[state]));
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions.get(state)[c];
+                if (next > 0) {
+                    fail[next] = delta[fail[state] * ALPHABET + c];
+                    queue.add(next);
+                    delta[state * ALPHABET + c] = next;
+                } else {
+                    delta[state * ALPHABET + c] = delta[fail[state] * ALPHABET + c];
+                }
+            }
+        }
+
+        matches = new int[states][];
+        for (int state = 0; state < states; state++) {
+            matches[state] = outputs.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+        for (int i = 0; i < delta.length; i++) {
+            if (matches[delta[i]].length > 0) {
+                delta[i] = ~delta[i];
+            }
+        }
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    public static Redactor getInstance() {
+        return INSTANCE;
+    }
+
+    // Returns the text with every secret replaced by the vault's placeholder for it
+    public String redact(String text, RedactionVault vault) {
+        StringBuilder out = null;
+        int copied = 0;
+        int state = 0;
+        // A virtual newline before the text lets the header triggers match on the first line too
+        state = delta[state * ALPHABET + '\n'];
+        state = state < 0 ? ~state : state;
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= ALPHABET) {
+                state = 0;
+                continue;
+            }
+            state = delta[state * ALPHABET + (c >= 'A' && c <= 'Z' ? c + 32 : c)];
+            if (state >= 0) {
+                continue;
+            }
+            state = ~state;
+
+            for (int ruleIndex : matches[state]) {
+                Rule rule = RULES.get(ruleIndex);
+                int start = rule.anchor == Anchor.AT ? i - rule.trigger.length() + 1 : i + 1;
+                if (start < copied || (rule.anchor == Anchor.AT && start > 0 && isWordChar(text.charAt(start - 1)))) {
+                    continue;
+                }
+
+                Matcher matcher = rule.value.matcher(text);
+                int position = start;
+                int end = -1;
+                do {
+                    matcher.region(position, Math.min(length, position + MAX_VALUE_LENGTH));
+                    if (!matcher.lookingAt()) {
+                        break;
+                    }
+                    int valueStart = matcher.groupCount() > 0 ? matcher.start(1) : matcher.start();
+                    int valueEnd = matcher.groupCount() > 0 ? matcher.end(1) : matcher.end();
+                    while (valueStart < valueEnd && Character.isWhitespace(text.charAt(valueStart))) {
+                        valueStart++;
+                    }
+                    while (valueEnd > valueStart && Character.isWhitespace(text.charAt(valueEnd - 1))) {
+                        valueEnd--;
+                    }
+                    String value = text.substring(valueStart, valueEnd);
+                    // Text carried over from an earlier turn may already hold placeholders
+                    if (!value.isEmpty() && valueStart >= copied && !RedactionVault.isPlaceholder(value)) {
+                        if (out == null) {
+                            out = new StringBuilder(length + 64);
+                        }
+                        out.append(text, copied, valueStart).append(vault.placeholderFor(value, rule.kind));
+                        copied = valueEnd;
+                    }
+                    end = matcher.end();
+                    position = end;
+                } while (rule.repeat && position < length);
+
+                if (end > i) {
+                    // Resume after the value; nothing inside it can start another secret worth finding
+                    i = end - 1;
+                    state = 0;
+                    break;
+                }
+            }
+        }
+
+        if (out == null) {
+            return text;
+        }
+        out.append(text, copied, text.length());
+        return out.toString();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+}
@@ -0,0 +1,232 @@
+package com.burp.llm.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Splits a response body that does not fit in the context into pieces that each do, cutting on
+// structural boundaries: between JSON array elements or object members, after HTML block elements,
+// then at line ends. Only a single line longer than the budget is cut at an arbitrary position.
+public final class ResponseChunker {
+    private static final Pattern HTML_BLOCK_END = Pattern.compile(
+        "</(?:html|head|body|div|section|article|main|header|footer|nav|aside|table|thead|tbody|tr|ul|ol|li|dl|form|"
+            + "fieldset|p|pre|blockquote|script|style|template|h[1-6])\\s*>|<!--.*?-->", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern HTML_HINT = Pattern.compile("<(?:!doctype|html|head|body|div|table|script)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LINE_END = Pattern.compile("\n");
+
+    private final int maxTokens;
+    private final TokenEstimator estimator;
+    private final Gson gson;
+
+    public ResponseChunker(int maxTokens, TokenEstimator estimator) {
+        this.maxTokens = maxTokens;
+        this.estimator = estimator;
+        this.gson = new Gson();
+    }
+
+    public static class Chunk {
+        private final String label;
+        private final String text;
+
+        Chunk(String label, String text) {
+            this.label = label;
+            this.text = text;
+        }
+
+        // Where the piece came from, e.g. "$.items[40..79]" or "chars 12,000-24,000"
+        public String getLabel() {
+            return label;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    public List<Chunk> split(String body) {
+        List<Chunk> chunks = new ArrayList<>();
+        String trimmed = body.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            JsonElement json = parseJson(trimmed);
+            if (json != null) {
+                splitJson(json, "$", chunks);
+                return mergeSmall(chunks);
+            }
+        }
+        Pattern[] boundaries = HTML_HINT.matcher(body).find()
+            ? new Pattern[] {HTML_BLOCK_END, LINE_END}
+            : new Pattern[] {LINE_END};
+        splitText(body, 0, boundaries, 0, chunks);
+        return mergeSmall(chunks);
+    }
+
+    // Each chunk costs a generation, so neighbours left small by a split (e.g. "$.meta" before a huge "$.items") share one
+    private List<Chunk> mergeSmall(List<Chunk> chunks) {
+        List<Chunk> merged = new ArrayList<>();
+        Chunk previous = null;
+        int previousTokens = 0;
+        for (Chunk chunk : chunks) {
+            int tokens = estimator.estimate(chunk.text);
+            if (previous != null && previousTokens + tokens <= maxTokens) {
+                previous = new Chunk(previous.label + ", " + chunk.label, previous.text + "\n" + chunk.text);
+                previousTokens += tokens;
+                continue;
+            }
+            if (previous != null) {
+                merged.add(previous);
+            }
+            previous = chunk;
+            previousTokens = tokens;
+        }
+        if (previous != null) {
+            merged.add(previous);
+        }
+        return merged;
+    }
+
+    private static JsonElement parseJson(String text) {
+        try {
+            return JsonParser.parseString(text);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void splitJson(JsonElement element, String path, List<Chunk> out) {
+        String text = gson.toJson(element);
+        if (estimator.estimate(text) <= maxTokens) {
+            out.add(new Chunk(path, text));
+        } else if (element.isJsonArray()) {
+            splitJsonArray(element.getAsJsonArray(), path, out);
+        } else if (element.isJsonObject()) {
+            splitJsonObject(element.getAsJsonObject(), path, out);
+        } else {
+            // A single huge string value; its text has no structure left to respect
+            splitText(text, 0, new Pattern[] {LINE_END}, 0, out, path + " ");
+        }
+    }
+
+    private void splitJsonArray(JsonArray array, String path, List<Chunk> out) {
+        JsonArray group = new JsonArray();
+        int groupStart = 0;
+        int groupTokens = 0;
+        for (int i = 0; i < array.size(); i++) {
+            JsonElement element = array.get(i);
+            int tokens = estimator.estimate(gson.toJson(element)) + 1;
+            if (groupTokens + tokens > maxTokens && group.size() > 0) {
+                out.add(new Chunk(String.format("%s[%d..%d]", path, groupStart, i - 1), gson.toJson(group)));
+                group = new JsonArray();
+                groupTokens = 0;
+            }
+            if (tokens > maxTokens) {
+                splitJson(element, path + "[" + i + "]", out);
+                groupStart = i + 1;
+                continue;
+            }
+            if (group.size() == 0) {
+                groupStart = i;
+            }
+            group.add(element);
+            groupTokens += tokens;
+        }
+        if (group.size() > 0) {
+            out.add(new Chunk(String.format("%s[%d..%d]", path, groupStart, array.size() - 1), gson.toJson(group)));
+        }
+    }
+
+    private void splitJsonObject(JsonObject object, String path, List<Chunk> out) {
+        JsonObject group = new JsonObject();
+        String firstKey = null;
+        String lastKey = null;
+        int groupTokens = 0;
+        for (Map.Entry<String, JsonElement> member : object.entrySet()) {
+            int tokens = estimator.estimate(member.getKey()) + estimator.estimate(gson.toJson(member.getValue())) + 2;
+            if (groupTokens + tokens > maxTokens && group.size() > 0) {
+                out.add(new Chunk(memberLabel(path, firstKey, lastKey), gson.toJson(group)));
+                group = new JsonObject();
+                groupTokens = 0;
+            }
+            if (tokens > maxTokens) {
+                splitJson(member.getValue(), path + "." + member.getKey(), out);
+                continue;
+            }
+            if (group.size() == 0) {
+                firstKey = member.getKey();
+            }
+            lastKey = member.getKey();
+            group.add(member.getKey(), member.getValue());
+            groupTokens += tokens;
+        }
+        if (group.size() > 0) {
+            out.add(new Chunk(memberLabel(path, firstKey, lastKey), gson.toJson(group)));
+        }
+    }
+
+    private static String memberLabel(String path, String firstKey, String lastKey) {
+        return firstKey.equals(lastKey) ? path + "." + firstKey : path + ".{" + firstKey + ".." + lastKey + "}";
+    }
+
+    private void splitText(String text, int offset, Pattern[] boundaries, int level, List<Chunk> out) {
+        splitText(text, offset, boundaries, level, out, "");
+    }
+
+    // Greedily packs the pieces between boundaries; a piece too large on its own is split at the next finer boundary
+    private void splitText(String text, int offset, Pattern[] boundaries, int level, List<Chunk> out, String labelPrefix) {
+        if (estimator.estimate(text) <= maxTokens) {
+            addText(text, offset, 0, text.length(), out, labelPrefix);
+            return;
+        }
+        if (level == boundaries.length) {
+            splitHard(text, offset, out, labelPrefix);
+            return;
+        }
+
+        Matcher matcher = boundaries[level].matcher(text);
+        int chunkStart = 0;
+        int pieceStart = 0;
+        int chunkTokens = 0;
+        while (pieceStart < text.length()) {
+            int pieceEnd = matcher.find() ? matcher.end() : text.length();
+            int tokens = estimator.estimate(text.subSequence(pieceStart, pieceEnd));
+            if (chunkTokens + tokens > maxTokens && pieceStart > chunkStart) {
+                addText(text, offset, chunkStart, pieceStart, out, labelPrefix);
+                chunkStart = pieceStart;
+                chunkTokens = 0;
+            }
+            if (tokens > maxTokens) {
+                splitText(text.substring(pieceStart, pieceEnd), offset + pieceStart, boundaries, level + 1, out, labelPrefix);
+                chunkStart = pieceEnd;
+            } else {
+                chunkTokens += tokens;
+            }
+            pieceStart = pieceEnd;
+        }
+        if (chunkStart < text.length()) {
+            addText(text, offset, chunkStart, text.length(), out, labelPrefix);
+        }
+    }
+
+    private void splitHard(String text, int offset, List<Chunk> out, String labelPrefix) {
+        int tokens = Math.max(1, estimator.estimate(text));
+        int step = Math.max(1, (int) ((long) text.length() * maxTokens / tokens));
+        for (int start = 0; start < text.length(); start += step) {
+            addText(text, offset, start, Math.min(text.length(), start + step), out, labelPrefix);
+        }
+    }
+
+    private static void addText(String text, int offset, int start, int end, List<Chunk> out, String labelPrefix) {
+        if (text.substring(start, end).isBlank()) {
+            return;
+        }
+        out.add(new Chunk(String.format("%schars %,d-%,d", labelPrefix, offset + start, offset + end),
+            text.substring(start, end)));
+    }
+}
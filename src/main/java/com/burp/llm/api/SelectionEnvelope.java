@@ -0,0 +1,125 @@
+package com.burp.llm.api;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Minimal context around a selected range of a request or response: the request line, the few headers
+// that say what kind of exchange it is, the status line, and where exactly the selection sits. Everything
+// else is summarized in one line, so a question about one token costs hundreds of tokens, not thousands.
+public final class SelectionEnvelope {
+    private static final Set<String> REQUEST_HEADERS = Set.of("host", "content-type", "origin", "x-requested-with");
+    private static final Set<String> RESPONSE_HEADERS = Set.of("content-type", "location");
+    private static final int MAX_START_LINE = 300;
+    // How far back on the selection's line to look for the key or parameter it is the value of
+    private static final int KEY_LOOKBACK = 200;
+    private static final Pattern JSON_KEY = Pattern.compile("\"([^\"\\\\]{1,100})\"\\s*:\\s*\"?$");
+    private static final Pattern PARAMETER = Pattern.compile("([A-Za-z0-9_.\\-\\[\\]]{1,100})=$");
+    private static final Pattern ATTRIBUTE = Pattern.compile("([A-Za-z0-9_\\-:]{1,100})\\s*=\\s*[\"']?$");
+
+    public enum Part {
+        REQUEST("request"),
+        RESPONSE("response");
+
+        private final String label;
+
+        Part(String label) {
+            this.label = label;
+        }
+    }
+
+    private SelectionEnvelope() {
+    }
+
+    // start and end are offsets into the message named by part; response may be empty
+    public static String build(String request, String response, Part part, int start, int end) {
+        String message = part == Part.REQUEST ? request : response;
+        start = Math.max(0, Math.min(start, message.length()));
+        end = Math.max(start, Math.min(end, message.length()));
+
+        StringBuilder envelope = new StringBuilder();
+        appendHead(envelope, request, REQUEST_HEADERS, "request");
+        if (response != null && !response.isEmpty()) {
+            envelope.append('\n');
+            appendHead(envelope, response, RESPONSE_HEADERS, "response");
+        }
+
+        envelope.append(String.format("%nSelected from the %s %s, chars %,d-%,d of %,d:%n",
+            part.label, location(message, start), start, end, message.length()));
+        envelope.append(message, start, end).append('\n');
+        return envelope.toString();
+    }
+
+    private static void appendHead(StringBuilder envelope, String message, Set<String> relevant, String label) {
+        int headerEnd = headerEnd(message);
+        String[] lines = message.substring(0, headerEnd).split("\r?\n");
+        String startLine = lines[0];
+        envelope.append(startLine.length() > MAX_START_LINE ? startLine.substring(0, MAX_START_LINE) + "…" : startLine).append('\n');
+
+        int omitted = 0;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            if (relevant.contains(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT))) {
+                envelope.append(lines[i]).append('\n');
+            } else {
+                omitted++;
+            }
+        }
+        int bodyLength = message.length() - bodyStart(message, headerEnd);
+        if (omitted > 0 || bodyLength > 0) {
+            envelope.append(String.format("[%s: %d other headers and a %,d-char body omitted]%n", label, omitted, bodyLength));
+        }
+    }
+
+    // "body (value of JSON key \"token\")", "Authorization header", ...
+    private static String location(String message, int start) {
+        int headerEnd = headerEnd(message);
+        String where;
+        if (start >= headerEnd) {
+            where = "body";
+        } else {
+            int lineStart = message.lastIndexOf('\n', start - 1) + 1;
+            int colon = message.indexOf(':', lineStart);
+            if (lineStart == 0) {
+                where = "start line";
+            } else if (colon > 0 && colon < start) {
+                where = message.substring(lineStart, colon).trim() + " header";
+            } else {
+                where = "headers";
+            }
+        }
+
+        int lineStart = message.lastIndexOf('\n', start - 1) + 1;
+        String before = message.substring(Math.max(lineStart, start - KEY_LOOKBACK), start);
+        Matcher matcher;
+        if ((matcher = JSON_KEY.matcher(before)).find()) {
+            return where + " (value of JSON key \"" + matcher.group(1) + "\")";
+        }
+        if ((matcher = PARAMETER.matcher(before)).find()) {
+            return where + " (value of parameter " + matcher.group(1) + ")";
+        }
+        if ((matcher = ATTRIBUTE.matcher(before)).find()) {
+            return where + " (value of attribute " + matcher.group(1) + ")";
+        }
+        return where;
+    }
+
+    private static int headerEnd(String message) {
+        int end = message.indexOf("\r\n\r\n");
+        if (end < 0) {
+            end = message.indexOf("\n\n");
+        }
+        return end >= 0 ? end : message.length();
+    }
+
+    private static int bodyStart(String message, int headerEnd) {
+        if (message.startsWith("\r\n\r\n", headerEnd)) {
+            return headerEnd + 4;
+        }
+        return message.startsWith("\n\n", headerEnd) ? headerEnd + 2 : message.length();
+    }
+}
@@ -0,0 +1,179 @@
+package com.burp.llm.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Runs one generation per identical request body. Callers that arrive while it is streaming get the
+// chunks produced so far replayed, then follow the live stream, and end with the same result or error.
+// When the caller running it is cancelled instead (interrupted, preempted, its call cancelled), one of
+// the followers takes over and continues from what they have all been shown.
+public class SingleFlight {
+    public interface Generation {
+        // delivered is what an abandoned flight already streamed to this caller: the run continues it
+        // rather than starting over, and returns only what it adds. Empty for a fresh start.
+        String run(String delivered, Consumer<String> onChunk) throws IOException;
+    }
+
+    private final Map<String, Flight> inFlight;
+    private final AtomicLong joined;
+
+    public SingleFlight() {
+        this.inFlight = new ConcurrentHashMap<>();
+        this.joined = new AtomicLong();
+    }
+
+    public String execute(String requestBody, Consumer<String> onChunk, Consumer<String> onStatus, Generation generation) throws IOException {
+        String delivered = "";
+        while (true) {
+            // Followers of an abandoned flight share what they were shown, so they meet again under one key
+            String key = hash(delivered.isEmpty() ? requestBody : requestBody + '\0' + delivered);
+            Flight flight = new Flight();
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                joined.incrementAndGet();
+                if (onStatus != null) {
+                    onStatus.accept("joined an identical generation already in progress");
+                }
+                String result = existing.follow(onChunk);
+                if (!existing.isAbandoned()) {
+                    return delivered + result;
+                }
+                delivered += existing.getStreamed();
+                if (onStatus != null) {
+                    onStatus.accept("the identical generation was cancelled by its caller, continuing it");
+                }
+                continue;
+            }
+
+            try {
+                String result = generation.run(delivered, chunk -> {
+                    flight.publish(chunk);
+                    onChunk.accept(chunk);
+                });
+                flight.complete(result, null);
+                return delivered + result;
+            } catch (IOException e) {
+                inFlight.remove(key, flight);
+                if (cancelledByCaller(e)) {
+                    flight.abandon();
+                } else {
+                    flight.complete(null, e);
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                flight.complete(null, e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+    }
+
+    // Failures that only end the wait of the caller running the generation; its followers still want the answer.
+    // A missed stream deadline is a real failure: the followers would miss it too.
+    private static boolean cancelledByCaller(IOException e) {
+        if (e instanceof StreamTimeoutException) {
+            return false;
+        }
+        return e instanceof PreemptedException || e instanceof InterruptedIOException
+            || Thread.currentThread().isInterrupted() || "Canceled".equals(e.getMessage());
+    }
+
+    public long getJoinedCount() {
+        return joined.get();
+    }
+
+    private static String hash(String requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(requestBody.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Chunks of one generation in order; followers read them by index so none is missed or repeated
+    private static class Flight {
+        private final List<String> chunks = new ArrayList<>();
+        private boolean done;
+        private boolean abandoned;
+        private String result;
+        private Exception error;
+
+        synchronized void publish(String chunk) {
+            chunks.add(chunk);
+            notifyAll();
+        }
+
+        // Ends the flight for its followers without a result, so one of them continues it
+        synchronized void abandon() {
+            this.done = true;
+            this.abandoned = true;
+            notifyAll();
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        synchronized String getStreamed() {
+            return String.join("", chunks);
+        }
+
+        synchronized void complete(String result, Exception error) {
+            this.done = true;
+            this.result = result;
+            this.error = error;
+            notifyAll();
+        }
+
+        String follow(Consumer<String> onChunk) throws IOException {
+            int next = 0;
+            while (true) {
+                List<String> batch;
+                boolean finished;
+                synchronized (this) {
+                    while (next == chunks.size() && !done) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while waiting for response");
+                        }
+                    }
+                    batch = new ArrayList<>(chunks.subList(next, chunks.size()));
+                    next = chunks.size();
+                    finished = done;
+                }
+
+                // Delivered outside the lock so a slow follower never holds up the generation
+                for (String chunk : batch) {
+                    onChunk.accept(chunk);
+                }
+                if (finished) {
+                    break;
+                }
+            }
+
+            synchronized (this) {
+                if (error instanceof IOException) {
+                    throw (IOException) error;
+                }
+                if (error != null) {
+                    throw new IOException("Error streaming response: " + error.getMessage(), error);
+                }
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.burp.llm.api;
+
+import java.io.InterruptedIOException;
+
+// A stream that missed one of its deadlines; carries whatever had been received before it was cut off
+public class StreamTimeoutException extends InterruptedIOException {
+    private final String partialResponse;
+
+    public StreamTimeoutException(String message, String partialResponse) {
+        super(message);
+        this.partialResponse = partialResponse;
+    }
+
+    public String getPartialResponse() {
+        return partialResponse;
+    }
+}
@@ -0,0 +1,148 @@
+package com.burp.llm.api;
+
+import com.burp.llm.config.ConfigSettings;
+import okhttp3.Call;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Enforces separate budgets for the first token, the pause between chunks and the whole generation.
+// The configured values are upper bounds; once a model/backend pair has enough history, the first-token
+// and idle budgets shrink to a multiple of their p99 so dead streams are noticed quickly. The total budget
+// stays as configured: a long healthy answer keeps producing tokens, and its length says nothing about hanging.
+public class StreamWatchdog {
+    private static final long CHECK_INTERVAL_MILLIS = 250;
+    private static final int LEARNED_PERCENTILE = 99;
+    private static final int LEARNED_MULTIPLIER = 3;
+    private static final long MIN_FIRST_TOKEN_MILLIS = 10_000;
+    private static final long MIN_IDLE_MILLIS = 5_000;
+
+    private final ConfigSettings configSettings;
+    private final LatencyTracker latencyTracker;
+    private final ScheduledExecutorService scheduler;
+
+    public StreamWatchdog(ConfigSettings configSettings, LatencyTracker latencyTracker) {
+        this.configSettings = configSettings;
+        this.latencyTracker = latencyTracker;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AI Chat stream watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Watch watch(String backend, String model, int promptTokens, Call call) {
+        Watch watch = new Watch(backend, model, promptTokens, call);
+        watch.check = scheduler.scheduleAtFixedRate(watch::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return watch;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private long firstTokenBudget(String backend, String model, int promptTokens) {
+        long configured = TimeUnit.SECONDS.toMillis(configSettings.getFirstTokenTimeoutSeconds());
+        long learned = Math.max(
+            learned(LatencyTracker.Metric.TIME_TO_FIRST_TOKEN, backend, model),
+            learned(LatencyTracker.Metric.FIRST_TOKEN_PER_KILO_TOKEN, backend, model) * promptTokens / 1000);
+        return bound(learned, MIN_FIRST_TOKEN_MILLIS, configured);
+    }
+
+    private long idleBudget(String backend, String model) {
+        long configured = TimeUnit.SECONDS.toMillis(configSettings.getIdleTimeoutSeconds());
+        return bound(learned(LatencyTracker.Metric.MAX_CHUNK_GAP, backend, model), MIN_IDLE_MILLIS, configured);
+    }
+
+    private long learned(LatencyTracker.Metric metric, String backend, String model) {
+        long percentile = latencyTracker.percentile(metric, backend, model, LEARNED_PERCENTILE);
+        return percentile > 0 ? percentile * LEARNED_MULTIPLIER : -1;
+    }
+
+    private long bound(long learned, long minimum, long configured) {
+        if (!configSettings.isAdaptiveTimeouts() || learned <= 0) {
+            return configured;
+        }
+        return Math.min(configured, Math.max(minimum, learned));
+    }
+
+    // Deadlines of one stream; the reader reports progress and the scheduler cancels the call when one passes
+    public class Watch implements AutoCloseable {
+        private final String backend;
+        private final String model;
+        private final int promptTokens;
+        private final Call call;
+        private final long firstTokenMillis;
+        private final long idleMillis;
+        private final long totalMillis;
+        private final long startNanos;
+        private volatile long lastTokenNanos;
+        private volatile boolean gotFirstToken;
+        private volatile String expired;
+        private long maxGapMillis;
+        private volatile ScheduledFuture<?> check;
+
+        Watch(String backend, String model, int promptTokens, Call call) {
+            this.backend = backend;
+            this.model = model;
+            this.promptTokens = promptTokens;
+            this.call = call;
+            this.firstTokenMillis = firstTokenBudget(backend, model, promptTokens);
+            this.idleMillis = idleBudget(backend, model);
+            this.totalMillis = TimeUnit.SECONDS.toMillis(configSettings.getTotalTimeoutSeconds());
+            this.startNanos = System.nanoTime();
+            this.lastTokenNanos = startNanos;
+        }
+
+        // Called by the reading thread for every chunk that carries text
+        public void onToken() {
+            long now = System.nanoTime();
+            if (!gotFirstToken) {
+                long firstToken = TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+                latencyTracker.record(LatencyTracker.Metric.FIRST_TOKEN_PER_KILO_TOKEN, backend, model,
+                    firstToken * 1000 / Math.max(1, promptTokens));
+                gotFirstToken = true;
+            } else {
+                maxGapMillis = Math.max(maxGapMillis, TimeUnit.NANOSECONDS.toMillis(now - lastTokenNanos));
+            }
+            lastTokenNanos = now;
+        }
+
+        // Only streams that ran to the end teach the budgets, so a hung stream cannot loosen them
+        public void onComplete() {
+            if (expired == null && gotFirstToken) {
+                latencyTracker.record(LatencyTracker.Metric.MAX_CHUNK_GAP, backend, model, maxGapMillis);
+            }
+        }
+
+        public String expired() {
+            return expired;
+        }
+
+        private void check() {
+            long now = System.nanoTime();
+            String reason = null;
+            if (!gotFirstToken && TimeUnit.NANOSECONDS.toMillis(now - startNanos) > firstTokenMillis) {
+                reason = String.format("no first token within %.1f s", firstTokenMillis / 1000.0);
+            } else if (gotFirstToken && TimeUnit.NANOSECONDS.toMillis(now - lastTokenNanos) > idleMillis) {
+                reason = String.format("stream idle for more than %.1f s", idleMillis / 1000.0);
+            } else if (TimeUnit.NANOSECONDS.toMillis(now - startNanos) > totalMillis) {
+                reason = String.format("generation exceeded %.1f s", totalMillis / 1000.0);
+            }
+            if (reason != null && expired == null) {
+                expired = reason;
+                call.cancel();
+                check.cancel(false);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (check != null) {
+                check.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.burp.llm.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+// One test request proposed by the model: the original request with a single value replaced
+public class TestVariant {
+    public static final String[] LOCATIONS = {"query", "body", "json", "cookie", "header", "path"};
+
+    private String hypothesis;
+    private String location;
+    private String name;
+    private String value;
+    private String expect;
+
+    public String getHypothesis() {
+        return hypothesis != null ? hypothesis : "";
+    }
+
+    // One of LOCATIONS; anything else is treated as a query parameter
+    public String getLocation() {
+        return location != null ? location.toLowerCase() : "query";
+    }
+
+    // Parameter, cookie or header name, or a dotted property path for json; unused for path
+    public String getName() {
+        return name != null ? name : "";
+    }
+
+    public String getValue() {
+        return value != null ? value : "";
+    }
+
+    // What the response would show if the hypothesis holds
+    public String getExpect() {
+        return expect != null ? expect : "";
+    }
+
+    // "query id = 1' OR '1'='1"
+    public String describe() {
+        return getLocation().equals("path")
+            ? "path " + getValue()
+            : getLocation() + " " + getName() + " = " + getValue();
+    }
+
+    // JSON schema passed as Ollama's "format" so the model can only answer with a list of variants
+    public static JsonObject responseSchema() {
+        JsonObject item = new JsonObject();
+        item.addProperty("type", "object");
+        JsonObject properties = new JsonObject();
+        properties.add("hypothesis", stringProperty());
+        JsonObject location = stringProperty();
+        location.add("enum", stringArray(LOCATIONS));
+        properties.add("location", location);
+        properties.add("name", stringProperty());
+        properties.add("value", stringProperty());
+        properties.add("expect", stringProperty());
+        item.add("properties", properties);
+        item.add("required", stringArray("hypothesis", "location", "name", "value"));
+
+        JsonObject variants = new JsonObject();
+        variants.addProperty("type", "array");
+        variants.add("items", item);
+
+        JsonObject rootProperties = new JsonObject();
+        rootProperties.add("variants", variants);
+
+        JsonObject schema = new JsonObject();
+        schema.addProperty("type", "object");
+        schema.add("properties", rootProperties);
+        schema.add("required", stringArray("variants"));
+        return schema;
+    }
+
+    private static JsonObject stringProperty() {
+        JsonObject property = new JsonObject();
+        property.addProperty("type", "string");
+        return property;
+    }
+
+    private static JsonArray stringArray(String... values) {
+        JsonArray array = new JsonArray();
+        for (String value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,169 @@
+package com.burp.llm.api;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-pass token estimate that approximates BPE tokenizers without loading a vocabulary:
+// words cost about one token per four letters, digits one per three, runs of punctuation one per
+// three characters (vocabularies hold merges such as `":"`, `","`, `{"` and `</`), and non-ASCII text
+// roughly one per character. A per-family factor corrects for vocabulary size.
+public final class TokenEstimator {
+    private static final Map<String, TokenEstimator> BY_FAMILY = new ConcurrentHashMap<>();
+
+    // Families whose tokenizers split text noticeably finer or coarser than the base heuristic
+    private static final String[][] FAMILY_FACTORS = {
+        {"mistral", "1.10"},
+        {"mixtral", "1.10"},
+        {"llama2", "1.12"},
+        {"codellama", "1.12"},
+        {"phi", "1.05"},
+        {"gemma", "0.95"},
+        {"qwen", "1.00"},
+        {"deepseek", "1.00"},
+        {"llama", "1.00"},
+    };
+
+    private static final byte OTHER = 0;
+    private static final byte LETTER = 1;
+    private static final byte DIGIT = 2;
+    private static final byte SPACE = 3;
+    private static final byte BREAK = 4;
+    private static final byte PUNCTUATION = 5;
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (char c = '!'; c <= '~'; c++) {
+            CHAR_CLASS[c] = PUNCTUATION;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASS[c] = LETTER;
+            CHAR_CLASS[Character.toUpperCase(c)] = LETTER;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASS[c] = DIGIT;
+        }
+        CHAR_CLASS[' '] = SPACE;
+        CHAR_CLASS['\n'] = BREAK;
+        CHAR_CLASS['\r'] = BREAK;
+        CHAR_CLASS['\t'] = BREAK;
+    }
+
+    // Per-message overhead of the chat template (role markers and separators)
+    public static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final double factor;
+
+    private TokenEstimator(double factor) {
+        this.factor = factor;
+    }
+
+    public static TokenEstimator forModel(String model) {
+        return BY_FAMILY.computeIfAbsent(family(model), f -> new TokenEstimator(factorFor(f)));
+    }
+
+    public int estimate(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+
+        int tokens = 0;
+        int wordRun = 0;
+        int digitRun = 0;
+        int punctuationRun = 0;
+        boolean afterNewline = false;
+
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            byte kind = c < 128 ? CHAR_CLASS[c] : OTHER;
+            if (kind == PUNCTUATION) {
+                if (wordRun > 0) {
+                    tokens += (wordRun + 3) / 4;
+                    wordRun = 0;
+                }
+                if (digitRun > 0) {
+                    tokens += (digitRun + 2) / 3;
+                    digitRun = 0;
+                }
+                punctuationRun++;
+                afterNewline = false;
+                continue;
+            }
+            if (punctuationRun > 0) {
+                tokens += (punctuationRun + 2) / 3;
+                punctuationRun = 0;
+            }
+            if (kind == LETTER) {
+                if (digitRun > 0) {
+                    tokens += (digitRun + 2) / 3;
+                    digitRun = 0;
+                }
+                wordRun++;
+                afterNewline = false;
+                continue;
+            }
+            if (kind == DIGIT) {
+                if (wordRun > 0) {
+                    tokens += (wordRun + 3) / 4;
+                    wordRun = 0;
+                }
+                digitRun++;
+                afterNewline = false;
+                continue;
+            }
+
+            if (wordRun > 0) {
+                tokens += (wordRun + 3) / 4;
+                wordRun = 0;
+            }
+            if (digitRun > 0) {
+                tokens += (digitRun + 2) / 3;
+                digitRun = 0;
+            }
+
+            if (kind == SPACE) {
+                // A single space is merged into the following word
+                continue;
+            }
+            if (kind == BREAK) {
+                // Runs of line breaks and indentation usually collapse into one token
+                if (!afterNewline) {
+                    tokens++;
+                    afterNewline = true;
+                }
+                continue;
+            }
+            afterNewline = false;
+            tokens++;
+        }
+
+        tokens += (wordRun + 3) / 4 + (digitRun + 2) / 3 + (punctuationRun + 2) / 3;
+        return (int) Math.ceil(tokens * factor);
+    }
+
+    private static String family(String model) {
+        if (model == null) {
+            return "default";
+        }
+        String name = model.toLowerCase(Locale.ROOT);
+        int slash = name.lastIndexOf('/');
+        if (slash >= 0) {
+            name = name.substring(slash + 1);
+        }
+        for (String[] entry : FAMILY_FACTORS) {
+            if (name.startsWith(entry[0])) {
+                return entry[0];
+            }
+        }
+        return "default";
+    }
+
+    private static double factorFor(String family) {
+        for (String[] entry : FAMILY_FACTORS) {
+            if (entry[0].equals(family)) {
+                return Double.parseDouble(entry[1]);
+            }
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.burp.llm.api;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bytes on the wire for calls to the model servers. A call that carries a Call tag reports its own
+// numbers through it; every call adds to the totals shown in the config tab. Connection counts show
+// whether concurrent streams share HTTP/2 connections.
+public class WireStats implements EventListener.Factory {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong multiplexed = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong bodyBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    @Override
+    public EventListener create(Call call) {
+        CallStats stats = call.request().tag(CallStats.class);
+        return stats != null ? stats : new CallStats(-1);
+    }
+
+    public String getSummary() {
+        long saved = bodyBytes.get() - sentBytes.get();
+        return String.format("%d requests over %d connections (%d on HTTP/2), %s sent%s, %s received",
+            requests.get(), connections.get(), multiplexed.get(), formatBytes(sentBytes.get()),
+            saved > 0 ? " (" + formatBytes(saved) + " saved by compression)" : "", formatBytes(receivedBytes.get()));
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    // Numbers for one call; attach with Request.Builder.tag(WireStats.CallStats.class, stats)
+    public class CallStats extends EventListener {
+        // Size of the body before compression, or -1 when the caller did not say
+        private final long uncompressedBytes;
+        private volatile long sent;
+        private volatile long received;
+        private volatile Protocol protocol;
+        private volatile ChatEvents.Connect connect;
+
+        public CallStats(long uncompressedBytes) {
+            this.uncompressedBytes = uncompressedBytes;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            ChatEvents.Connect event = new ChatEvents.Connect();
+            event.begin();
+            connect = event;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connections.incrementAndGet();
+            commitConnect(inetSocketAddress, protocol, false);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+            commitConnect(inetSocketAddress, protocol, true);
+        }
+
+        private void commitConnect(InetSocketAddress address, Protocol protocol, boolean failed) {
+            ChatEvents.Connect event = connect;
+            connect = null;
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.address = String.valueOf(address);
+                    event.protocol = protocol != null ? protocol.toString() : null;
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            protocol = connection.protocol();
+            requests.incrementAndGet();
+            if (protocol == Protocol.HTTP_2 || protocol == Protocol.H2_PRIOR_KNOWLEDGE) {
+                multiplexed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            sent = byteCount;
+            sentBytes.addAndGet(byteCount);
+            bodyBytes.addAndGet(uncompressedBytes >= 0 ? uncompressedBytes : byteCount);
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            received = byteCount;
+            receivedBytes.addAndGet(byteCount);
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        // "182.4 KB (1.2 MB uncompressed) over h2"
+        public String describeUpload() {
+            StringBuilder text = new StringBuilder(formatBytes(sent));
+            if (uncompressedBytes > sent) {
+                text.append(" (").append(formatBytes(uncompressedBytes)).append(" uncompressed)");
+            }
+            if (protocol != null) {
+                text.append(" over ").append(protocol);
+            }
+            return text.toString();
+        }
+    }
+}
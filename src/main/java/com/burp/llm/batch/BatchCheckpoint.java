@@ -0,0 +1,55 @@
+package com.burp.llm.batch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.stream.Stream;
+
+// Append-only log of finished item indices, so an interrupted run can resume where it stopped
+public class BatchCheckpoint implements AutoCloseable {
+    private final BitSet completed;
+    private final BufferedWriter writer;
+
+    public BatchCheckpoint(Path path) throws IOException {
+        this.completed = new BitSet();
+        if (Files.exists(path)) {
+            try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                lines.map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .forEach(line -> {
+                        try {
+                            completed.set(Integer.parseInt(line));
+                        } catch (NumberFormatException e) {
+                            // A torn last line from a killed run is simply redone
+                        }
+                    });
+            }
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public synchronized boolean isCompleted(long index) {
+        return completed.get((int) index);
+    }
+
+    public synchronized int completedCount() {
+        return completed.cardinality();
+    }
+
+    public synchronized void markCompleted(long index) throws IOException {
+        completed.set((int) index);
+        writer.write(Long.toString(index));
+        writer.newLine();
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,244 @@
+package com.burp.llm.batch;
+
+import com.burp.llm.api.CircuitBreaker;
+import com.burp.llm.api.CircuitOpenException;
+import com.burp.llm.api.OllamaClient;
+import com.burp.llm.config.ConfigSettings;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless entry point: java -cp burp-llm-jar-with-dependencies.jar com.burp.llm.batch.BatchRunner --input items.xml
+public class BatchRunner {
+    private static final String DEFAULT_QUESTION =
+        "Identify likely security vulnerabilities in this request/response. Answer concisely, or say 'none'.";
+
+    private final ConfigSettings configSettings;
+    private final OllamaClient ollamaClient;
+    private final Gson gson;
+    private final AtomicInteger analyzed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private String question = DEFAULT_QUESTION;
+    private int concurrency = 2;
+    private int maxChars = 100_000;
+
+    public BatchRunner(ConfigSettings configSettings) {
+        this.configSettings = configSettings;
+        this.ollamaClient = new OllamaClient(configSettings);
+        this.gson = new Gson();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigSettings configSettings = new ConfigSettings();
+        BatchRunner runner = new BatchRunner(configSettings);
+        Path input = null;
+        Path output = Paths.get("findings.jsonl");
+        Path checkpoint = null;
+        String format = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (arg) {
+                case "--input" -> input = Paths.get(require(arg, value));
+                case "--output" -> output = Paths.get(require(arg, value));
+                case "--checkpoint" -> checkpoint = Paths.get(require(arg, value));
+                case "--format" -> format = require(arg, value).toLowerCase();
+                case "--server" -> configSettings.setOllamaServer(require(arg, value));
+                case "--model" -> configSettings.setModel(require(arg, value));
+                case "--keep-alive" -> configSettings.setKeepAlive(require(arg, value));
+                case "--system-prompt" -> {
+                    configSettings.setSystemPrompt(require(arg, value));
+                    configSettings.setUseSystemPrompt(true);
+                }
+                case "--header" -> {
+                    String header = require(arg, value);
+                    int colon = header.indexOf(':');
+                    if (colon <= 0) {
+                        usage("Header must look like 'Name: value'");
+                    }
+                    configSettings.addCustomHeader(new ConfigSettings.CustomHeader(
+                        header.substring(0, colon).trim(), header.substring(colon + 1).trim()));
+                }
+                case "--question" -> runner.question = require(arg, value);
+                case "--concurrency" -> {
+                    runner.concurrency = Integer.parseInt(require(arg, value));
+                    if (runner.concurrency < 1) {
+                        usage("--concurrency must be at least 1");
+                    }
+                }
+                case "--max-chars" -> {
+                    runner.maxChars = Integer.parseInt(require(arg, value));
+                    if (runner.maxChars < 1) {
+                        usage("--max-chars must be at least 1");
+                    }
+                }
+                default -> usage("Unknown option " + arg);
+            }
+            i++;
+        }
+
+        if (input == null) {
+            usage("--input is required");
+        }
+        if (checkpoint == null) {
+            checkpoint = Paths.get(output + ".checkpoint");
+        }
+        if (format == null) {
+            format = input.toString().toLowerCase().endsWith(".har") ? "har" : "burp";
+        }
+
+        runner.run(input, format, output, checkpoint);
+    }
+
+    public void run(Path input, String format, Path output, Path checkpointPath) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Only read ahead a little, so a slow model never pulls the whole archive into memory
+        Semaphore pending = new Semaphore(concurrency * 2);
+        long started = System.currentTimeMillis();
+        int skipped = 0;
+
+        try (HttpItemSource source = openSource(input, format);
+             BatchCheckpoint checkpoint = new BatchCheckpoint(checkpointPath);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                 StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            HttpItem item;
+            while ((item = source.next()) != null) {
+                if (checkpoint.isCompleted(item.getIndex())) {
+                    skipped++;
+                    continue;
+                }
+
+                pending.acquire();
+                awaitBackends();
+                final HttpItem current = item;
+                executor.execute(() -> {
+                    try {
+                        analyzeItem(current, writer, checkpoint);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        System.err.printf("Analyzed %d items (%d failed, %d already done) in %ds%n",
+            analyzed.get(), failed.get(), skipped, (System.currentTimeMillis() - started) / 1000);
+    }
+
+    private void analyzeItem(HttpItem item, BufferedWriter writer, BatchCheckpoint checkpoint) {
+        long itemStart = System.currentTimeMillis();
+        JsonObject finding = new JsonObject();
+        finding.addProperty("index", item.getIndex());
+        finding.addProperty("method", item.getMethod());
+        finding.addProperty("url", item.getUrl());
+        finding.addProperty("status", item.getStatus());
+        finding.addProperty("model", configSettings.getModel());
+
+        boolean success;
+        try {
+            finding.addProperty("finding", analyzeWhenAvailable(item));
+            success = true;
+            analyzed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException e) {
+            finding.addProperty("error", e.getMessage());
+            success = false;
+            failed.incrementAndGet();
+        }
+        finding.addProperty("elapsedMs", System.currentTimeMillis() - itemStart);
+
+        try {
+            synchronized (writer) {
+                writer.write(gson.toJson(finding));
+                writer.newLine();
+                writer.flush();
+            }
+            // Failed items are retried on the next run
+            if (success) {
+                checkpoint.markCompleted(item.getIndex());
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing finding for item " + item.getIndex() + ": " + e.getMessage());
+        }
+    }
+
+    // Items that hit an open circuit are not failures: they wait for a backend to come back and run again
+    private String analyzeWhenAvailable(HttpItem item) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return ollamaClient.analyze(item.getRequest(), item.getResponse(), question);
+            } catch (CircuitOpenException e) {
+                awaitBackends();
+            }
+        }
+    }
+
+    private void awaitBackends() throws InterruptedException {
+        CircuitBreaker circuitBreaker = ollamaClient.getCircuitBreaker();
+        List<String> backends = configSettings.getBackends();
+        for (String backend : backends) {
+            if (circuitBreaker.allowRequest(backend)) {
+                return;
+            }
+        }
+        System.err.println("Paused: " + ollamaClient.getCircuitSummary());
+        circuitBreaker.awaitAvailable(backends);
+        System.err.println("Resumed");
+    }
+
+    private HttpItemSource openSource(Path input, String format) throws IOException {
+        return switch (format) {
+            case "har" -> new HarItemSource(input, maxChars);
+            case "burp", "xml" -> new BurpXmlItemSource(input, maxChars);
+            default -> throw new IOException("Unsupported format: " + format);
+        };
+    }
+
+    private static String require(String option, String value) {
+        if (value == null) {
+            usage(option + " needs a value");
+        }
+        return value;
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("""
+            Usage: BatchRunner --input <items.xml|archive.har> [options]
+              --format burp|har        Input format (default: from file extension)
+              --output <file>          JSONL findings file, appended to (default: findings.jsonl)
+              --checkpoint <file>      Resume file (default: <output>.checkpoint)
+              --server <url>           Ollama server URL
+              --model <name>           Model name
+              --keep-alive <duration>  keep_alive sent with each request
+              --system-prompt <text>   System prompt
+              --header 'Name: value'   Custom header, may be repeated
+              --question <text>        Question asked about every item
+              --concurrency <n>        Parallel analyses (default: 2)
+              --max-chars <n>          Truncate each request/response to n characters (default: 100000)
+            """);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,125 @@
+package com.burp.llm.batch;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+// Reads the <items><item>...</item></items> format produced by Burp's "Save items"
+public class BurpXmlItemSource implements HttpItemSource {
+    private final InputStream input;
+    private final XMLStreamReader reader;
+    private final int maxChars;
+    private long index;
+
+    public BurpXmlItemSource(Path path, int maxChars) throws IOException {
+        this.input = new BufferedInputStream(Files.newInputStream(path));
+        this.maxChars = maxChars;
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Exports carry an inline DTD; never resolve external entities from untrusted archives
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        try {
+            this.reader = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            input.close();
+            throw new IOException("Cannot read Burp XML export: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public HttpItem next() throws IOException {
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "item".equals(reader.getLocalName())) {
+                    return readItem();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed Burp XML export near item " + index + ": " + e.getMessage(), e);
+        }
+    }
+
+    private HttpItem readItem() throws XMLStreamException {
+        String method = "";
+        String url = "";
+        int status = 0;
+        String request = "";
+        String response = "";
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "item".equals(reader.getLocalName())) {
+                break;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            String name = reader.getLocalName();
+            boolean base64 = "true".equals(reader.getAttributeValue(null, "base64"));
+            switch (name) {
+                case "method" -> method = reader.getElementText().trim();
+                case "url" -> url = reader.getElementText().trim();
+                case "status" -> status = parseStatus(reader.getElementText());
+                case "request" -> request = decode(reader.getElementText(), base64);
+                case "response" -> response = decode(reader.getElementText(), base64);
+                default -> skipElement();
+            }
+        }
+
+        return new HttpItem(index++, method, url, status, request, response);
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private String decode(String text, boolean base64) {
+        String decoded = text;
+        if (base64) {
+            try {
+                decoded = new String(Base64.getMimeDecoder().decode(text), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                // A malformed message is still worth analyzing as exported, rather than failing the whole file
+            }
+        }
+        return decoded.length() > maxChars ? decoded.substring(0, maxChars) : decoded;
+    }
+
+    private static int parseStatus(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // Closing the underlying stream below is what matters
+        }
+        input.close();
+    }
+}
@@ -0,0 +1,136 @@
+package com.burp.llm.batch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+// Walks log.entries of a HAR file with a streaming reader, materialising one entry at a time
+public class HarItemSource implements HttpItemSource {
+    private final JsonReader reader;
+    private final int maxChars;
+    private boolean inEntries;
+    private boolean finished;
+    private long index;
+
+    public HarItemSource(Path path, int maxChars) throws IOException {
+        this.reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public HttpItem next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (!inEntries && !seekEntries()) {
+            finished = true;
+            return null;
+        }
+        if (!reader.hasNext()) {
+            finished = true;
+            return null;
+        }
+
+        JsonObject entry = JsonParser.parseReader(reader).getAsJsonObject();
+        JsonObject request = entry.has("request") ? entry.getAsJsonObject("request") : new JsonObject();
+        JsonObject response = entry.has("response") ? entry.getAsJsonObject("response") : new JsonObject();
+
+        String method = string(request, "method");
+        String url = string(request, "url");
+        int status = response.has("status") ? response.get("status").getAsInt() : 0;
+
+        return new HttpItem(index++, method, url, status, formatRequest(request), formatResponse(response));
+    }
+
+    private boolean seekEntries() throws IOException {
+        if (!enterObjectMember("log")) {
+            return false;
+        }
+        if (!enterObjectMember("entries")) {
+            return false;
+        }
+        reader.beginArray();
+        inEntries = true;
+        return true;
+    }
+
+    // Consumes the current object up to the named member and leaves the reader positioned on its value
+    private boolean enterObjectMember(String member) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(member) && reader.peek() != JsonToken.NULL) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private String formatRequest(JsonObject request) {
+        StringBuilder raw = new StringBuilder();
+        raw.append(string(request, "method")).append(' ')
+            .append(string(request, "url")).append(' ')
+            .append(string(request, "httpVersion")).append("\r\n");
+        appendHeaders(raw, request);
+        if (request.has("postData") && request.get("postData").isJsonObject()) {
+            raw.append(string(request.getAsJsonObject("postData"), "text"));
+        }
+        return truncate(raw);
+    }
+
+    private String formatResponse(JsonObject response) {
+        StringBuilder raw = new StringBuilder();
+        raw.append(string(response, "httpVersion")).append(' ')
+            .append(response.has("status") ? response.get("status").getAsString() : "").append(' ')
+            .append(string(response, "statusText")).append("\r\n");
+        appendHeaders(raw, response);
+        if (response.has("content") && response.get("content").isJsonObject()) {
+            JsonObject content = response.getAsJsonObject("content");
+            String text = string(content, "text");
+            if ("base64".equals(string(content, "encoding"))) {
+                try {
+                    text = new String(Base64.getMimeDecoder().decode(text), StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    // A malformed body is still worth analyzing as sent, rather than failing the whole archive
+                }
+            }
+            raw.append(text);
+        }
+        return truncate(raw);
+    }
+
+    private static void appendHeaders(StringBuilder raw, JsonObject message) {
+        if (message.has("headers") && message.get("headers").isJsonArray()) {
+            JsonArray headers = message.getAsJsonArray("headers");
+            for (JsonElement header : headers) {
+                JsonObject headerObj = header.getAsJsonObject();
+                raw.append(string(headerObj, "name")).append(": ").append(string(headerObj, "value")).append("\r\n");
+            }
+        }
+        raw.append("\r\n");
+    }
+
+    private static String string(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element != null && !element.isJsonNull() ? element.getAsString() : "";
+    }
+
+    private String truncate(StringBuilder raw) {
+        return raw.length() > maxChars ? raw.substring(0, maxChars) : raw.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
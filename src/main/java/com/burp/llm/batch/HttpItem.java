@@ -0,0 +1,43 @@
+package com.burp.llm.batch;
+
+public class HttpItem {
+    private final long index;
+    private final String method;
+    private final String url;
+    private final int status;
+    private final String request;
+    private final String response;
+
+    public HttpItem(long index, String method, String url, int status, String request, String response) {
+        this.index = index;
+        this.method = method;
+        this.url = url;
+        this.status = status;
+        this.request = request;
+        this.response = response;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,9 @@
+package com.burp.llm.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Pulls one item at a time from an archive so that only the current item is held in memory
+public interface HttpItemSource extends Closeable {
+    HttpItem next() throws IOException;
+}
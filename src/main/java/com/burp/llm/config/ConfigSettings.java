@@ -2,6 +2,9 @@ package com.burp.llm.config;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ConfigSettings {
@@ -16,12 +19,58 @@ public class ConfigSettings {
     private int connectTimeoutSeconds = 30;
     private int writeTimeoutSeconds = 30;
     private int readTimeoutSeconds = 60;
+    private int firstTokenTimeoutSeconds = 120;
+    private int idleTimeoutSeconds = 30;
+    private int totalTimeoutSeconds = 600;
+    private boolean adaptiveTimeouts = true;
     private boolean useSystemPrompt = false;
     private String systemPrompt = "";
     private String chatApiEndpoint = "/api/chat";
+    private String keepAlive = "30m";
+    private boolean warmUpOnChange = true;
+    private boolean keepWarmEnabled = false;
+    private int keepWarmIntervalMinutes = 4;
+    private int workingHoursStart = 9;
+    private int workingHoursEnd = 18;
+    private String userId = System.getProperty("user.name", "burp");
+    private int backendRequestsPerMinute = 60;
+    private int userRequestsPerMinute = 30;
+    private int maxInFlightPerBackend = 2;
+    private int maxQueuedPromptTokens = 200000;
+    private int maxQueueWaitSeconds = 300;
+    private int backgroundSharePercent = 25;
+    private boolean preemptBackground = true;
+    private final List<String> additionalServers;
+    private final List<String> compareTargets;
+    private boolean hedgingEnabled = false;
+    private int hedgePercentile = 95;
+    private int hedgeBudgetPercent = 10;
+    private boolean raiseAuditIssues = false;
+    private boolean chunkedAnalysis = true;
+    private int maxAnalysisChunks = 32;
+    private boolean redactSecrets = true;
+    private boolean compressRequests = false;
+    private boolean http2Cleartext = false;
+    private int intruderPayloadCount = 500;
+    private int intruderBatchSize = 50;
+    private int verifyMaxVariants = 8;
+    private int verifyConcurrencyPerHost = 4;
+    private int verifyHostDelayMillis = 100;
+    private int verifyTimeoutSeconds = 15;
+    private boolean targetKnowledge = true;
+    private int knowledgeTokenCap = 400;
+    private int knowledgePrefixTokens = 250;
+    private int webSocketBufferKb = 256;
+    private int webSocketContextTokens = 2000;
+    private final Map<String, ThinkMode> thinkModes;
+    private final Map<String, GenerationProfile> generationProfiles;
 
     public ConfigSettings() {
         this.customHeaders = new CopyOnWriteArrayList<>();
+        this.additionalServers = new CopyOnWriteArrayList<>();
+        this.compareTargets = new CopyOnWriteArrayList<>();
+        this.thinkModes = new ConcurrentHashMap<>();
+        this.generationProfiles = new ConcurrentHashMap<>();
         this.listeners = new ArrayList<>();
     }
 
@@ -145,6 +194,59 @@ public class ConfigSettings {
         }
     }
 
+    // Ollama generation options for one model; unset values leave the server default
+    public static class GenerationProfile {
+        public static final GenerationProfile DEFAULT = new GenerationProfile(0, 0, null, List.of());
+
+        private final int numCtx;
+        private final int numPredict;
+        private final Double temperature;
+        private final List<String> stop;
+
+        // numCtx <= 0 sizes the context from the prompt; numPredict <= 0 leaves the length unlimited
+        public GenerationProfile(int numCtx, int numPredict, Double temperature, List<String> stop) {
+            this.numCtx = Math.max(0, numCtx);
+            this.numPredict = Math.max(0, numPredict);
+            this.temperature = temperature;
+            this.stop = List.copyOf(stop);
+        }
+
+        public int getNumCtx() {
+            return numCtx;
+        }
+
+        public boolean isAutoContext() {
+            return numCtx == 0;
+        }
+
+        public int getNumPredict() {
+            return numPredict;
+        }
+
+        public Double getTemperature() {
+            return temperature;
+        }
+
+        public List<String> getStop() {
+            return stop;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof GenerationProfile)) {
+                return false;
+            }
+            GenerationProfile other = (GenerationProfile) o;
+            return numCtx == other.numCtx && numPredict == other.numPredict
+                && Objects.equals(temperature, other.temperature) && stop.equals(other.stop);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(numCtx, numPredict, temperature, stop);
+        }
+    }
+
     public interface ConfigChangeListener {
         void onConfigChanged();
     }
@@ -191,6 +293,49 @@ public class ConfigSettings {
         }
     }
 
+    public int getFirstTokenTimeoutSeconds() {
+        return firstTokenTimeoutSeconds;
+    }
+
+    public void setFirstTokenTimeoutSeconds(int firstTokenTimeoutSeconds) {
+        if (firstTokenTimeoutSeconds > 0) {
+            this.firstTokenTimeoutSeconds = firstTokenTimeoutSeconds;
+            notifyListeners();
+        }
+    }
+
+    public int getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(int idleTimeoutSeconds) {
+        if (idleTimeoutSeconds > 0) {
+            this.idleTimeoutSeconds = idleTimeoutSeconds;
+            notifyListeners();
+        }
+    }
+
+    public int getTotalTimeoutSeconds() {
+        return totalTimeoutSeconds;
+    }
+
+    public void setTotalTimeoutSeconds(int totalTimeoutSeconds) {
+        if (totalTimeoutSeconds > 0) {
+            this.totalTimeoutSeconds = totalTimeoutSeconds;
+            notifyListeners();
+        }
+    }
+
+    // When enabled the stream budgets above are upper bounds and tighter ones are learned per model and backend
+    public boolean isAdaptiveTimeouts() {
+        return adaptiveTimeouts;
+    }
+
+    public void setAdaptiveTimeouts(boolean adaptiveTimeouts) {
+        this.adaptiveTimeouts = adaptiveTimeouts;
+        notifyListeners();
+    }
+
     public boolean isUseSystemPrompt() {
         return useSystemPrompt;
     }
@@ -221,4 +366,442 @@ public class ConfigSettings {
             notifyListeners();
         }
     }
-} 
\ No newline at end of file
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(String keepAlive) {
+        // Empty keep_alive means "use the server default"
+        this.keepAlive = keepAlive != null ? keepAlive.trim() : "";
+        notifyListeners();
+    }
+
+    public boolean isWarmUpOnChange() {
+        return warmUpOnChange;
+    }
+
+    public void setWarmUpOnChange(boolean warmUpOnChange) {
+        this.warmUpOnChange = warmUpOnChange;
+        notifyListeners();
+    }
+
+    public boolean isKeepWarmEnabled() {
+        return keepWarmEnabled;
+    }
+
+    public void setKeepWarmEnabled(boolean keepWarmEnabled) {
+        this.keepWarmEnabled = keepWarmEnabled;
+        notifyListeners();
+    }
+
+    public int getKeepWarmIntervalMinutes() {
+        return keepWarmIntervalMinutes;
+    }
+
+    public void setKeepWarmIntervalMinutes(int keepWarmIntervalMinutes) {
+        if (keepWarmIntervalMinutes > 0) {
+            this.keepWarmIntervalMinutes = keepWarmIntervalMinutes;
+            notifyListeners();
+        }
+    }
+
+    public int getWorkingHoursStart() {
+        return workingHoursStart;
+    }
+
+    public int getWorkingHoursEnd() {
+        return workingHoursEnd;
+    }
+
+    public void setWorkingHours(int start, int end) {
+        if (start >= 0 && start <= 23 && end >= 1 && end <= 24 && start < end) {
+            this.workingHoursStart = start;
+            this.workingHoursEnd = end;
+            notifyListeners();
+        }
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        if (userId != null && !userId.trim().isEmpty()) {
+            this.userId = userId.trim();
+            notifyListeners();
+        }
+    }
+
+    public int getBackendRequestsPerMinute() {
+        return backendRequestsPerMinute;
+    }
+
+    public void setBackendRequestsPerMinute(int backendRequestsPerMinute) {
+        if (backendRequestsPerMinute > 0) {
+            this.backendRequestsPerMinute = backendRequestsPerMinute;
+            notifyListeners();
+        }
+    }
+
+    public int getUserRequestsPerMinute() {
+        return userRequestsPerMinute;
+    }
+
+    public void setUserRequestsPerMinute(int userRequestsPerMinute) {
+        if (userRequestsPerMinute > 0) {
+            this.userRequestsPerMinute = userRequestsPerMinute;
+            notifyListeners();
+        }
+    }
+
+    public int getMaxInFlightPerBackend() {
+        return maxInFlightPerBackend;
+    }
+
+    public void setMaxInFlightPerBackend(int maxInFlightPerBackend) {
+        if (maxInFlightPerBackend > 0) {
+            this.maxInFlightPerBackend = maxInFlightPerBackend;
+            notifyListeners();
+        }
+    }
+
+    public int getMaxQueuedPromptTokens() {
+        return maxQueuedPromptTokens;
+    }
+
+    public void setMaxQueuedPromptTokens(int maxQueuedPromptTokens) {
+        if (maxQueuedPromptTokens > 0) {
+            this.maxQueuedPromptTokens = maxQueuedPromptTokens;
+            notifyListeners();
+        }
+    }
+
+    public int getMaxQueueWaitSeconds() {
+        return maxQueueWaitSeconds;
+    }
+
+    public void setMaxQueueWaitSeconds(int maxQueueWaitSeconds) {
+        if (maxQueueWaitSeconds > 0) {
+            this.maxQueueWaitSeconds = maxQueueWaitSeconds;
+            notifyListeners();
+        }
+    }
+
+    // Share of each backend's in-flight slots that background work keeps while interactive requests wait
+    public int getBackgroundSharePercent() {
+        return backgroundSharePercent;
+    }
+
+    public void setBackgroundSharePercent(int backgroundSharePercent) {
+        if (backgroundSharePercent >= 0 && backgroundSharePercent <= 100) {
+            this.backgroundSharePercent = backgroundSharePercent;
+            notifyListeners();
+        }
+    }
+
+    public boolean isPreemptBackground() {
+        return preemptBackground;
+    }
+
+    public void setPreemptBackground(boolean preemptBackground) {
+        this.preemptBackground = preemptBackground;
+        notifyListeners();
+    }
+
+    public List<String> getAdditionalServers() {
+        return new ArrayList<>(additionalServers);
+    }
+
+    public void setAdditionalServers(List<String> servers) {
+        additionalServers.clear();
+        for (String server : servers) {
+            if (server != null && !server.trim().isEmpty()) {
+                additionalServers.add(server.trim());
+            }
+        }
+        notifyListeners();
+    }
+
+    // "model" or "model@server URL", one per column of the chat tab's compare mode
+    public List<String> getCompareTargets() {
+        return new ArrayList<>(compareTargets);
+    }
+
+    public void setCompareTargets(List<String> targets) {
+        compareTargets.clear();
+        for (String target : targets) {
+            if (target != null && !target.trim().isEmpty()) {
+                compareTargets.add(target.trim());
+            }
+        }
+        notifyListeners();
+    }
+
+    // The primary server always comes first
+    public List<String> getBackends() {
+        List<String> backends = new ArrayList<>();
+        backends.add(ollamaServer);
+        for (String server : additionalServers) {
+            if (!backends.contains(server)) {
+                backends.add(server);
+            }
+        }
+        return backends;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    public void setHedgingEnabled(boolean hedgingEnabled) {
+        this.hedgingEnabled = hedgingEnabled;
+        notifyListeners();
+    }
+
+    public int getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(int hedgePercentile) {
+        if (hedgePercentile > 0 && hedgePercentile < 100) {
+            this.hedgePercentile = hedgePercentile;
+            notifyListeners();
+        }
+    }
+
+    public int getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public void setHedgeBudgetPercent(int hedgeBudgetPercent) {
+        if (hedgeBudgetPercent > 0 && hedgeBudgetPercent <= 100) {
+            this.hedgeBudgetPercent = hedgeBudgetPercent;
+            notifyListeners();
+        }
+    }
+
+    public boolean isRaiseAuditIssues() {
+        return raiseAuditIssues;
+    }
+
+    public void setRaiseAuditIssues(boolean raiseAuditIssues) {
+        this.raiseAuditIssues = raiseAuditIssues;
+        notifyListeners();
+    }
+
+    public boolean isChunkedAnalysis() {
+        return chunkedAnalysis;
+    }
+
+    public void setChunkedAnalysis(boolean chunkedAnalysis) {
+        this.chunkedAnalysis = chunkedAnalysis;
+        notifyListeners();
+    }
+
+    public int getMaxAnalysisChunks() {
+        return maxAnalysisChunks;
+    }
+
+    public void setMaxAnalysisChunks(int maxAnalysisChunks) {
+        if (maxAnalysisChunks > 0) {
+            this.maxAnalysisChunks = maxAnalysisChunks;
+            notifyListeners();
+        }
+    }
+
+    public boolean isRedactSecrets() {
+        return redactSecrets;
+    }
+
+    public void setRedactSecrets(boolean redactSecrets) {
+        this.redactSecrets = redactSecrets;
+        notifyListeners();
+    }
+
+    public boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    public void setCompressRequests(boolean compressRequests) {
+        this.compressRequests = compressRequests;
+        notifyListeners();
+    }
+
+    public boolean isHttp2Cleartext() {
+        return http2Cleartext;
+    }
+
+    public void setHttp2Cleartext(boolean http2Cleartext) {
+        this.http2Cleartext = http2Cleartext;
+        notifyListeners();
+    }
+
+    public int getIntruderPayloadCount() {
+        return intruderPayloadCount;
+    }
+
+    public void setIntruderPayloadCount(int intruderPayloadCount) {
+        if (intruderPayloadCount > 0) {
+            this.intruderPayloadCount = intruderPayloadCount;
+            notifyListeners();
+        }
+    }
+
+    public int getIntruderBatchSize() {
+        return intruderBatchSize;
+    }
+
+    public void setIntruderBatchSize(int intruderBatchSize) {
+        if (intruderBatchSize > 0 && intruderBatchSize <= 500) {
+            this.intruderBatchSize = intruderBatchSize;
+            notifyListeners();
+        }
+    }
+
+    public int getVerifyMaxVariants() {
+        return verifyMaxVariants;
+    }
+
+    public void setVerifyMaxVariants(int verifyMaxVariants) {
+        if (verifyMaxVariants > 0 && verifyMaxVariants <= 50) {
+            this.verifyMaxVariants = verifyMaxVariants;
+            notifyListeners();
+        }
+    }
+
+    // Test requests in flight at once to one host, across all chat tabs
+    public int getVerifyConcurrencyPerHost() {
+        return verifyConcurrencyPerHost;
+    }
+
+    public void setVerifyConcurrencyPerHost(int verifyConcurrencyPerHost) {
+        if (verifyConcurrencyPerHost > 0 && verifyConcurrencyPerHost <= 32) {
+            this.verifyConcurrencyPerHost = verifyConcurrencyPerHost;
+            notifyListeners();
+        }
+    }
+
+    // Minimum gap between the starts of two test requests to the same host
+    public int getVerifyHostDelayMillis() {
+        return verifyHostDelayMillis;
+    }
+
+    public void setVerifyHostDelayMillis(int verifyHostDelayMillis) {
+        if (verifyHostDelayMillis >= 0) {
+            this.verifyHostDelayMillis = verifyHostDelayMillis;
+            notifyListeners();
+        }
+    }
+
+    public int getVerifyTimeoutSeconds() {
+        return verifyTimeoutSeconds;
+    }
+
+    public void setVerifyTimeoutSeconds(int verifyTimeoutSeconds) {
+        if (verifyTimeoutSeconds > 0) {
+            this.verifyTimeoutSeconds = verifyTimeoutSeconds;
+            notifyListeners();
+        }
+    }
+
+    // Whether facts about each host are learned from answers and sent ahead of new chats about it
+    public boolean isTargetKnowledge() {
+        return targetKnowledge;
+    }
+
+    public void setTargetKnowledge(boolean targetKnowledge) {
+        this.targetKnowledge = targetKnowledge;
+        notifyListeners();
+    }
+
+    // Size the facts kept about one host are summarized down to
+    public int getKnowledgeTokenCap() {
+        return knowledgeTokenCap;
+    }
+
+    public void setKnowledgeTokenCap(int knowledgeTokenCap) {
+        if (knowledgeTokenCap >= 50 && knowledgeTokenCap <= 4000) {
+            this.knowledgeTokenCap = knowledgeTokenCap;
+            notifyListeners();
+        }
+    }
+
+    // Share of those facts sent with a chat; the ones most relevant to its first question are picked
+    public int getKnowledgePrefixTokens() {
+        return knowledgePrefixTokens;
+    }
+
+    public void setKnowledgePrefixTokens(int knowledgePrefixTokens) {
+        if (knowledgePrefixTokens > 0 && knowledgePrefixTokens <= 4000) {
+            this.knowledgePrefixTokens = knowledgePrefixTokens;
+            notifyListeners();
+        }
+    }
+
+    // Ring buffer kept per WebSocket connection for the latest frames; takes effect for new connections
+    public int getWebSocketBufferKb() {
+        return webSocketBufferKb;
+    }
+
+    public void setWebSocketBufferKb(int webSocketBufferKb) {
+        if (webSocketBufferKb >= 16 && webSocketBufferKb <= 8192) {
+            this.webSocketBufferKb = webSocketBufferKb;
+            notifyListeners();
+        }
+    }
+
+    // Frames sent with a WebSocket chat question are picked to fit this many tokens
+    public int getWebSocketContextTokens() {
+        return webSocketContextTokens;
+    }
+
+    public void setWebSocketContextTokens(int webSocketContextTokens) {
+        if (webSocketContextTokens >= 100 && webSocketContextTokens <= 32000) {
+            this.webSocketContextTokens = webSocketContextTokens;
+            notifyListeners();
+        }
+    }
+
+    // Whether a reasoning model is asked to think; DEFAULT leaves Ollama's "think" option unset
+    public enum ThinkMode {
+        DEFAULT("Model default"),
+        ON("On"),
+        OFF("Off (fast answers)");
+
+        private final String label;
+
+        ThinkMode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public ThinkMode getThinkMode(String model) {
+        return model != null ? thinkModes.getOrDefault(model, ThinkMode.DEFAULT) : ThinkMode.DEFAULT;
+    }
+
+    public void setThinkMode(String model, ThinkMode mode) {
+        if (model == null || model.trim().isEmpty() || mode == null || getThinkMode(model.trim()) == mode) {
+            return;
+        }
+        thinkModes.put(model.trim(), mode);
+        notifyListeners();
+    }
+
+    public GenerationProfile getGenerationProfile(String model) {
+        return model != null ? generationProfiles.getOrDefault(model, GenerationProfile.DEFAULT) : GenerationProfile.DEFAULT;
+    }
+
+    public void setGenerationProfile(String model, GenerationProfile profile) {
+        if (model == null || model.trim().isEmpty() || profile == null || getGenerationProfile(model.trim()).equals(profile)) {
+            return;
+        }
+        generationProfiles.put(model.trim(), profile);
+        notifyListeners();
+    }
+}
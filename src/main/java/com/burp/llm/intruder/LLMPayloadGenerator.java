@@ -0,0 +1,296 @@
+package com.burp.llm.intruder;
+
+import burp.api.montoya.intruder.GeneratedPayload;
+import burp.api.montoya.intruder.IntruderInsertionPoint;
+import burp.api.montoya.intruder.PayloadGenerator;
+import burp.api.montoya.logging.Logging;
+import com.burp.llm.api.OllamaClient;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Payloads for one Intruder attack. Intruder pulls them one at a time on its own threads, so they are
+// only ever taken from a bounded buffer that a background worker keeps filled with batches from the
+// model. When the buffer runs dry a fixed probe, or an encoded variant of a payload already sent, goes
+// out instead of making Intruder wait for a generation. With neither left, a few requests carry the base
+// value as fillers that do not count toward the attack's payload limit; after that Intruder waits for
+// the next generated payload, so the target is not flooded with identical requests.
+public class LLMPayloadGenerator implements PayloadGenerator {
+    private static final String[] SEED_PAYLOADS = {
+        "'", "\"", "' OR '1'='1", "1 OR 1=1", "'--", "\")--", "<script>alert(1)</script>", "\"><svg onload=alert(1)>",
+        "{{7*7}}", "${7*7}", "<%= 7*7 %>", "../../../../etc/passwd", "..%2f..%2f..%2fetc%2fpasswd", ";id", "|id", "`id`",
+        "$(id)", "http://127.0.0.1/", "file:///etc/passwd", "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><a>&x;</a>",
+        "-1", "0", "99999999999999999999", "null", "true", "[]", "{}", "%00", "%0d%0aX-Injected: 1", "A".repeat(1024)
+    };
+    // Earlier payloads quoted in the next prompt so the model moves on to new ones
+    private static final int RECENT_IN_PROMPT = 40;
+    private static final int MAX_PAYLOAD_LENGTH = 4096;
+    private static final int MAX_EMPTY_BATCHES = 3;
+    // Recently sent payloads kept for URL-encoded variants; older ones are dropped
+    private static final int MAX_VARIANT_SOURCES = 256;
+    // Base-value fillers sent in a row before Intruder is made to wait for the model
+    private static final int MAX_FILLERS_IN_A_ROW = 3;
+    // A worker whose attack stopped pulling payloads (paused or closed) gives up after this long
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final OllamaClient ollamaClient;
+    private final Logging logging;
+    private final String markedRequest;
+    private final int maxPayloads;
+    private final int batchSize;
+    private final BlockingQueue<String> buffer;
+    private final PayloadHashSet sent;
+    private final Deque<String> recent;
+    private final BlockingQueue<String> variantSources;
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger fallbacks = new AtomicInteger();
+    private final AtomicInteger fillers = new AtomicInteger();
+    private final AtomicInteger fillersInARow = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger seedIndex = new AtomicInteger();
+    private volatile long lastPullNanos;
+    private volatile boolean exhausted;
+    private volatile boolean reported;
+    private volatile int generated;
+
+    LLMPayloadGenerator(OllamaClient ollamaClient, Logging logging, String markedRequest, int maxPayloads, int batchSize) {
+        this.ollamaClient = ollamaClient;
+        this.logging = logging;
+        this.markedRequest = markedRequest;
+        this.maxPayloads = maxPayloads;
+        this.batchSize = batchSize;
+        this.buffer = new ArrayBlockingQueue<>(batchSize * 4);
+        this.sent = new PayloadHashSet();
+        this.recent = new ArrayDeque<>();
+        this.variantSources = new ArrayBlockingQueue<>(MAX_VARIANT_SOURCES);
+        this.lastPullNanos = System.nanoTime();
+    }
+
+    void start(ExecutorService executor) {
+        executor.execute(this::prefetch);
+    }
+
+    @Override
+    public GeneratedPayload generatePayloadFor(IntruderInsertionPoint insertionPoint) {
+        lastPullNanos = System.nanoTime();
+        if (served.get() >= maxPayloads) {
+            report();
+            return GeneratedPayload.end();
+        }
+
+        String payload = buffer.poll();
+        boolean encoded = false;
+        if (payload != null) {
+            hits.incrementAndGet();
+        } else {
+            payload = nextSeed();
+            if (payload == null) {
+                payload = nextVariant();
+                encoded = payload != null;
+            }
+            if (payload == null) {
+                if (exhausted && buffer.isEmpty()) {
+                    report();
+                    return GeneratedPayload.end();
+                }
+                // Nothing new to send yet; the unmodified value keeps the attack moving without using up the limit
+                if (fillersInARow.incrementAndGet() <= MAX_FILLERS_IN_A_ROW) {
+                    fillers.incrementAndGet();
+                    return GeneratedPayload.payload(insertionPoint.baseValue().toString());
+                }
+                payload = awaitGenerated();
+                if (payload == null) {
+                    report();
+                    return GeneratedPayload.end();
+                }
+                hits.incrementAndGet();
+            } else {
+                fallbacks.incrementAndGet();
+            }
+        }
+        fillersInARow.set(0);
+        served.incrementAndGet();
+        if (!encoded) {
+            addVariantSource(payload);
+        }
+
+        // Wake the worker as soon as a whole batch fits again, so the next one is ready before the buffer empties
+        if (buffer.remainingCapacity() >= batchSize) {
+            synchronized (buffer) {
+                buffer.notifyAll();
+            }
+        }
+        return GeneratedPayload.payload(payload);
+    }
+
+    // Null once the worker has stopped with nothing left to hand out
+    private String awaitGenerated() {
+        try {
+            while (true) {
+                String payload = buffer.poll(1, TimeUnit.SECONDS);
+                if (payload != null || (exhausted && buffer.isEmpty())) {
+                    return payload;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private String nextSeed() {
+        int index;
+        while ((index = seedIndex.getAndIncrement()) < SEED_PAYLOADS.length) {
+            if (sent.add(SEED_PAYLOADS[index])) {
+                return SEED_PAYLOADS[index];
+            }
+        }
+        return null;
+    }
+
+    // URL-encoding a payload that went out raw probes filters that only decode once
+    private String nextVariant() {
+        String source;
+        while ((source = variantSources.poll()) != null) {
+            String variant = URLEncoder.encode(source, StandardCharsets.UTF_8);
+            if (sent.add(variant)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    private void addVariantSource(String payload) {
+        while (!variantSources.offer(payload)) {
+            variantSources.poll();
+        }
+    }
+
+    private void prefetch() {
+        int emptyBatches = 0;
+        try {
+            while (generated < maxPayloads && emptyBatches < MAX_EMPTY_BATCHES) {
+                synchronized (buffer) {
+                    while (buffer.remainingCapacity() < batchSize) {
+                        buffer.wait(TimeUnit.SECONDS.toMillis(30));
+                        if (System.nanoTime() - lastPullNanos > IDLE_TIMEOUT_NANOS) {
+                            return;
+                        }
+                    }
+                }
+
+                int added = fetchBatch(Math.min(batchSize, maxPayloads - generated));
+                emptyBatches = added > 0 ? 0 : emptyBatches + 1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exhausted = true;
+        }
+    }
+
+    // Streams one batch and hands each line to Intruder as soon as it is complete
+    private int fetchBatch(int count) throws InterruptedException {
+        AtomicInteger added = new AtomicInteger();
+        StringBuilder line = new StringBuilder();
+        try {
+            ollamaClient.generate(buildPrompt(count), "", chunk -> {
+                for (int i = 0; i < chunk.length(); i++) {
+                    char c = chunk.charAt(i);
+                    if (c == '\n') {
+                        offer(line.toString(), added);
+                        line.setLength(0);
+                    } else {
+                        line.append(c);
+                    }
+                }
+            });
+            offer(line.toString(), added);
+        } catch (IOException e) {
+            logging.logToError("AI payload generation failed: " + e.getMessage());
+            Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+        }
+        return added.get();
+    }
+
+    private void offer(String rawLine, AtomicInteger added) {
+        String payload = clean(rawLine);
+        if (payload == null) {
+            return;
+        }
+        if (!sent.add(payload)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        synchronized (recent) {
+            recent.addLast(payload);
+            if (recent.size() > RECENT_IN_PROMPT) {
+                recent.removeFirst();
+            }
+        }
+        try {
+            buffer.put(payload);
+            generated++;
+            added.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Drops list decoration the model adds despite being asked not to
+    private static String clean(String line) {
+        String payload = line.strip();
+        if (payload.isEmpty() || payload.startsWith("```") || payload.length() > MAX_PAYLOAD_LENGTH) {
+            return null;
+        }
+        payload = payload.replaceFirst("^(?:\\d{1,3}[.)]|[-*•])\\s+", "");
+        if (payload.length() > 1 && payload.startsWith("`") && payload.endsWith("`")) {
+            payload = payload.substring(1, payload.length() - 1);
+        }
+        return payload.isEmpty() ? null : payload;
+    }
+
+    private String buildPrompt(int count) {
+        StringBuilder prompt = new StringBuilder(String.format("""
+            You generate payloads for a Burp Intruder attack on the HTTP request below. Insertion points are
+            marked with § characters.
+
+            %s
+
+            Write %d new, distinct payloads suited to the insertion points: their syntax, the parameter names
+            and the technology the request suggests. Cover different vulnerability classes and filter bypasses.
+            Output one payload per line, with no numbering, quotes or commentary.
+            """, markedRequest, count));
+        synchronized (recent) {
+            if (!recent.isEmpty()) {
+                prompt.append("\nDo not repeat these earlier payloads:\n");
+                recent.forEach(payload -> prompt.append(payload).append('\n'));
+            }
+        }
+        return prompt.toString();
+    }
+
+    private void report() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        int total = Math.max(1, served.get());
+        int pulls = served.get() + fillers.get();
+        int misses = pulls - hits.get();
+        logging.logToOutput(String.format(
+            "AI payloads: %d served, %d%% from the prefetch buffer, %d seed or encoded probes, %d generated, %d duplicates dropped; "
+                + "buffer empty on %d of %d pulls (%d%%), %d of them filled with the base value",
+            served.get(), hits.get() * 100 / total, fallbacks.get(), generated, duplicates.get(),
+            misses, pulls, misses * 100 / Math.max(1, pulls), fillers.get()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.burp.llm.intruder;
+
+import burp.api.montoya.core.Range;
+import burp.api.montoya.intruder.AttackConfiguration;
+import burp.api.montoya.intruder.HttpRequestTemplate;
+import burp.api.montoya.intruder.PayloadGenerator;
+import burp.api.montoya.intruder.PayloadGeneratorProvider;
+import burp.api.montoya.logging.Logging;
+import com.burp.llm.api.OllamaClient;
+import com.burp.llm.config.ConfigSettings;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Offers "AI-generated payloads" as an Intruder payload type; each attack gets its own prefetching generator
+public class LLMPayloadGeneratorProvider implements PayloadGeneratorProvider {
+    private final OllamaClient ollamaClient;
+    private final ConfigSettings configSettings;
+    private final Logging logging;
+    private final ExecutorService prefetchExecutor;
+
+    public LLMPayloadGeneratorProvider(OllamaClient ollamaClient, ConfigSettings configSettings, Logging logging) {
+        this.ollamaClient = ollamaClient;
+        this.configSettings = configSettings;
+        this.logging = logging;
+        this.prefetchExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "AI Chat payload prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String displayName() {
+        return "AI-generated payloads";
+    }
+
+    @Override
+    public PayloadGenerator providePayloadGenerator(AttackConfiguration attackConfiguration) {
+        LLMPayloadGenerator generator = new LLMPayloadGenerator(ollamaClient, logging,
+            markInsertionPoints(attackConfiguration.requestTemplate()),
+            configSettings.getIntruderPayloadCount(), configSettings.getIntruderBatchSize());
+        generator.start(prefetchExecutor);
+        return generator;
+    }
+
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    // Shows the insertion points the way Intruder does, between § markers
+    static String markInsertionPoints(HttpRequestTemplate template) {
+        StringBuilder request = new StringBuilder(template.content().toString());
+        List<Range> ranges = new ArrayList<>(template.insertionPointOffsets());
+        ranges.sort(Comparator.comparingInt(Range::startIndexInclusive).reversed());
+        for (Range range : ranges) {
+            request.insert(range.endIndexExclusive(), '§');
+            request.insert(range.startIndexInclusive(), '§');
+        }
+        return request.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.burp.llm.intruder;
+
+// Set of 64-bit payload hashes in one open-addressed long[]: about 16 bytes per payload instead of a
+// String and a node per entry, so a long attack can remember everything it has already sent.
+// A collision between two distinct payloads (around 1 in 10^13 for a million entries) drops one of them.
+class PayloadHashSet {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long[] slots;
+    private int size;
+
+    PayloadHashSet() {
+        this.slots = new long[1024];
+    }
+
+    // Returns false when the payload was already present
+    synchronized boolean add(String payload) {
+        long hash = hash(payload);
+        if (insert(slots, hash)) {
+            size++;
+            if (size * 2 > slots.length) {
+                grow();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] larger = new long[slots.length * 2];
+        for (long hash : slots) {
+            if (hash != 0) {
+                insert(larger, hash);
+            }
+        }
+        slots = larger;
+    }
+
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int index = (int) (hash ^ (hash >>> 32)) & mask;
+        while (table[index] != 0) {
+            if (table[index] == hash) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = hash;
+        return true;
+    }
+
+    // FNV-1a over the UTF-16 code units; 0 marks an empty slot, so it is never returned
+    static long hash(String payload) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash != 0 ? hash : 1;
+    }
+}
@@ -0,0 +1,198 @@
+package com.burp.llm.knowledge;
+
+import burp.api.montoya.persistence.PersistedObject;
+import com.burp.llm.api.OllamaClient;
+import com.burp.llm.api.RedactionVault;
+import com.burp.llm.api.TokenEstimator;
+import com.burp.llm.config.ConfigSettings;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Short notes about each target host, summarized by the model from earlier answers and saved with the project,
+// so a new chat about a host starts with its framework, auth scheme and known endpoints instead of from zero.
+// Notes are kept in the model's order of usefulness and always sent in that order, so the prefix they form
+// is identical from one chat to the next whenever they all fit.
+public class KnowledgeBase {
+    private static final String KNOWLEDGE = "ai-chat-knowledge";
+    // Answers shorter than this rarely establish anything about the application
+    private static final int MIN_ANSWER_CHARS = 200;
+
+    private final OllamaClient ollamaClient;
+    private final ConfigSettings configSettings;
+    private final PersistedObject stored;
+    private final Gson gson = new Gson();
+    private final Map<String, List<String>> facts = new ConcurrentHashMap<>();
+    // One note-taking request at a time, each starting from the notes the previous one left
+    private final ExecutorService updater = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AI Chat knowledge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public KnowledgeBase(OllamaClient ollamaClient, ConfigSettings configSettings, PersistedObject extensionData) {
+        this.ollamaClient = ollamaClient;
+        this.configSettings = configSettings;
+        PersistedObject child = extensionData.getChildObject(KNOWLEDGE);
+        if (child == null) {
+            extensionData.setChildObject(KNOWLEDGE, PersistedObject.persistedObject());
+            child = extensionData.getChildObject(KNOWLEDGE);
+        }
+        this.stored = child;
+        for (String host : stored.stringKeys()) {
+            try {
+                List<String> hostFacts = gson.fromJson(stored.getString(host), new TypeToken<List<String>>() { }.getType());
+                if (hostFacts != null && !hostFacts.isEmpty()) {
+                    // Notes saved before placeholders were masked
+                    facts.put(host, hostFacts.stream().map(RedactionVault::maskPlaceholders).toList());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Skipping unreadable notes about " + host + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public List<String> getFacts(String host) {
+        return facts.getOrDefault(normalize(host), List.of());
+    }
+
+    public String getSummary() {
+        int count = 0;
+        for (List<String> hostFacts : facts.values()) {
+            count += hostFacts.size();
+        }
+        return String.format("%d facts about %d hosts", count, facts.size());
+    }
+
+    // The system message to open a chat about host with, or "" when nothing is known. Within the token budget,
+    // notes sharing the most words with the first question are picked, then sent in their stored order.
+    public String prefixFor(String host, String question) {
+        List<String> hostFacts = getFacts(host);
+        if (!configSettings.isTargetKnowledge() || hostFacts.isEmpty()) {
+            return "";
+        }
+        TokenEstimator estimator = TokenEstimator.forModel(configSettings.getModel());
+        int budget = configSettings.getKnowledgePrefixTokens();
+        int[] tokens = new int[hostFacts.size()];
+        int total = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = estimator.estimate(hostFacts.get(i)) + 1;
+            total += tokens[i];
+        }
+
+        boolean[] chosen = new boolean[hostFacts.size()];
+        if (total <= budget) {
+            Arrays.fill(chosen, true);
+        } else {
+            Set<String> questionWords = words(question);
+            Integer[] order = new Integer[hostFacts.size()];
+            int[] scores = new int[hostFacts.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                Set<String> factWords = words(hostFacts.get(i));
+                factWords.retainAll(questionWords);
+                scores[i] = factWords.size();
+            }
+            // Stable sort: equally relevant notes keep the model's order
+            Arrays.sort(order, (a, b) -> Integer.compare(scores[b], scores[a]));
+            int used = 0;
+            for (int i : order) {
+                if (used + tokens[i] <= budget) {
+                    chosen[i] = true;
+                    used += tokens[i];
+                }
+            }
+        }
+
+        StringBuilder prefix = new StringBuilder("Known about ").append(host)
+            .append(" from earlier chats (may be out of date):");
+        for (int i = 0; i < chosen.length; i++) {
+            if (chosen[i]) {
+                prefix.append("\n- ").append(hostFacts.get(i));
+            }
+        }
+        return prefix.toString();
+    }
+
+    // Queues an update of the notes about host with one finished exchange
+    public void learn(String host, String question, String answer) {
+        if (!configSettings.isTargetKnowledge() || host == null || host.isEmpty()
+                || answer == null || answer.length() < MIN_ANSWER_CHARS) {
+            return;
+        }
+        String key = normalize(host);
+        updater.execute(() -> {
+            try {
+                int cap = configSettings.getKnowledgeTokenCap();
+                List<String> updated = ollamaClient.updateKnowledge(host, getFacts(key), question, answer, cap);
+                store(key, cap(updated, cap));
+            } catch (IOException e) {
+                System.err.println("Could not update notes about " + host + ": " + e.getMessage());
+            }
+        });
+    }
+
+    public void forgetAll() {
+        for (String host : facts.keySet()) {
+            stored.deleteString(host);
+        }
+        facts.clear();
+    }
+
+    public void shutdown() {
+        updater.shutdownNow();
+    }
+
+    private void store(String host, List<String> hostFacts) {
+        if (hostFacts.isEmpty()) {
+            return;
+        }
+        facts.put(host, hostFacts);
+        stored.setString(host, gson.toJson(hostFacts));
+    }
+
+    // The model is asked to stay under the cap; whatever it returns beyond it is cut from the least useful end
+    private List<String> cap(List<String> hostFacts, int maxTokens) {
+        TokenEstimator estimator = TokenEstimator.forModel(configSettings.getModel());
+        Set<String> seen = new HashSet<>();
+        List<String> kept = new ArrayList<>();
+        int used = 0;
+        for (String fact : hostFacts) {
+            int tokens = estimator.estimate(fact) + 1;
+            if (used + tokens > maxTokens) {
+                break;
+            }
+            if (seen.add(fact.toLowerCase(Locale.ROOT))) {
+                kept.add(fact);
+                used += tokens;
+            }
+        }
+        return List.copyOf(kept);
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9_]+")) {
+            if (word.length() > 2) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String normalize(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,395 @@
+package com.burp.llm.search;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Inverted index over every chat message of every tab. Each word maps to the ids of the messages that
+// contain it; message ids grow with time, so a sorted posting list is also a timeline and the newest
+// matches are found by walking the intersection backwards. Streaming answers are indexed chunk by chunk,
+// holding back only a word that the next chunk may continue.
+public class ConversationIndex {
+    private static final int MIN_TERM_LENGTH = 2;
+    // Longer runs are encoded blobs or hashes that nobody types into a search box
+    private static final int MAX_TERM_LENGTH = 64;
+    // Expansions of a prefix beyond this are dropped, so one-letter prefixes stay fast
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    public interface Listener {
+        // Called with the index lock released, once a message is complete
+        void onFinished(IndexedMessage message);
+    }
+
+    private final List<IndexedMessage> messages = new ArrayList<>();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Integer, OpenMessage> open = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private int nextConversationId = 1;
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized int newConversationId() {
+        return nextConversationId++;
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    public synchronized int getTermCount() {
+        return postings.size();
+    }
+
+    // Starts a message; host, URL and model are searchable like its text
+    public synchronized IndexedMessage start(int conversationId, String role, String host, String url, String model) {
+        IndexedMessage message = new IndexedMessage(messages.size(), conversationId, role, host, url, model,
+            System.currentTimeMillis(), "");
+        messages.add(message);
+        OpenMessage state = new OpenMessage();
+        open.put(message.getId(), state);
+        indexFields(message, state.seen);
+        return message;
+    }
+
+    public void append(IndexedMessage message, String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            OpenMessage state = open.get(message.getId());
+            if (state == null) {
+                return;
+            }
+            int length = message.appendText(chunk);
+            int trailing = 0;
+            while (trailing < chunk.length() && isWordChar(chunk.charAt(chunk.length() - 1 - trailing))) {
+                trailing++;
+            }
+            if (trailing == chunk.length()) {
+                // Still inside one word
+                return;
+            }
+            int end = length - trailing;
+            indexText(message.getId(), message.textRange(state.indexedUpTo, end), state.seen);
+            state.indexedUpTo = end;
+        }
+    }
+
+    public void finish(IndexedMessage message) {
+        synchronized (this) {
+            OpenMessage state = open.remove(message.getId());
+            if (state == null) {
+                return;
+            }
+            String text = message.getText();
+            indexText(message.getId(), text.substring(state.indexedUpTo), state.seen);
+            message.markFinished();
+        }
+        for (Listener listener : listeners) {
+            listener.onFinished(message);
+        }
+    }
+
+    // Adds a finished message saved in an earlier session, keeping its id
+    public synchronized void load(int id, int conversationId, String role, String host, String url, String model, long timestamp, String text) {
+        while (messages.size() <= id) {
+            messages.add(null);
+        }
+        IndexedMessage message = new IndexedMessage(id, conversationId, role, host, url, model, timestamp, text);
+        message.markFinished();
+        messages.set(id, message);
+        Set<String> seen = new HashSet<>();
+        indexFields(message, seen);
+        indexText(id, text, seen);
+        nextConversationId = Math.max(nextConversationId, conversationId + 1);
+    }
+
+    // Messages of one conversation in the order they were written
+    public synchronized List<IndexedMessage> conversation(int conversationId) {
+        List<IndexedMessage> result = new ArrayList<>();
+        for (IndexedMessage message : messages) {
+            if (message != null && message.getConversationId() == conversationId) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    // Newest matches first. Words must all occur (the last one as a prefix, so results follow typing);
+    // "quoted text" must occur as written; host:, url:, model: and role: filter by substring and
+    // since:/before: by date (yyyy-mm-dd).
+    public synchronized List<IndexedMessage> search(String queryText, int limit) {
+        Query query = Query.parse(queryText);
+        int[] candidates = null;
+        for (int i = 0; i < query.terms.size(); i++) {
+            boolean prefix = i == query.terms.size() - 1 && query.lastIsPrefix;
+            int[] ids = prefix ? prefixIds(query.terms.get(i)) : exactIds(query.terms.get(i));
+            candidates = candidates == null ? ids : intersect(candidates, ids);
+            if (candidates.length == 0) {
+                return List.of();
+            }
+        }
+
+        List<IndexedMessage> result = new ArrayList<>();
+        int count = candidates != null ? candidates.length : messages.size();
+        for (int i = count - 1; i >= 0 && result.size() < limit; i--) {
+            IndexedMessage message = messages.get(candidates != null ? candidates[i] : i);
+            if (message != null && query.accepts(message)) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    // A line of the message around the first query word it contains
+    public static String snippet(String text, String queryText, int width) {
+        Query query = Query.parse(queryText);
+        String lower = text.toLowerCase(Locale.ROOT);
+        int at = -1;
+        for (String phrase : query.phrases) {
+            at = lower.indexOf(phrase);
+            if (at >= 0) {
+                break;
+            }
+        }
+        for (int i = 0; at < 0 && i < query.terms.size(); i++) {
+            at = lower.indexOf(query.terms.get(i));
+        }
+        int start = Math.max(0, Math.min(at, text.length()) - width / 3);
+        int end = Math.min(text.length(), start + width);
+        return (start > 0 ? "…" : "") + text.substring(start, end).replaceAll("\\s+", " ").trim()
+            + (end < text.length() ? "…" : "");
+    }
+
+    private void indexFields(IndexedMessage message, Set<String> seen) {
+        indexText(message.getId(), message.getHost(), seen);
+        indexText(message.getId(), message.getUrl(), seen);
+        indexText(message.getId(), message.getModel(), seen);
+    }
+
+    private void indexText(int id, String text, Set<String> seen) {
+        tokenize(text, term -> {
+            if (seen.add(term)) {
+                postings.computeIfAbsent(term, key -> new Postings()).add(id);
+            }
+        });
+    }
+
+    private int[] exactIds(String term) {
+        Postings list = postings.get(term);
+        return list != null ? list.sortedIds() : new int[0];
+    }
+
+    private int[] prefixIds(String prefix) {
+        SortedMap<String, Postings> matching = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (matching.size() == 1) {
+            return matching.values().iterator().next().sortedIds();
+        }
+        int[] union = new int[0];
+        int expanded = 0;
+        for (Postings list : matching.values()) {
+            if (expanded++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            union = merge(union, list.sortedIds());
+        }
+        return union;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int next = j >= b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (size == 0 || result[size - 1] != next) {
+                result[size++] = next;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static void tokenize(String text, Consumer<String> onTerm) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isWordChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isWordChar(text.charAt(i))) {
+                i++;
+            }
+            int termLength = i - start;
+            if (termLength >= MIN_TERM_LENGTH && termLength <= MAX_TERM_LENGTH) {
+                onTerm.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    // Streaming state of a message that is not finished yet
+    private static class OpenMessage {
+        private int indexedUpTo;
+        // Terms already posted for this message, so interleaved streams never post one twice
+        private final Set<String> seen = new HashSet<>();
+    }
+
+    // Message ids in ascending order; ids from streams that finish out of order are appended unsorted
+    // and sorted on the next lookup
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+        private boolean sorted = true;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size > 0 && id < ids[size - 1]) {
+                sorted = false;
+            }
+            ids[size++] = id;
+        }
+
+        int[] sortedIds() {
+            if (!sorted) {
+                Arrays.sort(ids, 0, size);
+                sorted = true;
+            }
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    private static class Query {
+        private final List<String> terms = new ArrayList<>();
+        private final List<String> phrases = new ArrayList<>();
+        private final Map<String, String> filters = new HashMap<>();
+        private boolean lastIsPrefix;
+        private long since = Long.MIN_VALUE;
+        private long before = Long.MAX_VALUE;
+
+        static Query parse(String text) {
+            Query query = new Query();
+            String remaining = text != null ? text : "";
+            StringBuilder words = new StringBuilder();
+            int i = 0;
+            while (i < remaining.length()) {
+                char c = remaining.charAt(i);
+                if (c == '"') {
+                    int close = remaining.indexOf('"', i + 1);
+                    String phrase = remaining.substring(i + 1, close < 0 ? remaining.length() : close);
+                    if (!phrase.isBlank()) {
+                        query.phrases.add(phrase.toLowerCase(Locale.ROOT));
+                        tokenize(phrase, query.terms::add);
+                    }
+                    i = close < 0 ? remaining.length() : close + 1;
+                    continue;
+                }
+                int end = i;
+                while (end < remaining.length() && !Character.isWhitespace(remaining.charAt(end)) && remaining.charAt(end) != '"') {
+                    end++;
+                }
+                String word = remaining.substring(i, end);
+                int colon = word.indexOf(':');
+                String field = colon > 0 ? word.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+                if (colon > 0 && query.addFilter(field, word.substring(colon + 1))) {
+                    words.append(' ');
+                } else if (!word.isEmpty()) {
+                    words.append(word);
+                }
+                if (end < remaining.length()) {
+                    words.append(' ');
+                }
+                i = Math.max(end, i + 1);
+            }
+            int phraseTerms = query.terms.size();
+            tokenize(words.toString(), query.terms::add);
+            // The word being typed matches as a prefix, unless it was finished with a space
+            query.lastIsPrefix = query.terms.size() > phraseTerms && !words.isEmpty()
+                && isWordChar(words.charAt(words.length() - 1));
+            return query;
+        }
+
+        private boolean addFilter(String field, String value) {
+            switch (field) {
+                case "host", "url", "model", "role" -> filters.put(field, value.toLowerCase(Locale.ROOT));
+                case "since" -> since = dayStart(value, since);
+                case "before" -> before = dayStart(value, before);
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long dayStart(String value, long fallback) {
+            try {
+                return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return fallback;
+            }
+        }
+
+        boolean accepts(IndexedMessage message) {
+            if (message.getTimestamp() < since || message.getTimestamp() >= before) {
+                return false;
+            }
+            for (Map.Entry<String, String> filter : filters.entrySet()) {
+                String value = switch (filter.getKey()) {
+                    case "host" -> message.getHost();
+                    case "url" -> message.getUrl();
+                    case "model" -> message.getModel();
+                    default -> message.getRole();
+                };
+                if (!value.toLowerCase(Locale.ROOT).contains(filter.getValue())) {
+                    return false;
+                }
+            }
+            if (!phrases.isEmpty()) {
+                String text = message.getText().toLowerCase(Locale.ROOT);
+                for (String phrase : phrases) {
+                    if (!text.contains(phrase)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.burp.llm.search;
+
+// One chat message as the search index sees it: who wrote it, where the conversation was about, and its text,
+// which grows while an answer streams in
+public class IndexedMessage {
+    private final int id;
+    private final int conversationId;
+    private final String role;
+    private final String host;
+    private final String url;
+    private final String model;
+    private final long timestamp;
+    private final StringBuilder text;
+    private boolean finished;
+
+    IndexedMessage(int id, int conversationId, String role, String host, String url, String model, long timestamp, String text) {
+        this.id = id;
+        this.conversationId = conversationId;
+        this.role = role != null ? role : "";
+        this.host = host != null ? host : "";
+        this.url = url != null ? url : "";
+        this.model = model != null ? model : "";
+        this.timestamp = timestamp;
+        this.text = new StringBuilder(text != null ? text : "");
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getConversationId() {
+        return conversationId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    // Epoch milliseconds of when the message was started
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public synchronized String getText() {
+        return text.toString();
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    synchronized int appendText(String chunk) {
+        text.append(chunk);
+        return text.length();
+    }
+
+    synchronized String textRange(int from, int to) {
+        return text.substring(from, to);
+    }
+
+    synchronized void markFinished() {
+        finished = true;
+    }
+}
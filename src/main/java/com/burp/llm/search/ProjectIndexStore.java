@@ -0,0 +1,90 @@
+package com.burp.llm.search;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.persistence.PersistedObject;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps the indexed messages in the Burp project file. Each finished message is written once under its own
+// key, so saving never rewrites the history; the index itself is rebuilt from the messages on load.
+public class ProjectIndexStore implements ConversationIndex.Listener {
+    private static final String MESSAGES = "ai-chat-messages";
+    private static final String REQUESTS = "ai-chat-requests";
+
+    private final PersistedObject messages;
+    private final PersistedObject requests;
+    private final Gson gson = new Gson();
+    // Writes go through Burp's project file, which may be slow; they never block the chat tab
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AI Chat index store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProjectIndexStore(PersistedObject extensionData) {
+        this.messages = child(extensionData, MESSAGES);
+        this.requests = child(extensionData, REQUESTS);
+    }
+
+    private static PersistedObject child(PersistedObject parent, String key) {
+        PersistedObject child = parent.getChildObject(key);
+        if (child == null) {
+            child = PersistedObject.persistedObject();
+            parent.setChildObject(key, child);
+            // The stored copy is what later writes must go to
+            child = parent.getChildObject(key);
+        }
+        return child;
+    }
+
+    // Returns the number of messages restored
+    public int loadInto(ConversationIndex index) {
+        int loaded = 0;
+        for (String key : messages.stringKeys()) {
+            try {
+                JsonObject stored = gson.fromJson(messages.getString(key), JsonObject.class);
+                index.load(Integer.parseInt(key), stored.get("conversation").getAsInt(), string(stored, "role"),
+                    string(stored, "host"), string(stored, "url"), string(stored, "model"),
+                    stored.get("timestamp").getAsLong(), string(stored, "text"));
+                loaded++;
+            } catch (RuntimeException e) {
+                System.err.println("Skipping unreadable indexed message " + key + ": " + e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void onFinished(IndexedMessage message) {
+        JsonObject stored = new JsonObject();
+        stored.addProperty("conversation", message.getConversationId());
+        stored.addProperty("role", message.getRole());
+        stored.addProperty("host", message.getHost());
+        stored.addProperty("url", message.getUrl());
+        stored.addProperty("model", message.getModel());
+        stored.addProperty("timestamp", message.getTimestamp());
+        stored.addProperty("text", message.getText());
+        String json = gson.toJson(stored);
+        writer.execute(() -> messages.setString(String.valueOf(message.getId()), json));
+    }
+
+    // The request a conversation was about, so it can be reopened after Burp restarts
+    public void saveRequest(int conversationId, HttpRequest request) {
+        writer.execute(() -> requests.setHttpRequest(String.valueOf(conversationId), request));
+    }
+
+    public HttpRequest loadRequest(int conversationId) {
+        return requests.getHttpRequest(String.valueOf(conversationId));
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    private static String string(JsonObject object, String key) {
+        return object.has(key) && !object.get(key).isJsonNull() ? object.get(key).getAsString() : "";
+    }
+}
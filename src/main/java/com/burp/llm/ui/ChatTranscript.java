@@ -0,0 +1,567 @@
+package com.burp.llm.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Chat transcript that only wraps and paints the messages inside the viewport. Each message keeps
+// its wrapped line starts for the current width, so streaming a chunk re-wraps only the last line,
+// scrolled-away messages stay cached, and messages never shown at this width use an estimated height.
+// Text is selected by dragging, as in a text area, and copied with Ctrl+C or the popup menu.
+public class ChatTranscript extends JComponent implements Scrollable {
+    private static final int PADDING = 4;
+
+    private final List<Entry> entries;
+    private int[] tops;
+    private int validTops;
+    // Selection as message index and offset into its text, from where the drag started to where it is now;
+    // messages only grow, so offsets stay valid while an answer streams in
+    private int anchorEntry = -1;
+    private int anchorOffset;
+    private int caretEntry;
+    private int caretOffset;
+
+    public ChatTranscript() {
+        this.entries = new ArrayList<>();
+        this.tops = new int[16];
+        setFont(UIManager.getFont("TextArea.font"));
+        setBackground(UIManager.getColor("TextArea.background"));
+        setForeground(UIManager.getColor("TextArea.foreground"));
+        setOpaque(true);
+        setFocusable(true);
+        setAutoscrolls(true);
+        setCursor(Cursor.getPredefinedCursor(Cursor.TEXT_CURSOR));
+        installPopupMenu();
+        installSelection();
+    }
+
+    // Starts a new message; the header matches the format the chat tab has always used
+    public void addMessage(String header, String text) {
+        boolean follow = isFollowingTail();
+        Entry entry = new Entry();
+        entry.append(header);
+        entry.append(text);
+        entries.add(entry);
+        contentChanged(entries.size() - 1, follow);
+    }
+
+    // Appends streamed text to the most recent message
+    public void append(String text) {
+        if (entries.isEmpty()) {
+            addMessage("", text);
+            return;
+        }
+        boolean follow = isFollowingTail();
+        entries.get(entries.size() - 1).append(text);
+        contentChanged(entries.size() - 1, follow);
+    }
+
+    public void clear() {
+        entries.clear();
+        anchorEntry = -1;
+        validTops = 0;
+        revalidate();
+        repaint();
+    }
+
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : entries) {
+            text.append(entry.text).append("\n\n");
+        }
+        return text.toString();
+    }
+
+    private void contentChanged(int index, boolean follow) {
+        Entry entry = entries.get(index);
+        int oldHeight = entry.height;
+        int width = wrapWidth();
+        FontMetrics metrics = getFontMetrics(getFont());
+        // Lines before the previous last line cannot change, so only the tail is repainted
+        int firstDirtyLine = entry.layoutWidth == width ? entry.lineCount - 1 : 0;
+        if (entry.layoutWidth == width || index == entries.size() - 1) {
+            // The streaming message is always kept exact so the tail never jumps
+            entry.layout(metrics, width);
+        } else {
+            entry.estimate(metrics, width);
+        }
+        validTops = Math.min(validTops, index + 1);
+
+        if (entry.height != oldHeight) {
+            revalidate();
+            // Resize now rather than on the next layout pass so the scroll below reaches the new end
+            setSize(getWidth(), preferredHeight());
+        }
+        int lineHeight = metrics.getHeight();
+        int dirtyTop = top(index) + firstDirtyLine * lineHeight;
+        repaint(0, dirtyTop, getWidth(), (Math.max(entry.height, oldHeight) - firstDirtyLine) * lineHeight);
+        if (follow) {
+            scrollRectToVisible(new Rectangle(0, getHeight() - 1, 1, 1));
+        }
+    }
+
+    private boolean isFollowingTail() {
+        Rectangle visible = getVisibleRect();
+        return visible.height == 0 || visible.y + visible.height >= getHeight() - lineHeight();
+    }
+
+    private int wrapWidth() {
+        Container parent = getParent();
+        int width = parent instanceof JViewport ? parent.getWidth() : getWidth();
+        return Math.max(1, width - 2 * PADDING);
+    }
+
+    private int lineHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    // Heights are kept in lines; tops are pixel offsets recomputed only from the first changed message
+    private int top(int index) {
+        if (tops.length < entries.size() + 1) {
+            tops = Arrays.copyOf(tops, Math.max(tops.length * 2, entries.size() + 1));
+        }
+        int lineHeight = lineHeight();
+        if (validTops == 0) {
+            tops[0] = PADDING;
+            validTops = 1;
+        }
+        while (validTops <= index) {
+            Entry previous = entries.get(validTops - 1);
+            tops[validTops] = tops[validTops - 1] + (previous.height + 1) * lineHeight;
+            validTops++;
+        }
+        return tops[index];
+    }
+
+    private int preferredHeight() {
+        if (entries.isEmpty()) {
+            return 2 * PADDING;
+        }
+        int last = entries.size() - 1;
+        return top(last) + entries.get(last).height * lineHeight() + PADDING;
+    }
+
+    private void invalidateLayout() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = wrapWidth();
+        for (Entry entry : entries) {
+            if (entry.layoutWidth != width) {
+                entry.estimate(metrics, width);
+            }
+        }
+        validTops = 0;
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean widthChanged = width != getWidth();
+        super.setBounds(x, y, width, height);
+        if (widthChanged) {
+            invalidateLayout();
+            revalidate();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(0, preferredHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        g.setFont(getFont());
+        FontMetrics metrics = getFontMetrics(getFont());
+        int lineHeight = metrics.getHeight();
+        int width = wrapWidth();
+        boolean heightsChanged = false;
+        boolean selection = hasSelection();
+        boolean anchorFirst = anchorFirst();
+        int startEntry = anchorFirst ? anchorEntry : caretEntry;
+        int startOffset = anchorFirst ? anchorOffset : caretOffset;
+        int endEntry = anchorFirst ? caretEntry : anchorEntry;
+        int endOffset = anchorFirst ? caretOffset : anchorOffset;
+        Color selectionColor = UIManager.getColor("TextArea.selectionBackground");
+
+        for (int i = firstEntryAt(clip.y); i < entries.size(); i++) {
+            int top = top(i);
+            if (top > clip.y + clip.height) {
+                break;
+            }
+            Entry entry = entries.get(i);
+            if (entry.layoutWidth != width) {
+                int estimated = entry.height;
+                entry.layout(metrics, width);
+                if (entry.height != estimated) {
+                    validTops = Math.min(validTops, i + 1);
+                    heightsChanged = true;
+                }
+            }
+
+            // Only the lines inside the clip are drawn, however long the message is
+            int firstLine = Math.max(0, (clip.y - top) / lineHeight);
+            int lastLine = Math.min(entry.lineCount - 1, (clip.y + clip.height - top) / lineHeight);
+            int selectedFrom = !selection || i < startEntry || i > endEntry ? -1 : i == startEntry ? startOffset : 0;
+            int selectedTo = i == endEntry ? endOffset : entry.text.length();
+            for (int line = firstLine; line <= lastLine; line++) {
+                int lineStart = entry.lineStarts[line];
+                int lineEnd = entry.lineEnd(line);
+                if (selectedFrom >= 0 && selectedFrom <= lineEnd && selectedTo > lineStart) {
+                    int from = Math.max(selectedFrom, lineStart);
+                    int to = Math.min(selectedTo, lineEnd);
+                    int x = PADDING + entry.width(metrics, lineStart, from);
+                    // A selection that continues past the line end also covers the break
+                    int extra = selectedTo > lineEnd ? metrics.charWidth(' ') : 0;
+                    g.setColor(selectionColor != null ? selectionColor : Color.LIGHT_GRAY);
+                    g.fillRect(x, top + line * lineHeight, entry.width(metrics, from, to) + extra, lineHeight);
+                }
+                String text = entry.line(line);
+                if (!text.isEmpty()) {
+                    g.setColor(getForeground());
+                    g.drawString(text, PADDING, top + line * lineHeight + metrics.getAscent());
+                }
+            }
+        }
+
+        if (heightsChanged) {
+            revalidate();
+            repaint();
+        }
+    }
+
+    private int firstEntryAt(int y) {
+        int low = 0;
+        int high = entries.size() - 1;
+        top(high);
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (tops[mid] <= y) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int entryAt(int y) {
+        if (entries.isEmpty()) {
+            return -1;
+        }
+        int index = firstEntryAt(y);
+        return y < top(index) + entries.get(index).height * lineHeight() ? index : -1;
+    }
+
+    public boolean hasSelection() {
+        return anchorEntry >= 0 && (anchorEntry != caretEntry || anchorOffset != caretOffset);
+    }
+
+    // Selected text, with messages separated as in getText()
+    public String getSelectedText() {
+        if (!hasSelection()) {
+            return "";
+        }
+        boolean anchorFirst = anchorFirst();
+        int startEntry = anchorFirst ? anchorEntry : caretEntry;
+        int startOffset = anchorFirst ? anchorOffset : caretOffset;
+        int endEntry = anchorFirst ? caretEntry : anchorEntry;
+        int endOffset = anchorFirst ? caretOffset : anchorOffset;
+        if (startEntry == endEntry) {
+            return entries.get(startEntry).text.substring(startOffset, endOffset);
+        }
+        StringBuilder selected = new StringBuilder(entries.get(startEntry).text.substring(startOffset));
+        for (int i = startEntry + 1; i < endEntry; i++) {
+            selected.append("\n\n").append(entries.get(i).text);
+        }
+        return selected.append("\n\n").append(entries.get(endEntry).text, 0, endOffset).toString();
+    }
+
+    private boolean anchorFirst() {
+        return anchorEntry < caretEntry || (anchorEntry == caretEntry && anchorOffset <= caretOffset);
+    }
+
+    // Message and offset under a point; a point between messages belongs to the end of the one above
+    private int[] positionAt(int x, int y) {
+        int index = firstEntryAt(Math.max(0, y));
+        Entry entry = entries.get(index);
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = wrapWidth();
+        if (entry.layoutWidth != width) {
+            int estimated = entry.height;
+            entry.layout(metrics, width);
+            if (entry.height != estimated) {
+                validTops = Math.min(validTops, index + 1);
+                revalidate();
+            }
+        }
+        int top = top(index);
+        if (y < top) {
+            return new int[] {index, 0};
+        }
+        int line = (y - top) / metrics.getHeight();
+        if (line >= entry.lineCount) {
+            return new int[] {index, entry.text.length()};
+        }
+        return new int[] {index, entry.offsetAt(metrics, line, x - PADDING)};
+    }
+
+    private void installSelection() {
+        MouseAdapter selector = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || entries.isEmpty()) {
+                    return;
+                }
+                requestFocusInWindow();
+                int[] position = positionAt(e.getX(), e.getY());
+                if (!e.isShiftDown() || anchorEntry < 0) {
+                    anchorEntry = position[0];
+                    anchorOffset = position[1];
+                }
+                caretEntry = position[0];
+                caretOffset = position[1];
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || anchorEntry < 0) {
+                    return;
+                }
+                int[] position = positionAt(e.getX(), e.getY());
+                caretEntry = position[0];
+                caretOffset = position[1];
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(selector);
+        addMouseMotionListener(selector);
+
+        // Ctrl as for sending with Ctrl+Enter, and Cmd on macOS
+        for (int modifier : new int[] {InputEvent.CTRL_DOWN_MASK, InputEvent.META_DOWN_MASK}) {
+            getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_C, modifier), "copy-selection");
+            getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_A, modifier), "select-all");
+        }
+        getActionMap().put("copy-selection", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (hasSelection()) {
+                    copy(getSelectedText());
+                }
+            }
+        });
+        getActionMap().put("select-all", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!entries.isEmpty()) {
+                    anchorEntry = 0;
+                    anchorOffset = 0;
+                    caretEntry = entries.size() - 1;
+                    caretOffset = entries.get(caretEntry).text.length();
+                    repaint();
+                }
+            }
+        });
+    }
+
+    private void installPopupMenu() {
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showPopup(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showPopup(e);
+            }
+
+            private void showPopup(MouseEvent e) {
+                if (!e.isPopupTrigger()) {
+                    return;
+                }
+                int index = entryAt(e.getY());
+                JPopupMenu menu = new JPopupMenu();
+                JMenuItem copySelection = new JMenuItem("Copy");
+                copySelection.setEnabled(hasSelection());
+                copySelection.addActionListener(a -> copy(getSelectedText()));
+                menu.add(copySelection);
+                JMenuItem copyMessage = new JMenuItem("Copy Message");
+                copyMessage.setEnabled(index >= 0);
+                copyMessage.addActionListener(a -> copy(entries.get(index).text.toString()));
+                JMenuItem copyAll = new JMenuItem("Copy Transcript");
+                copyAll.setEnabled(!entries.isEmpty());
+                copyAll.addActionListener(a -> copy(getText()));
+                menu.add(copyMessage);
+                menu.add(copyAll);
+                menu.show(ChatTranscript.this, e.getX(), e.getY());
+            }
+        });
+    }
+
+    private static void copy(String text) {
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight() : 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? Math.max(lineHeight(), visibleRect.height - lineHeight()) : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getHeight() > preferredHeight();
+    }
+
+    // One message with its word-wrapped line starts; height is in lines
+    private static class Entry {
+        private final StringBuilder text = new StringBuilder();
+        private int[] lineStarts = new int[8];
+        private int lineCount;
+        private int newlines;
+        private int layoutWidth = -1;
+        private int height = 1;
+
+        void append(String chunk) {
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                if (c == '\r') {
+                    continue;
+                }
+                if (c == '\t') {
+                    text.append("    ");
+                    continue;
+                }
+                if (c == '\n') {
+                    newlines++;
+                }
+                text.append(c);
+            }
+        }
+
+        // Greedy word wrap resumed from the start of the last line, which is the only one appends can change
+        void layout(FontMetrics metrics, int width) {
+            if (layoutWidth != width) {
+                layoutWidth = width;
+                lineStarts[0] = 0;
+                lineCount = 1;
+            }
+
+            int start = lineStarts[lineCount - 1];
+            int x = 0;
+            int lastSpace = -1;
+            for (int i = start, length = text.length(); i < length; i++) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    addLine(i + 1);
+                    start = i + 1;
+                    x = 0;
+                    lastSpace = -1;
+                    continue;
+                }
+                int charWidth = metrics.charWidth(c);
+                if (x + charWidth > width && i > start) {
+                    int breakAt = lastSpace >= start ? lastSpace + 1 : i;
+                    addLine(breakAt);
+                    start = breakAt;
+                    x = 0;
+                    for (int j = breakAt; j < i; j++) {
+                        x += metrics.charWidth(text.charAt(j));
+                    }
+                    lastSpace = -1;
+                }
+                if (c == ' ') {
+                    lastSpace = i;
+                }
+                x += charWidth;
+            }
+            height = lineCount;
+        }
+
+        // Cheap height for messages that have not been shown at this width yet
+        void estimate(FontMetrics metrics, int width) {
+            layoutWidth = -1;
+            int charsPerLine = Math.max(1, width / Math.max(1, metrics.charWidth('m')));
+            height = Math.max(1, text.length() / charsPerLine + newlines + 1);
+        }
+
+        private void addLine(int start) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount++] = start;
+        }
+
+        String line(int index) {
+            return text.substring(lineStarts[index], lineEnd(index));
+        }
+
+        // End of the drawn text of a line, without the break or the space it wrapped at
+        int lineEnd(int index) {
+            int start = lineStarts[index];
+            int end = index + 1 < lineCount ? lineStarts[index + 1] : text.length();
+            while (end > start && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == ' ')) {
+                end--;
+            }
+            return end;
+        }
+
+        // Measured with the same char widths as the wrap, so highlights line up with the wrapped text
+        int width(FontMetrics metrics, int from, int to) {
+            int width = 0;
+            for (int i = from; i < to; i++) {
+                width += metrics.charWidth(text.charAt(i));
+            }
+            return width;
+        }
+
+        // Offset of the character boundary nearest to x on a line
+        int offsetAt(FontMetrics metrics, int line, int x) {
+            int end = lineEnd(line);
+            int position = 0;
+            for (int i = lineStarts[line]; i < end; i++) {
+                int charWidth = metrics.charWidth(text.charAt(i));
+                if (x < position + charWidth / 2) {
+                    return i;
+                }
+                position += charWidth;
+            }
+            // Past the end of the line
+            return end;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.burp.llm.ui;
+
+import com.burp.llm.api.ModelComparison;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// One column per compared model: its answer streams in, with status and the latency numbers below it
+public class ComparePanel extends JPanel implements ModelComparison.Listener {
+    private final List<JTextArea> answers = new ArrayList<>();
+    private final List<JLabel> metrics = new ArrayList<>();
+
+    public ComparePanel() {
+        super(new GridLayout(1, 0, 5, 0));
+        showMessage("Select Compare and send a message to stream it to every compare target set in the LLM Config tab.");
+    }
+
+    public void showMessage(String message) {
+        removeAll();
+        answers.clear();
+        metrics.clear();
+        JLabel label = new JLabel(message, SwingConstants.CENTER);
+        label.setForeground(Color.GRAY);
+        add(label);
+        revalidate();
+        repaint();
+    }
+
+    public void start(List<ModelComparison.Target> targets) {
+        removeAll();
+        answers.clear();
+        metrics.clear();
+        for (ModelComparison.Target target : targets) {
+            JPanel column = new JPanel(new BorderLayout());
+            JLabel title = new JLabel(target.toString());
+            title.setFont(title.getFont().deriveFont(Font.BOLD));
+            title.setToolTipText(target.toString());
+
+            JTextArea answer = new JTextArea();
+            answer.setEditable(false);
+            answer.setLineWrap(true);
+            answer.setWrapStyleWord(true);
+
+            JLabel metric = new JLabel("waiting…");
+            metric.setForeground(Color.GRAY);
+
+            column.add(title, BorderLayout.NORTH);
+            column.add(new JScrollPane(answer), BorderLayout.CENTER);
+            column.add(metric, BorderLayout.SOUTH);
+            add(column);
+            answers.add(answer);
+            metrics.add(metric);
+        }
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public void onChunk(int index, String chunk) {
+        SwingUtilities.invokeLater(() -> answers.get(index).append(chunk));
+    }
+
+    @Override
+    public void onStatus(int index, String status) {
+        if (!status.isEmpty()) {
+            SwingUtilities.invokeLater(() -> metrics.get(index).setText(status));
+        }
+    }
+
+    @Override
+    public void onComplete(int index, ModelComparison.Result result, IOException error) {
+        SwingUtilities.invokeLater(() -> {
+            JLabel metric = metrics.get(index);
+            if (error != null) {
+                metric.setText("Error: " + error.getMessage());
+                metric.setForeground(new Color(200, 0, 0));
+            } else {
+                metric.setText(result.describe());
+                metric.setToolTipText(result.isExact()
+                    ? "Token counts and generation time reported by the server"
+                    : "Estimated locally: the server did not report eval_count");
+            }
+        });
+    }
+}
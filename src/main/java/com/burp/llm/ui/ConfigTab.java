@@ -1,14 +1,22 @@
 package com.burp.llm.ui;
 
 import burp.api.montoya.MontoyaApi;
+import com.burp.llm.api.CircuitBreaker;
+import com.burp.llm.api.ModelWarmer;
+import com.burp.llm.api.OllamaClient;
 import com.burp.llm.config.ConfigSettings;
+import com.burp.llm.knowledge.KnowledgeBase;
+import com.burp.llm.websocket.WebSocketAnalyzer;
 import com.burp.llm.config.ConfigSettings.CustomHeader;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
 
 public class ConfigTab extends JPanel {
     private final ConfigSettings configSettings;
@@ -20,12 +28,68 @@ public class ConfigTab extends JPanel {
     private final JCheckBox useProxyCheckbox;
     private final HeadersTableModel headersTableModel;
     private final JCheckBox multimodalCheckbox;
+    private final JCheckBox raiseAuditIssuesCheckbox;
+    private final JCheckBox chunkedAnalysisCheckbox;
+    private final JCheckBox redactSecretsCheckbox;
+    private final JCheckBox compressRequestsCheckbox;
+    private final JCheckBox http2CleartextCheckbox;
+    private final JTextField maxAnalysisChunksField;
+    private final JTextField intruderPayloadCountField;
+    private final JTextField intruderBatchSizeField;
+    private final JTextField verifyMaxVariantsField;
+    private final JTextField verifyConcurrencyField;
+    private final JTextField verifyHostDelayField;
+    private final JTextField verifyTimeoutField;
+    private final JCheckBox targetKnowledgeCheckbox;
+    private final JTextField knowledgeTokenCapField;
+    private final JTextField knowledgePrefixTokensField;
+    private final JLabel knowledgeStatsLabel;
+    private final JTextField webSocketBufferField;
+    private final JTextField webSocketContextField;
+    private final JLabel webSocketStatsLabel;
+    private final JComboBox<ConfigSettings.ThinkMode> thinkModeCombo;
+    private final JTextField numCtxField;
+    private final JTextField numPredictField;
+    private final JTextField temperatureField;
+    private final JTextArea stopSequencesArea;
+    private boolean loadingProfile;
     private final JTextField connectTimeoutField;
     private final JTextField writeTimeoutField;
     private final JTextField readTimeoutField;
+    private final JTextField firstTokenTimeoutField;
+    private final JTextField idleTimeoutField;
+    private final JTextField totalTimeoutField;
+    private final JCheckBox adaptiveTimeoutsCheckbox;
     private final JCheckBox useSystemPromptCheckbox;
     private final JTextArea systemPromptArea;
     private final JTextField chatApiEndpointField;
+    private final JTextField keepAliveField;
+    private final JCheckBox warmUpOnChangeCheckbox;
+    private final JCheckBox keepWarmCheckbox;
+    private final JTextField keepWarmIntervalField;
+    private final JTextField workingHoursStartField;
+    private final JTextField workingHoursEndField;
+    private final JTextField userIdField;
+    private final JTextField backendRateField;
+    private final JTextField userRateField;
+    private final JTextField maxInFlightField;
+    private final JTextField maxQueuedTokensField;
+    private final JTextField maxQueueWaitField;
+    private final JTextField backgroundShareField;
+    private final JCheckBox preemptBackgroundCheckbox;
+    private final JTextArea additionalServersArea;
+    private final JTextArea compareTargetsArea;
+    private final JCheckBox hedgingCheckbox;
+    private final JTextField hedgePercentileField;
+    private final JTextField hedgeBudgetField;
+    private final JLabel hedgeStatsLabel;
+    private final JLabel circuitStatusLabel;
+    private final JLabel wireStatsLabel;
+    private final OllamaClient ollamaClient;
+    private final ModelWarmer modelWarmer;
+    private final KnowledgeBase knowledgeBase;
+    private final WebSocketAnalyzer webSocketAnalyzer;
+    private final ModelStatesTableModel modelStatesTableModel;
     private final DocumentChangeListener serverListener;
     private final DocumentChangeListener modelListener;
 
@@ -124,6 +188,41 @@ public class ConfigTab extends JPanel {
         }
     }
 
+    private class ModelStatesTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Model", "State"};
+        private List<Map.Entry<String, ModelWarmer.LoadState>> rows = new ArrayList<>();
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Map.Entry<String, ModelWarmer.LoadState> entry = rows.get(row);
+            return switch (column) {
+                case 0 -> entry.getKey();
+                case 1 -> entry.getValue().name().toLowerCase();
+                default -> null;
+            };
+        }
+
+        public void refresh() {
+            rows = new ArrayList<>(modelWarmer.getLoadStates().entrySet());
+            fireTableDataChanged();
+        }
+    }
+
     private class HeaderCellRenderer extends DefaultTableCellRenderer {
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value,
@@ -142,9 +241,14 @@ public class ConfigTab extends JPanel {
         }
     }
 
-    public ConfigTab(MontoyaApi api, ConfigSettings configSettings) {
+    public ConfigTab(MontoyaApi api, ConfigSettings configSettings, OllamaClient ollamaClient, ModelWarmer modelWarmer, KnowledgeBase knowledgeBase,
+                     WebSocketAnalyzer webSocketAnalyzer) {
         this.api = api;
         this.configSettings = configSettings;
+        this.ollamaClient = ollamaClient;
+        this.modelWarmer = modelWarmer;
+        this.knowledgeBase = knowledgeBase;
+        this.webSocketAnalyzer = webSocketAnalyzer;
         
         // Initialize all fields first
         this.serverField = new JTextField(configSettings.getOllamaServer(), 30);
@@ -154,12 +258,64 @@ public class ConfigTab extends JPanel {
         this.useProxyCheckbox = new JCheckBox("Use Proxy", configSettings.isUseProxy());
         this.headersTableModel = new HeadersTableModel();
         this.multimodalCheckbox = new JCheckBox("Multimodal Support", configSettings.isMultimodalModel());
+        this.raiseAuditIssuesCheckbox = new JCheckBox("Raise structured findings as Burp issues", configSettings.isRaiseAuditIssues());
+        this.chunkedAnalysisCheckbox = new JCheckBox("Analyze responses larger than the context in chunks", configSettings.isChunkedAnalysis());
+        this.redactSecretsCheckbox = new JCheckBox("Redact secrets before sending (restored in answers)", configSettings.isRedactSecrets());
+        this.compressRequestsCheckbox = new JCheckBox("Gzip request bodies", configSettings.isCompressRequests());
+        this.http2CleartextCheckbox = new JCheckBox("HTTP/2 to http:// servers (h2c)", configSettings.isHttp2Cleartext());
+        this.maxAnalysisChunksField = new JTextField(String.valueOf(configSettings.getMaxAnalysisChunks()), 4);
+        this.intruderPayloadCountField = new JTextField(String.valueOf(configSettings.getIntruderPayloadCount()), 6);
+        this.intruderBatchSizeField = new JTextField(String.valueOf(configSettings.getIntruderBatchSize()), 4);
+        this.verifyMaxVariantsField = new JTextField(String.valueOf(configSettings.getVerifyMaxVariants()), 3);
+        this.verifyConcurrencyField = new JTextField(String.valueOf(configSettings.getVerifyConcurrencyPerHost()), 3);
+        this.verifyHostDelayField = new JTextField(String.valueOf(configSettings.getVerifyHostDelayMillis()), 5);
+        this.verifyTimeoutField = new JTextField(String.valueOf(configSettings.getVerifyTimeoutSeconds()), 4);
+        this.targetKnowledgeCheckbox = new JCheckBox("Learn facts about each host from answers and send them with new chats", configSettings.isTargetKnowledge());
+        this.knowledgeTokenCapField = new JTextField(String.valueOf(configSettings.getKnowledgeTokenCap()), 5);
+        this.knowledgePrefixTokensField = new JTextField(String.valueOf(configSettings.getKnowledgePrefixTokens()), 5);
+        this.knowledgeStatsLabel = new JLabel(knowledgeBase.getSummary());
+        this.webSocketBufferField = new JTextField(String.valueOf(configSettings.getWebSocketBufferKb()), 5);
+        this.webSocketContextField = new JTextField(String.valueOf(configSettings.getWebSocketContextTokens()), 5);
+        this.webSocketStatsLabel = new JLabel(webSocketAnalyzer.getSummary());
+        this.thinkModeCombo = new JComboBox<>(ConfigSettings.ThinkMode.values());
+        this.thinkModeCombo.setSelectedItem(configSettings.getThinkMode(configSettings.getModel()));
+        this.numCtxField = new JTextField(6);
+        this.numPredictField = new JTextField(6);
+        this.temperatureField = new JTextField(4);
+        this.stopSequencesArea = new JTextArea(2, 30);
         this.connectTimeoutField = new JTextField(String.valueOf(configSettings.getConnectTimeoutSeconds()), 5);
         this.writeTimeoutField = new JTextField(String.valueOf(configSettings.getWriteTimeoutSeconds()), 5);
         this.readTimeoutField = new JTextField(String.valueOf(configSettings.getReadTimeoutSeconds()), 5);
+        this.firstTokenTimeoutField = new JTextField(String.valueOf(configSettings.getFirstTokenTimeoutSeconds()), 5);
+        this.idleTimeoutField = new JTextField(String.valueOf(configSettings.getIdleTimeoutSeconds()), 5);
+        this.totalTimeoutField = new JTextField(String.valueOf(configSettings.getTotalTimeoutSeconds()), 5);
+        this.adaptiveTimeoutsCheckbox = new JCheckBox("Learn tighter stream deadlines from latency history", configSettings.isAdaptiveTimeouts());
         this.useSystemPromptCheckbox = new JCheckBox("Use System Prompt", configSettings.isUseSystemPrompt());
         this.systemPromptArea = new JTextArea(configSettings.getSystemPrompt(), 5, 40);
         this.chatApiEndpointField = new JTextField(configSettings.getChatApiEndpoint(), 20);
+        this.keepAliveField = new JTextField(configSettings.getKeepAlive(), 8);
+        this.warmUpOnChangeCheckbox = new JCheckBox("Pre-load model on load/change", configSettings.isWarmUpOnChange());
+        this.keepWarmCheckbox = new JCheckBox("Keep-warm heartbeat", configSettings.isKeepWarmEnabled());
+        this.keepWarmIntervalField = new JTextField(String.valueOf(configSettings.getKeepWarmIntervalMinutes()), 5);
+        this.workingHoursStartField = new JTextField(String.valueOf(configSettings.getWorkingHoursStart()), 3);
+        this.workingHoursEndField = new JTextField(String.valueOf(configSettings.getWorkingHoursEnd()), 3);
+        this.modelStatesTableModel = new ModelStatesTableModel();
+        this.userIdField = new JTextField(configSettings.getUserId(), 12);
+        this.backendRateField = new JTextField(String.valueOf(configSettings.getBackendRequestsPerMinute()), 5);
+        this.userRateField = new JTextField(String.valueOf(configSettings.getUserRequestsPerMinute()), 5);
+        this.maxInFlightField = new JTextField(String.valueOf(configSettings.getMaxInFlightPerBackend()), 5);
+        this.maxQueuedTokensField = new JTextField(String.valueOf(configSettings.getMaxQueuedPromptTokens()), 8);
+        this.maxQueueWaitField = new JTextField(String.valueOf(configSettings.getMaxQueueWaitSeconds()), 5);
+        this.backgroundShareField = new JTextField(String.valueOf(configSettings.getBackgroundSharePercent()), 3);
+        this.preemptBackgroundCheckbox = new JCheckBox("Preempt background generations for chat requests", configSettings.isPreemptBackground());
+        this.additionalServersArea = new JTextArea(String.join("\n", configSettings.getAdditionalServers()), 3, 40);
+        this.compareTargetsArea = new JTextArea(String.join("\n", configSettings.getCompareTargets()), 3, 40);
+        this.hedgingCheckbox = new JCheckBox("Hedge slow requests to another backend", configSettings.isHedgingEnabled());
+        this.hedgePercentileField = new JTextField(String.valueOf(configSettings.getHedgePercentile()), 3);
+        this.hedgeBudgetField = new JTextField(String.valueOf(configSettings.getHedgeBudgetPercent()), 3);
+        this.hedgeStatsLabel = new JLabel(ollamaClient.getHedgeSummary());
+        this.circuitStatusLabel = new JLabel();
+        this.wireStatsLabel = new JLabel("Wire: " + ollamaClient.getWireSummary());
         
         // Initialize document listeners
         this.serverListener = new DocumentChangeListener(() -> validateAndUpdateField(serverField, "Server URL cannot be empty"));
@@ -183,8 +339,16 @@ public class ConfigTab extends JPanel {
 
         // Create titled panels for each section
         JPanel serverPanel = createServerPanel();
+        JPanel generationPanel = createGenerationPanel();
         JPanel systemPromptPanel = createSystemPromptPanel();
         JPanel timeoutPanel = createTimeoutPanel();
+        JPanel warmUpPanel = createWarmUpPanel();
+        JPanel admissionPanel = createAdmissionPanel();
+        JPanel backendsPanel = createBackendsPanel();
+        JPanel intruderPanel = createIntruderPanel();
+        JPanel verifyPanel = createVerifyPanel();
+        JPanel knowledgePanel = createKnowledgePanel();
+        JPanel webSocketPanel = createWebSocketPanel();
         JPanel proxyPanel = createProxyPanel();
         JPanel headersPanel = createHeadersPanel();
 
@@ -196,15 +360,39 @@ public class ConfigTab extends JPanel {
         mainPanel.add(serverPanel, gbc);
 
         gbc.gridy = 1;
-        mainPanel.add(systemPromptPanel, gbc);
+        mainPanel.add(generationPanel, gbc);
 
         gbc.gridy = 2;
-        mainPanel.add(timeoutPanel, gbc);
+        mainPanel.add(systemPromptPanel, gbc);
 
         gbc.gridy = 3;
-        mainPanel.add(proxyPanel, gbc);
+        mainPanel.add(timeoutPanel, gbc);
 
         gbc.gridy = 4;
+        mainPanel.add(warmUpPanel, gbc);
+
+        gbc.gridy = 5;
+        mainPanel.add(admissionPanel, gbc);
+
+        gbc.gridy = 6;
+        mainPanel.add(backendsPanel, gbc);
+
+        gbc.gridy = 7;
+        mainPanel.add(intruderPanel, gbc);
+
+        gbc.gridy = 8;
+        mainPanel.add(verifyPanel, gbc);
+
+        gbc.gridy = 9;
+        mainPanel.add(knowledgePanel, gbc);
+
+        gbc.gridy = 10;
+        mainPanel.add(webSocketPanel, gbc);
+
+        gbc.gridy = 11;
+        mainPanel.add(proxyPanel, gbc);
+
+        gbc.gridy = 12;
         gbc.weighty = 1.0;  // Give extra vertical space to headers panel
         mainPanel.add(headersPanel, gbc);
 
@@ -215,7 +403,7 @@ public class ConfigTab extends JPanel {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         buttonPanel.add(saveAllButton);
         
-        gbc.gridy = 5;
+        gbc.gridy = 13;
         gbc.weighty = 0.0;
         gbc.anchor = GridBagConstraints.CENTER;
         mainPanel.add(buttonPanel, gbc);
@@ -267,14 +455,176 @@ public class ConfigTab extends JPanel {
         gbc.weightx = 1.0;
         panel.add(modelField, gbc);
 
+        // Thinking, remembered per model name
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.weightx = 0.0;
+        panel.add(new JLabel("Thinking (this model):"), gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.NONE;
+        thinkModeCombo.setToolTipText("Sends Ollama's think option; turning it off skips reasoning for faster answers");
+        panel.add(thinkModeCombo, gbc);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
         // Multimodal Support
         gbc.gridx = 1;
-        gbc.gridy = 3;
+        gbc.gridy = 4;
         panel.add(multimodalCheckbox, gbc);
 
+        // Structured findings
+        gbc.gridy = 5;
+        panel.add(raiseAuditIssuesCheckbox, gbc);
+
+        // Map-reduce analysis of oversized responses
+        JPanel chunkedPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        chunkedAnalysisCheckbox.setToolTipText("Splits the body on JSON elements or HTML blocks, analyzes the parts in parallel across backends and merges the notes");
+        chunkedPanel.add(chunkedAnalysisCheckbox);
+        chunkedPanel.add(Box.createHorizontalStrut(10));
+        chunkedPanel.add(new JLabel("max chunks:"));
+        chunkedPanel.add(Box.createHorizontalStrut(5));
+        chunkedPanel.add(maxAnalysisChunksField);
+        gbc.gridy = 6;
+        panel.add(chunkedPanel, gbc);
+
+        // Credentials are replaced with placeholders in prompts
+        redactSecretsCheckbox.setToolTipText("Replaces cookies, Authorization values, tokens, passwords and API keys with placeholders like [[COOKIE_1]]");
+        gbc.gridy = 7;
+        panel.add(redactSecretsCheckbox, gbc);
+
+        // Transport to servers across a WAN or behind a reverse proxy
+        JPanel transportPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        compressRequestsCheckbox.setToolTipText("Sends prompts over 8 KB with Content-Encoding: gzip; the server or a reverse proxy in front of it must decode request bodies");
+        http2CleartextCheckbox.setToolTipText("Uses HTTP/2 with prior knowledge so concurrent streams share one connection; https servers negotiate HTTP/2 on their own. Not used through the proxy below.");
+        transportPanel.add(compressRequestsCheckbox);
+        transportPanel.add(Box.createHorizontalStrut(10));
+        transportPanel.add(http2CleartextCheckbox);
+        gbc.gridy = 8;
+        panel.add(transportPanel, gbc);
+
         return panel;
     }
 
+    private JPanel createGenerationPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Generation Profile (this model)"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("num_ctx:"), gbc);
+
+        gbc.gridx = 1;
+        numCtxField.setToolTipText("\"auto\" sizes the context from the prompt in buckets of 2K-128K tokens");
+        panel.add(numCtxField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("num_predict:"), gbc);
+
+        gbc.gridx = 3;
+        numPredictField.setToolTipText("Maximum answer tokens; empty for no limit");
+        panel.add(numPredictField, gbc);
+
+        gbc.gridx = 4;
+        panel.add(new JLabel("Temperature:"), gbc);
+
+        gbc.gridx = 5;
+        gbc.weightx = 1.0;
+        temperatureField.setToolTipText("Empty for the model default");
+        panel.add(temperatureField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.weightx = 0.0;
+        gbc.anchor = GridBagConstraints.NORTHWEST;
+        panel.add(new JLabel("Stop sequences:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 5;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        stopSequencesArea.setToolTipText("One stop sequence per line");
+        panel.add(new JScrollPane(stopSequencesArea), gbc);
+
+        loadGenerationProfile(configSettings.getModel());
+        return panel;
+    }
+
+    private void loadGenerationProfile(String model) {
+        ConfigSettings.GenerationProfile profile = configSettings.getGenerationProfile(model);
+        loadingProfile = true;
+        try {
+            numCtxField.setText(profile.isAutoContext() ? "auto" : String.valueOf(profile.getNumCtx()));
+            numPredictField.setText(profile.getNumPredict() > 0 ? String.valueOf(profile.getNumPredict()) : "");
+            temperatureField.setText(profile.getTemperature() != null ? String.valueOf(profile.getTemperature()) : "");
+            stopSequencesArea.setText(String.join("\n", profile.getStop()));
+        } finally {
+            loadingProfile = false;
+        }
+    }
+
+    // Invalid fields are marked and leave the stored profile unchanged
+    private void saveGenerationProfile() {
+        if (loadingProfile) {
+            return;
+        }
+        Color invalid = new Color(255, 200, 200);
+        boolean valid = true;
+
+        int numCtx = 0;
+        String ctxText = numCtxField.getText().trim();
+        if (!ctxText.isEmpty() && !ctxText.equalsIgnoreCase("auto")) {
+            try {
+                numCtx = Integer.parseInt(ctxText);
+                valid &= numCtx > 0;
+            } catch (NumberFormatException e) {
+                valid = false;
+            }
+        }
+        numCtxField.setBackground(valid ? Color.WHITE : invalid);
+
+        int numPredict = 0;
+        boolean predictValid = true;
+        if (!numPredictField.getText().trim().isEmpty()) {
+            try {
+                numPredict = Integer.parseInt(numPredictField.getText().trim());
+                predictValid = numPredict > 0;
+            } catch (NumberFormatException e) {
+                predictValid = false;
+            }
+        }
+        numPredictField.setBackground(predictValid ? Color.WHITE : invalid);
+
+        Double temperature = null;
+        boolean temperatureValid = true;
+        if (!temperatureField.getText().trim().isEmpty()) {
+            try {
+                temperature = Double.parseDouble(temperatureField.getText().trim());
+                temperatureValid = temperature >= 0 && temperature <= 2;
+            } catch (NumberFormatException e) {
+                temperatureValid = false;
+            }
+        }
+        temperatureField.setBackground(temperatureValid ? Color.WHITE : invalid);
+
+        List<String> stop = new ArrayList<>();
+        for (String line : stopSequencesArea.getText().split("\n")) {
+            if (!line.isEmpty()) {
+                stop.add(line);
+            }
+        }
+
+        if (valid && predictValid && temperatureValid) {
+            configSettings.setGenerationProfile(modelField.getText().trim(),
+                new ConfigSettings.GenerationProfile(numCtx, numPredict, temperature, stop));
+        }
+    }
+
     private JPanel createSystemPromptPanel() {
         JPanel panel = new JPanel(new GridBagLayout());
         panel.setBorder(BorderFactory.createTitledBorder(
@@ -344,6 +694,407 @@ public class ConfigTab extends JPanel {
         gbc.gridx = 8;
         gbc.weightx = 1.0;
         panel.add(new JLabel("seconds"), gbc);
+        readTimeoutField.setToolTipText("Applies to non-streaming calls; chat streams use the budgets below");
+
+        // Stream budgets
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.weightx = 0.0;
+        panel.add(new JLabel("First token:"), gbc);
+
+        gbc.gridx = 1;
+        panel.add(firstTokenTimeoutField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("seconds"), gbc);
+
+        gbc.gridx = 3;
+        panel.add(new JLabel("Idle:"), gbc);
+
+        gbc.gridx = 4;
+        idleTimeoutField.setToolTipText("Longest pause allowed between two chunks of a stream");
+        panel.add(idleTimeoutField, gbc);
+
+        gbc.gridx = 5;
+        panel.add(new JLabel("seconds"), gbc);
+
+        gbc.gridx = 6;
+        panel.add(new JLabel("Total:"), gbc);
+
+        gbc.gridx = 7;
+        panel.add(totalTimeoutField, gbc);
+
+        gbc.gridx = 8;
+        gbc.weightx = 1.0;
+        panel.add(new JLabel("seconds"), gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.gridwidth = 9;
+        adaptiveTimeoutsCheckbox.setToolTipText("The values above become upper bounds; the first-token and idle budgets shrink to 3x their p99 per model and backend");
+        panel.add(adaptiveTimeoutsCheckbox, gbc);
+
+        return panel;
+    }
+
+    private JPanel createWarmUpPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Model Warm-up"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        // keep_alive sent with every request
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Keep alive:"), gbc);
+
+        gbc.gridx = 1;
+        panel.add(keepAliveField, gbc);
+
+        gbc.gridx = 2;
+        gbc.gridwidth = 4;
+        panel.add(warmUpOnChangeCheckbox, gbc);
+
+        // Heartbeat during working hours
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.gridwidth = 1;
+        panel.add(keepWarmCheckbox, gbc);
+
+        gbc.gridx = 1;
+        panel.add(keepWarmIntervalField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("minutes, between hours"), gbc);
+
+        gbc.gridx = 3;
+        panel.add(workingHoursStartField, gbc);
+
+        gbc.gridx = 4;
+        panel.add(new JLabel("and"), gbc);
+
+        gbc.gridx = 5;
+        gbc.weightx = 1.0;
+        panel.add(workingHoursEndField, gbc);
+
+        // Load state of each model
+        JTable statesTable = new JTable(modelStatesTableModel);
+        statesTable.setRowHeight(25);
+        JScrollPane tableScroll = new JScrollPane(statesTable);
+        tableScroll.setPreferredSize(new Dimension(400, 100));
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.gridwidth = 6;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(tableScroll, gbc);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton warmUpButton = new JButton("Warm Up Now");
+        JButton refreshButton = new JButton("Refresh");
+        warmUpButton.addActionListener(e -> modelWarmer.warmUpNow());
+        refreshButton.addActionListener(e -> modelWarmer.refreshNow());
+        buttonPanel.add(warmUpButton);
+        buttonPanel.add(refreshButton);
+
+        gbc.gridy = 3;
+        panel.add(buttonPanel, gbc);
+
+        return panel;
+    }
+
+    private JPanel createAdmissionPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Admission Control"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("User:"), gbc);
+
+        gbc.gridx = 1;
+        panel.add(userIdField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Requests/min per backend:"), gbc);
+
+        gbc.gridx = 3;
+        panel.add(backendRateField, gbc);
+
+        gbc.gridx = 4;
+        panel.add(new JLabel("per user:"), gbc);
+
+        gbc.gridx = 5;
+        gbc.weightx = 1.0;
+        panel.add(userRateField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.weightx = 0.0;
+        panel.add(new JLabel("Max in flight:"), gbc);
+
+        gbc.gridx = 1;
+        panel.add(maxInFlightField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Max queued prompt tokens:"), gbc);
+
+        gbc.gridx = 3;
+        panel.add(maxQueuedTokensField, gbc);
+
+        gbc.gridx = 4;
+        panel.add(new JLabel("Max queue wait (s):"), gbc);
+
+        gbc.gridx = 5;
+        panel.add(maxQueueWaitField, gbc);
+
+        // Chat tabs are interactive; Intruder payloads and batch analysis are background work
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        panel.add(new JLabel("Background share %:"), gbc);
+
+        gbc.gridx = 1;
+        backgroundShareField.setToolTipText("Slots per backend that background work keeps while chat requests are waiting; the rest can be preempted");
+        panel.add(backgroundShareField, gbc);
+
+        gbc.gridx = 2;
+        gbc.gridwidth = 4;
+        preemptBackgroundCheckbox.setToolTipText("Cancels a running background generation when a chat request has no free slot; it is queued again and resumes from its partial answer");
+        panel.add(preemptBackgroundCheckbox, gbc);
+
+        return panel;
+    }
+
+    private JPanel createIntruderPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Intruder Payloads"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Payloads per attack:"), gbc);
+
+        gbc.gridx = 1;
+        panel.add(intruderPayloadCountField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Generated per batch:"), gbc);
+
+        gbc.gridx = 3;
+        gbc.weightx = 1.0;
+        intruderBatchSizeField.setToolTipText("The prefetch buffer holds four batches; a new one is requested whenever a whole batch fits");
+        panel.add(intruderBatchSizeField, gbc);
+
+        return panel;
+    }
+
+    private JPanel createVerifyPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Auto-verify"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Test requests per question:"), gbc);
+
+        gbc.gridx = 1;
+        verifyMaxVariantsField.setToolTipText("At most 50; the unchanged request is sent as well, as a control");
+        panel.add(verifyMaxVariantsField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Response timeout (s):"), gbc);
+
+        gbc.gridx = 3;
+        gbc.weightx = 1.0;
+        panel.add(verifyTimeoutField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.weightx = 0.0;
+        panel.add(new JLabel("Concurrent per host:"), gbc);
+
+        gbc.gridx = 1;
+        verifyConcurrencyField.setToolTipText("Shared by all chat tabs, at most 32");
+        panel.add(verifyConcurrencyField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Delay between requests (ms):"), gbc);
+
+        gbc.gridx = 3;
+        gbc.weightx = 1.0;
+        verifyHostDelayField.setToolTipText("Minimum time between the starts of two test requests to the same host");
+        panel.add(verifyHostDelayField, gbc);
+
+        return panel;
+    }
+
+    private JPanel createKnowledgePanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Target Knowledge"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 4;
+        targetKnowledgeCheckbox.setToolTipText("After each answer about a request, the model updates its notes about the host in the background");
+        panel.add(targetKnowledgeCheckbox, gbc);
+
+        gbc.gridy = 1;
+        gbc.gridwidth = 1;
+        panel.add(new JLabel("Notes per host (tokens):"), gbc);
+
+        gbc.gridx = 1;
+        knowledgeTokenCapField.setToolTipText("50 to 4000; the model summarizes its notes down to this size");
+        panel.add(knowledgeTokenCapField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Sent per chat (tokens):"), gbc);
+
+        gbc.gridx = 3;
+        gbc.weightx = 1.0;
+        knowledgePrefixTokensField.setToolTipText("When the notes are larger, those most relevant to the chat's first question are sent");
+        panel.add(knowledgePrefixTokensField, gbc);
+
+        JButton forgetButton = new JButton("Forget All");
+        forgetButton.addActionListener(e -> {
+            if (JOptionPane.showConfirmDialog(this, "Forget everything learned about all hosts in this project?",
+                    "Target Knowledge", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION) {
+                knowledgeBase.forgetAll();
+                knowledgeStatsLabel.setText(knowledgeBase.getSummary());
+            }
+        });
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.weightx = 0.0;
+        panel.add(forgetButton, gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        panel.add(knowledgeStatsLabel, gbc);
+
+        return panel;
+    }
+
+    private JPanel createWebSocketPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "WebSockets"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Frames kept per connection (KB):"), gbc);
+
+        gbc.gridx = 1;
+        webSocketBufferField.setToolTipText("16 to 8192; the oldest frames are dropped when full. Applies to connections opened afterwards");
+        panel.add(webSocketBufferField, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Sent per question (tokens):"), gbc);
+
+        gbc.gridx = 3;
+        gbc.weightx = 1.0;
+        webSocketContextField.setToolTipText("100 to 32000; the selected message, its neighbours and frames matching the question are picked to fit");
+        panel.add(webSocketContextField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.gridwidth = 4;
+        gbc.weightx = 0.0;
+        panel.add(webSocketStatsLabel, gbc);
+
+        return panel;
+    }
+
+    private JPanel createBackendsPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Additional Backends & Hedging"));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 5;
+        panel.add(new JLabel("Additional Ollama servers (one URL per line):"), gbc);
+
+        JScrollPane scrollPane = new JScrollPane(additionalServersArea);
+        gbc.gridy = 1;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(scrollPane, gbc);
+
+        gbc.gridy = 2;
+        gbc.gridwidth = 1;
+        gbc.weightx = 0.0;
+        gbc.fill = GridBagConstraints.NONE;
+        panel.add(hedgingCheckbox, gbc);
+
+        gbc.gridx = 1;
+        panel.add(new JLabel("after TTFT percentile:"), gbc);
+
+        gbc.gridx = 2;
+        panel.add(hedgePercentileField, gbc);
+
+        gbc.gridx = 3;
+        panel.add(new JLabel("max % of requests hedged:"), gbc);
+
+        gbc.gridx = 4;
+        gbc.weightx = 1.0;
+        panel.add(hedgeBudgetField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.gridwidth = 5;
+        panel.add(hedgeStatsLabel, gbc);
+
+        gbc.gridy = 4;
+        circuitStatusLabel.setToolTipText("Open circuits fail requests immediately and are probed with /api/tags");
+        panel.add(circuitStatusLabel, gbc);
+        updateCircuitStatus();
+
+        gbc.gridy = 5;
+        wireStatsLabel.setToolTipText("Request and response body bytes of chat streams, probes and model queries");
+        panel.add(wireStatsLabel, gbc);
+
+        gbc.gridy = 6;
+        panel.add(new JLabel("Compare targets for the chat tab's Compare mode (one per line: model or model@server URL):"), gbc);
+
+        gbc.gridy = 7;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(new JScrollPane(compareTargetsArea), gbc);
 
         return panel;
     }
@@ -447,6 +1198,20 @@ public class ConfigTab extends JPanel {
         // Add document listeners
         serverField.getDocument().addDocumentListener(serverListener);
         modelField.getDocument().addDocumentListener(modelListener);
+        modelField.getDocument().addDocumentListener(new DocumentChangeListener(() ->
+            thinkModeCombo.setSelectedItem(configSettings.getThinkMode(modelField.getText().trim()))
+        ));
+        modelField.getDocument().addDocumentListener(new DocumentChangeListener(() ->
+            loadGenerationProfile(modelField.getText().trim())
+        ));
+        DocumentChangeListener profileListener = new DocumentChangeListener(this::saveGenerationProfile);
+        numCtxField.getDocument().addDocumentListener(profileListener);
+        numPredictField.getDocument().addDocumentListener(profileListener);
+        temperatureField.getDocument().addDocumentListener(profileListener);
+        stopSequencesArea.getDocument().addDocumentListener(profileListener);
+        thinkModeCombo.addActionListener(e ->
+            configSettings.setThinkMode(modelField.getText().trim(), (ConfigSettings.ThinkMode) thinkModeCombo.getSelectedItem())
+        );
         
         // Add chat API endpoint listener
         chatApiEndpointField.getDocument().addDocumentListener(new DocumentChangeListener(() -> {
@@ -504,6 +1269,116 @@ public class ConfigTab extends JPanel {
             }
         }));
 
+        // Add warm-up listeners
+        keepAliveField.getDocument().addDocumentListener(new DocumentChangeListener(() ->
+            configSettings.setKeepAlive(keepAliveField.getText())
+        ));
+
+        warmUpOnChangeCheckbox.addActionListener(e ->
+            configSettings.setWarmUpOnChange(warmUpOnChangeCheckbox.isSelected())
+        );
+
+        keepWarmCheckbox.addActionListener(e ->
+            configSettings.setKeepWarmEnabled(keepWarmCheckbox.isSelected())
+        );
+
+        keepWarmIntervalField.getDocument().addDocumentListener(new DocumentChangeListener(() -> {
+            try {
+                int interval = Integer.parseInt(keepWarmIntervalField.getText().trim());
+                if (interval > 0) {
+                    configSettings.setKeepWarmIntervalMinutes(interval);
+                    keepWarmIntervalField.setBackground(Color.WHITE);
+                } else {
+                    keepWarmIntervalField.setBackground(new Color(255, 200, 200));
+                }
+            } catch (NumberFormatException ex) {
+                keepWarmIntervalField.setBackground(new Color(255, 200, 200));
+            }
+        }));
+
+        DocumentChangeListener workingHoursListener = new DocumentChangeListener(() -> {
+            try {
+                int start = Integer.parseInt(workingHoursStartField.getText().trim());
+                int end = Integer.parseInt(workingHoursEndField.getText().trim());
+                if (start >= 0 && end <= 24 && start < end) {
+                    configSettings.setWorkingHours(start, end);
+                    workingHoursStartField.setBackground(Color.WHITE);
+                    workingHoursEndField.setBackground(Color.WHITE);
+                } else {
+                    workingHoursStartField.setBackground(new Color(255, 200, 200));
+                    workingHoursEndField.setBackground(new Color(255, 200, 200));
+                }
+            } catch (NumberFormatException ex) {
+                workingHoursStartField.setBackground(new Color(255, 200, 200));
+                workingHoursEndField.setBackground(new Color(255, 200, 200));
+            }
+        });
+        workingHoursStartField.getDocument().addDocumentListener(workingHoursListener);
+        workingHoursEndField.getDocument().addDocumentListener(workingHoursListener);
+
+        // Add admission control listeners
+        userIdField.getDocument().addDocumentListener(new DocumentChangeListener(() ->
+            configSettings.setUserId(userIdField.getText())
+        ));
+        addPositiveIntListener(firstTokenTimeoutField, configSettings::setFirstTokenTimeoutSeconds);
+        addPositiveIntListener(idleTimeoutField, configSettings::setIdleTimeoutSeconds);
+        addPositiveIntListener(totalTimeoutField, configSettings::setTotalTimeoutSeconds);
+        adaptiveTimeoutsCheckbox.addActionListener(e ->
+            configSettings.setAdaptiveTimeouts(adaptiveTimeoutsCheckbox.isSelected())
+        );
+        addPositiveIntListener(backendRateField, configSettings::setBackendRequestsPerMinute);
+        addPositiveIntListener(userRateField, configSettings::setUserRequestsPerMinute);
+        addPositiveIntListener(maxInFlightField, configSettings::setMaxInFlightPerBackend);
+        addPositiveIntListener(maxQueuedTokensField, configSettings::setMaxQueuedPromptTokens);
+        addPositiveIntListener(maxQueueWaitField, configSettings::setMaxQueueWaitSeconds);
+        backgroundShareField.getDocument().addDocumentListener(new DocumentChangeListener(() -> {
+            try {
+                int value = Integer.parseInt(backgroundShareField.getText().trim());
+                if (value >= 0 && value <= 100) {
+                    configSettings.setBackgroundSharePercent(value);
+                    backgroundShareField.setBackground(Color.WHITE);
+                } else {
+                    backgroundShareField.setBackground(new Color(255, 200, 200));
+                }
+            } catch (NumberFormatException ex) {
+                backgroundShareField.setBackground(new Color(255, 200, 200));
+            }
+        }));
+        preemptBackgroundCheckbox.addActionListener(e ->
+            configSettings.setPreemptBackground(preemptBackgroundCheckbox.isSelected())
+        );
+
+        // Add backend and hedging listeners
+        additionalServersArea.getDocument().addDocumentListener(new DocumentChangeListener(() ->
+            configSettings.setAdditionalServers(List.of(additionalServersArea.getText().split("\\R")))
+        ));
+        compareTargetsArea.getDocument().addDocumentListener(new DocumentChangeListener(() ->
+            configSettings.setCompareTargets(List.of(compareTargetsArea.getText().split("\\R")))
+        ));
+
+        hedgingCheckbox.addActionListener(e ->
+            configSettings.setHedgingEnabled(hedgingCheckbox.isSelected())
+        );
+        addPositiveIntListener(hedgePercentileField, configSettings::setHedgePercentile);
+        addPositiveIntListener(hedgeBudgetField, configSettings::setHedgeBudgetPercent);
+
+        // Refresh live statistics while the tab is showing
+        new Timer(2000, e -> {
+            if (isShowing()) {
+                hedgeStatsLabel.setText("Hedges: " + ollamaClient.getHedgeSummary()
+                    + "; " + ollamaClient.getCoalescedCount() + " duplicate requests joined an in-flight one"
+                    + "; " + ollamaClient.getPreemptionCount() + " background generations preempted");
+                wireStatsLabel.setText("Wire: " + ollamaClient.getWireSummary());
+                knowledgeStatsLabel.setText(knowledgeBase.getSummary());
+                webSocketStatsLabel.setText(webSocketAnalyzer.getSummary());
+                updateCircuitStatus();
+            }
+        }).start();
+        ollamaClient.getCircuitBreaker().addStateListener((backend, state) ->
+            SwingUtilities.invokeLater(this::updateCircuitStatus));
+
+        modelWarmer.addStateListener(() -> SwingUtilities.invokeLater(modelStatesTableModel::refresh));
+
         // Add system prompt listeners
         useSystemPromptCheckbox.addActionListener(e -> {
             boolean enabled = useSystemPromptCheckbox.isSelected();
@@ -548,6 +1423,81 @@ public class ConfigTab extends JPanel {
         multimodalCheckbox.addActionListener(e -> 
             configSettings.setMultimodalModel(multimodalCheckbox.isSelected())
         );
+
+        raiseAuditIssuesCheckbox.addActionListener(e ->
+            configSettings.setRaiseAuditIssues(raiseAuditIssuesCheckbox.isSelected())
+        );
+        chunkedAnalysisCheckbox.addActionListener(e ->
+            configSettings.setChunkedAnalysis(chunkedAnalysisCheckbox.isSelected())
+        );
+        redactSecretsCheckbox.addActionListener(e ->
+            configSettings.setRedactSecrets(redactSecretsCheckbox.isSelected())
+        );
+        compressRequestsCheckbox.addActionListener(e ->
+            configSettings.setCompressRequests(compressRequestsCheckbox.isSelected())
+        );
+        http2CleartextCheckbox.addActionListener(e ->
+            configSettings.setHttp2Cleartext(http2CleartextCheckbox.isSelected())
+        );
+        addPositiveIntListener(maxAnalysisChunksField, configSettings::setMaxAnalysisChunks);
+        addPositiveIntListener(intruderPayloadCountField, configSettings::setIntruderPayloadCount);
+        addPositiveIntListener(intruderBatchSizeField, configSettings::setIntruderBatchSize);
+        addPositiveIntListener(verifyMaxVariantsField, configSettings::setVerifyMaxVariants);
+        addPositiveIntListener(verifyConcurrencyField, configSettings::setVerifyConcurrencyPerHost);
+        addPositiveIntListener(verifyTimeoutField, configSettings::setVerifyTimeoutSeconds);
+        targetKnowledgeCheckbox.addActionListener(e ->
+            configSettings.setTargetKnowledge(targetKnowledgeCheckbox.isSelected())
+        );
+        addPositiveIntListener(knowledgeTokenCapField, configSettings::setKnowledgeTokenCap);
+        addPositiveIntListener(knowledgePrefixTokensField, configSettings::setKnowledgePrefixTokens);
+        addPositiveIntListener(webSocketBufferField, configSettings::setWebSocketBufferKb);
+        addPositiveIntListener(webSocketContextField, configSettings::setWebSocketContextTokens);
+        verifyHostDelayField.getDocument().addDocumentListener(new DocumentChangeListener(() -> {
+            try {
+                int value = Integer.parseInt(verifyHostDelayField.getText().trim());
+                if (value >= 0) {
+                    configSettings.setVerifyHostDelayMillis(value);
+                    verifyHostDelayField.setBackground(Color.WHITE);
+                } else {
+                    verifyHostDelayField.setBackground(new Color(255, 200, 200));
+                }
+            } catch (NumberFormatException ex) {
+                verifyHostDelayField.setBackground(new Color(255, 200, 200));
+            }
+        }));
+    }
+
+    private void updateCircuitStatus() {
+        StringBuilder text = new StringBuilder("<html>Backend health: ");
+        String separator = "";
+        for (Map.Entry<String, CircuitBreaker.State> entry
+                : ollamaClient.getCircuitBreaker().getStates(configSettings.getBackends()).entrySet()) {
+            String color = switch (entry.getValue()) {
+                case CLOSED -> "green";
+                case HALF_OPEN -> "#c08000";
+                case OPEN -> "red";
+            };
+            text.append(separator).append(entry.getKey())
+                .append(" <font color='").append(color).append("'>").append(entry.getValue()).append("</font>");
+            separator = ", ";
+        }
+        circuitStatusLabel.setText(text.append("</html>").toString());
+    }
+
+    private void addPositiveIntListener(JTextField field, IntConsumer setter) {
+        field.getDocument().addDocumentListener(new DocumentChangeListener(() -> {
+            try {
+                int value = Integer.parseInt(field.getText().trim());
+                if (value > 0) {
+                    setter.accept(value);
+                    field.setBackground(Color.WHITE);
+                } else {
+                    field.setBackground(new Color(255, 200, 200));
+                }
+            } catch (NumberFormatException ex) {
+                field.setBackground(new Color(255, 200, 200));
+            }
+        }));
     }
 
     private boolean validateAllFields() {
@@ -722,11 +1672,56 @@ public class ConfigTab extends JPanel {
                 proxyHostField.setText(configSettings.getProxyHost());
                 proxyPortField.setText(String.valueOf(configSettings.getProxyPort()));
                 multimodalCheckbox.setSelected(configSettings.isMultimodalModel());
+                raiseAuditIssuesCheckbox.setSelected(configSettings.isRaiseAuditIssues());
+                chunkedAnalysisCheckbox.setSelected(configSettings.isChunkedAnalysis());
+                redactSecretsCheckbox.setSelected(configSettings.isRedactSecrets());
+                compressRequestsCheckbox.setSelected(configSettings.isCompressRequests());
+                http2CleartextCheckbox.setSelected(configSettings.isHttp2Cleartext());
+                maxAnalysisChunksField.setText(String.valueOf(configSettings.getMaxAnalysisChunks()));
+                intruderPayloadCountField.setText(String.valueOf(configSettings.getIntruderPayloadCount()));
+                intruderBatchSizeField.setText(String.valueOf(configSettings.getIntruderBatchSize()));
+                verifyMaxVariantsField.setText(String.valueOf(configSettings.getVerifyMaxVariants()));
+                verifyConcurrencyField.setText(String.valueOf(configSettings.getVerifyConcurrencyPerHost()));
+                verifyHostDelayField.setText(String.valueOf(configSettings.getVerifyHostDelayMillis()));
+                verifyTimeoutField.setText(String.valueOf(configSettings.getVerifyTimeoutSeconds()));
+                targetKnowledgeCheckbox.setSelected(configSettings.isTargetKnowledge());
+                knowledgeTokenCapField.setText(String.valueOf(configSettings.getKnowledgeTokenCap()));
+                knowledgePrefixTokensField.setText(String.valueOf(configSettings.getKnowledgePrefixTokens()));
+                webSocketBufferField.setText(String.valueOf(configSettings.getWebSocketBufferKb()));
+                webSocketContextField.setText(String.valueOf(configSettings.getWebSocketContextTokens()));
+                thinkModeCombo.setSelectedItem(configSettings.getThinkMode(configSettings.getModel()));
+                if (!numCtxField.isFocusOwner() && !numPredictField.isFocusOwner()
+                        && !temperatureField.isFocusOwner() && !stopSequencesArea.isFocusOwner()) {
+                    loadGenerationProfile(configSettings.getModel());
+                }
                 connectTimeoutField.setText(String.valueOf(configSettings.getConnectTimeoutSeconds()));
                 writeTimeoutField.setText(String.valueOf(configSettings.getWriteTimeoutSeconds()));
                 readTimeoutField.setText(String.valueOf(configSettings.getReadTimeoutSeconds()));
+                firstTokenTimeoutField.setText(String.valueOf(configSettings.getFirstTokenTimeoutSeconds()));
+                idleTimeoutField.setText(String.valueOf(configSettings.getIdleTimeoutSeconds()));
+                totalTimeoutField.setText(String.valueOf(configSettings.getTotalTimeoutSeconds()));
+                adaptiveTimeoutsCheckbox.setSelected(configSettings.isAdaptiveTimeouts());
                 useSystemPromptCheckbox.setSelected(configSettings.isUseSystemPrompt());
                 systemPromptArea.setText(configSettings.getSystemPrompt());
+                keepAliveField.setText(configSettings.getKeepAlive());
+                warmUpOnChangeCheckbox.setSelected(configSettings.isWarmUpOnChange());
+                keepWarmCheckbox.setSelected(configSettings.isKeepWarmEnabled());
+                keepWarmIntervalField.setText(String.valueOf(configSettings.getKeepWarmIntervalMinutes()));
+                workingHoursStartField.setText(String.valueOf(configSettings.getWorkingHoursStart()));
+                workingHoursEndField.setText(String.valueOf(configSettings.getWorkingHoursEnd()));
+                userIdField.setText(configSettings.getUserId());
+                backendRateField.setText(String.valueOf(configSettings.getBackendRequestsPerMinute()));
+                userRateField.setText(String.valueOf(configSettings.getUserRequestsPerMinute()));
+                maxInFlightField.setText(String.valueOf(configSettings.getMaxInFlightPerBackend()));
+                maxQueuedTokensField.setText(String.valueOf(configSettings.getMaxQueuedPromptTokens()));
+                maxQueueWaitField.setText(String.valueOf(configSettings.getMaxQueueWaitSeconds()));
+                backgroundShareField.setText(String.valueOf(configSettings.getBackgroundSharePercent()));
+                preemptBackgroundCheckbox.setSelected(configSettings.isPreemptBackground());
+                additionalServersArea.setText(String.join("\n", configSettings.getAdditionalServers()));
+                compareTargetsArea.setText(String.join("\n", configSettings.getCompareTargets()));
+                hedgingCheckbox.setSelected(configSettings.isHedgingEnabled());
+                hedgePercentileField.setText(String.valueOf(configSettings.getHedgePercentile()));
+                hedgeBudgetField.setText(String.valueOf(configSettings.getHedgeBudgetPercent()));
                 headersTableModel.fireTableDataChanged();
             } finally {
                 // Restore the listeners
@@ -0,0 +1,69 @@
+package com.burp.llm.ui;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import com.burp.llm.search.ConversationIndex;
+import com.burp.llm.search.ProjectIndexStore;
+
+import javax.swing.*;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Finds the chat tab a conversation lives in. A tab that still shows it is brought to the front; otherwise
+// its request is sent to Repeater and the AI Chat tab of the new Repeater tab picks the conversation up.
+public class ConversationNavigator {
+    private final MontoyaApi api;
+    private final ConversationIndex index;
+    private final ProjectIndexStore store;
+    private final Map<Integer, WeakReference<LLMRequestEditorTab>> tabs = new ConcurrentHashMap<>();
+    private final Map<Integer, HttpRequest> requests = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pendingRestores = new ConcurrentHashMap<>();
+
+    public ConversationNavigator(MontoyaApi api, ConversationIndex index, ProjectIndexStore store) {
+        this.api = api;
+        this.index = index;
+        this.store = store;
+    }
+
+    public ConversationIndex getIndex() {
+        return index;
+    }
+
+    // Called when a tab starts or takes over a conversation
+    public void register(int conversationId, LLMRequestEditorTab tab, HttpRequest request) {
+        tabs.put(conversationId, new WeakReference<>(tab));
+        if (request != null && requests.putIfAbsent(conversationId, request) == null) {
+            store.saveRequest(conversationId, request);
+        }
+    }
+
+    // The conversation to restore in an editor that was just given this request by open()
+    public Integer claimRestore(HttpRequest request) {
+        return request != null && !pendingRestores.isEmpty() ? pendingRestores.remove(request.toString()) : null;
+    }
+
+    // Runs on the event dispatch thread
+    public void open(int conversationId, JComponent parent) {
+        WeakReference<LLMRequestEditorTab> reference = tabs.get(conversationId);
+        LLMRequestEditorTab tab = reference != null ? reference.get() : null;
+        if (tab != null && tab.reveal(conversationId)) {
+            return;
+        }
+
+        HttpRequest request = requests.get(conversationId);
+        if (request == null) {
+            request = store.loadRequest(conversationId);
+        }
+        if (request == null) {
+            JOptionPane.showMessageDialog(parent, "The request of this conversation was not saved, so it cannot be reopened.",
+                "Open conversation", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        String name = "AI chat #" + conversationId;
+        pendingRestores.put(request.toString(), conversationId);
+        api.repeater().sendToRepeater(request, name);
+        JOptionPane.showMessageDialog(parent, "The conversation was reopened in Repeater tab \"" + name
+            + "\"; its AI Chat tab shows the history.", "Open conversation", JOptionPane.INFORMATION_MESSAGE);
+    }
+}
@@ -1,57 +1,125 @@
 package com.burp.llm.ui;
 
 import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.Marker;
 import burp.api.montoya.ui.editor.extension.EditorCreationContext;
 import burp.api.montoya.ui.editor.extension.ExtensionProvidedHttpRequestEditor;
 import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.scanner.audit.issues.AuditIssue;
+import burp.api.montoya.scanner.audit.issues.AuditIssueConfidence;
+import burp.api.montoya.scanner.audit.issues.AuditIssueSeverity;
 import burp.api.montoya.ui.Selection;
+import com.burp.llm.api.ChatEvents;
+import com.burp.llm.api.CircuitBreaker;
+import com.burp.llm.api.Conversation;
+import com.burp.llm.api.Finding;
+import com.burp.llm.api.ModelComparison;
 import com.burp.llm.api.OllamaClient;
+import com.burp.llm.api.SelectionEnvelope;
+import com.burp.llm.api.TestVariant;
+import com.burp.llm.api.TokenEstimator;
+import com.burp.llm.config.ConfigSettings;
+import com.burp.llm.knowledge.KnowledgeBase;
+import com.burp.llm.search.ConversationIndex;
+import com.burp.llm.search.IndexedMessage;
+import com.burp.llm.verify.VariantResult;
+import com.burp.llm.verify.VariantRunner;
+import com.google.gson.JsonObject;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
-import javax.swing.text.DefaultCaret;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
 import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
     private final MontoyaApi api;
     private final OllamaClient ollamaClient;
+    private final VariantRunner variantRunner;
+    private final ConversationNavigator navigator;
+    private final KnowledgeBase knowledgeBase;
+    private final Conversation conversation;
     private final JPanel component;
-    private final JTextArea chatArea;
+    private final ChatTranscript chatArea;
     private final JTextArea inputArea;
     private final JCheckBox includeRequestResponseCheckbox;
+    private final JCheckBox selectionOnlyCheckbox;
+    private final SelectionContextMenu selectionMenu;
+    private SelectionContextMenu.EditorSelection activeSelection;
+    private SelectionContextMenu.EditorSelection budgetSelection;
+    private int budgetSelectionTokens;
+    private final JCheckBox structuredFindingsCheckbox;
+    private final JCheckBox compareCheckbox;
+    private final JCheckBox autoVerifyCheckbox;
+    private final ComparePanel comparePanel;
     private final JButton attachImageButton;
     private final JLabel imageStatusLabel;
+    private final JLabel statusLabel;
+    private final JLabel budgetLabel;
+    private final JTextArea reasoningArea;
+    private final JToggleButton reasoningToggle;
+    private final JPanel reasoningPanel;
+    private final CircuitBreaker.StateListener circuitListener;
+    private int reasoningTokens;
     private List<String> attachedImages;
     private volatile boolean isReceivingResponse;
     private HttpRequestResponse currentRequestResponse;
+    // Assigned with the first message; 0 until then
+    private int conversationId;
+    private IndexedMessage currentMessage;
+    private HttpRequestResponse budgetSource;
+    private TokenEstimator budgetEstimator;
+    private int budgetHistorySize = -1;
+    private int budgetMessageTokens;
+    private String contextLimitModel;
+    private volatile int contextLimit = -1;
 
-    public LLMRequestEditorTab(MontoyaApi api, OllamaClient ollamaClient, EditorCreationContext creationContext) {
+    public LLMRequestEditorTab(MontoyaApi api, OllamaClient ollamaClient, VariantRunner variantRunner, ConversationNavigator navigator, KnowledgeBase knowledgeBase, SelectionContextMenu selectionMenu, EditorCreationContext creationContext) {
         this.api = api;
         this.ollamaClient = ollamaClient;
+        this.variantRunner = variantRunner;
+        this.navigator = navigator;
+        this.knowledgeBase = knowledgeBase;
+        this.selectionMenu = selectionMenu;
+        this.conversation = new Conversation();
         this.attachedImages = new ArrayList<>();
         this.isReceivingResponse = false;
         
         // Initialize main component
         component = new JPanel(new BorderLayout());
         
-        // Chat Area
-        chatArea = new JTextArea();
-        chatArea.setEditable(false);
-        chatArea.setLineWrap(true);
-        chatArea.setWrapStyleWord(true);
-        DefaultCaret caret = (DefaultCaret) chatArea.getCaret();
-        caret.setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
+        // Chat Area: only the visible messages are laid out and painted
+        chatArea = new ChatTranscript();
         JScrollPane chatScrollPane = new JScrollPane(chatArea);
+
+        // Reasoning side panel, collapsed unless the user opens it
+        reasoningArea = new JTextArea();
+        reasoningArea.setEditable(false);
+        reasoningArea.setLineWrap(true);
+        reasoningArea.setWrapStyleWord(true);
+        reasoningArea.setForeground(Color.GRAY);
+        reasoningPanel = new JPanel(new BorderLayout());
+        reasoningPanel.setBorder(BorderFactory.createTitledBorder("Reasoning"));
+        reasoningPanel.add(new JScrollPane(reasoningArea), BorderLayout.CENTER);
+        reasoningPanel.setPreferredSize(new Dimension(300, 0));
+        reasoningPanel.setVisible(false);
+        reasoningToggle = new JToggleButton("Reasoning");
+        reasoningToggle.setToolTipText("Show the model's reasoning for the last answer");
         
         // Input Panel
         JPanel inputPanel = new JPanel(new BorderLayout());
@@ -59,12 +127,34 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
         // Controls Panel
         JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         includeRequestResponseCheckbox = new JCheckBox("Include Request/Response", true);
+        selectionOnlyCheckbox = new JCheckBox("Selection only");
+        selectionOnlyCheckbox.setEnabled(false);
+        selectionOnlyCheckbox.setToolTipText("Right-click a selection in the Raw editor and choose \"Ask AI Chat about selection\"; "
+            + "highlighted regions are used otherwise");
+        structuredFindingsCheckbox = new JCheckBox("Structured Findings", false);
+        structuredFindingsCheckbox.setToolTipText("Ask for JSON findings and show each one as soon as it is complete");
+        compareCheckbox = new JCheckBox("Compare");
+        compareCheckbox.setToolTipText("Send the next message to every compare target at once, one column each, with TTFT and tokens/sec");
+        autoVerifyCheckbox = new JCheckBox("Auto-verify");
+        autoVerifyCheckbox.setToolTipText("Have the model propose test requests for its hypotheses, send them through Burp "
+            + "next to an unchanged control and give it the results in one follow-up turn");
+        comparePanel = new ComparePanel();
         attachImageButton = new JButton("Attach Image");
         imageStatusLabel = new JLabel();
+        statusLabel = new JLabel();
+        statusLabel.setForeground(Color.GRAY);
+        budgetLabel = new JLabel();
+        budgetLabel.setToolTipText("Projected prompt tokens for the next message against the model's context length");
         
         controlsPanel.add(includeRequestResponseCheckbox);
+        controlsPanel.add(selectionOnlyCheckbox);
+        controlsPanel.add(structuredFindingsCheckbox);
+        controlsPanel.add(compareCheckbox);
+        controlsPanel.add(autoVerifyCheckbox);
         controlsPanel.add(attachImageButton);
         controlsPanel.add(imageStatusLabel);
+        controlsPanel.add(reasoningToggle);
+        controlsPanel.add(statusLabel);
         
         // Input Area
         inputArea = new JTextArea(3, 40);
@@ -74,6 +164,7 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
         
         // Buttons Panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(budgetLabel);
         JButton sendButton = new JButton("Send");
         JButton clearButton = new JButton("Clear Chat");
         JButton clearImagesButton = new JButton("Clear Images");
@@ -88,7 +179,12 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
         inputPanel.add(buttonPanel, BorderLayout.SOUTH);
         
         // Add components to main panel
-        component.add(chatScrollPane, BorderLayout.CENTER);
+        CardLayout centerCards = new CardLayout();
+        JPanel centerPanel = new JPanel(centerCards);
+        centerPanel.add(chatScrollPane, "chat");
+        centerPanel.add(comparePanel, "compare");
+        component.add(centerPanel, BorderLayout.CENTER);
+        component.add(reasoningPanel, BorderLayout.EAST);
         component.add(inputPanel, BorderLayout.SOUTH);
         
         // Initialize UI state
@@ -102,7 +198,52 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
             updateImageControls();
         });
         attachImageButton.addActionListener(e -> attachImage());
+        compareCheckbox.addActionListener(e ->
+            centerCards.show(centerPanel, compareCheckbox.isSelected() ? "compare" : "chat"));
+        reasoningToggle.addActionListener(e -> {
+            reasoningPanel.setVisible(reasoningToggle.isSelected());
+            component.revalidate();
+        });
         
+        // Keep the projected prompt size current while typing and when this tab becomes visible
+        inputArea.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                updateBudget();
+            }
+
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                updateBudget();
+            }
+
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                updateBudget();
+            }
+        });
+        includeRequestResponseCheckbox.addActionListener(e -> updateBudget());
+        selectionOnlyCheckbox.addActionListener(e -> updateBudget());
+        // Show unavailable backends in the status line whenever no answer is streaming; editors are
+        // created for every message view, so the listener is only registered while this one is visible
+        circuitListener = (backend, state) -> SwingUtilities.invokeLater(() -> {
+            if (!isReceivingResponse) {
+                statusLabel.setText(ollamaClient.getCircuitSummary());
+            }
+        });
+        component.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & java.awt.event.HierarchyEvent.SHOWING_CHANGED) == 0) {
+                return;
+            }
+            if (component.isShowing()) {
+                ollamaClient.getCircuitBreaker().addStateListener(circuitListener);
+                if (!isReceivingResponse) {
+                    statusLabel.setText(ollamaClient.getCircuitSummary());
+                }
+                refreshSelection();
+                updateBudget();
+            } else {
+                ollamaClient.getCircuitBreaker().removeStateListener(circuitListener);
+            }
+        });
+
         // Enter key to send message
         inputArea.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyPressed(java.awt.event.KeyEvent evt) {
@@ -162,6 +303,14 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
         if (userMessage.isEmpty()) {
             return;
         }
+        if (compareCheckbox.isSelected()) {
+            sendComparison(userMessage);
+            return;
+        }
+        if (autoVerifyCheckbox.isSelected() && currentRequestResponse != null) {
+            sendVerification(userMessage);
+            return;
+        }
 
         // Add user message to chat
         appendToChatArea("You", userMessage + (attachedImages.isEmpty() ? "" : " [with " + attachedImages.size() + " image(s)]"));
@@ -173,46 +322,113 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
 
         // Start response on a new line
         appendToChatArea("Assistant", "");
+        reasoningArea.setText("");
+        reasoningTokens = 0;
+        updateReasoningToggle();
 
         // Create a copy of necessary data for the background thread
         final String finalUserMessage = userMessage;
         final List<String> finalAttachedImages = new ArrayList<>(attachedImages);
         final HttpRequestResponse requestResponse = currentRequestResponse;
         final boolean includeRequestResponse = includeRequestResponseCheckbox.isSelected();
+        final boolean structuredFindings = structuredFindingsCheckbox.isSelected();
+        final SelectionContextMenu.EditorSelection selection = includeRequestResponse && selectionOnlyCheckbox.isSelected()
+            ? activeSelection : null;
 
         // Run chat operation in background thread
         new Thread(() -> {
             try {
-                Consumer<String> chunkHandler = chunk -> SwingUtilities.invokeLater(() -> {
-                    chatArea.append(chunk);
+                Consumer<String> chunkHandler = this::postToCurrent;
+                Consumer<String> statusHandler = status -> SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText(status);
                 });
+                applyKnowledge(requestResponse, finalUserMessage, statusHandler);
+                TokenEstimator estimator = TokenEstimator.forModel(ollamaClient.getConfigSettings().getModel());
+                Consumer<String> reasoningHandler = chunk -> {
+                    int tokens = estimator.estimate(chunk);
+                    SwingUtilities.invokeLater(() -> {
+                        reasoningArea.append(chunk);
+                        reasoningTokens += tokens;
+                        updateReasoningToggle();
+                    });
+                };
 
-                if (includeRequestResponse && requestResponse != null) {
+                if (selection != null && structuredFindings) {
+                    List<Finding> findings = ollamaClient.analyzeSelectionFindings(
+                        conversation,
+                        selection.envelope(),
+                        finalUserMessage,
+                        finalAttachedImages.isEmpty() ? null : finalAttachedImages,
+                        finding -> {
+                            postToCurrent(formatFinding(finding));
+                            if (requestResponse != null && ollamaClient.getConfigSettings().isRaiseAuditIssues()) {
+                                raiseAuditIssue(finding, requestResponse);
+                            }
+                        },
+                        statusHandler
+                    );
+                    if (findings.isEmpty()) {
+                        postToCurrent("No findings reported.");
+                    }
+                } else if (selection != null) {
+                    ollamaClient.analyzeSelection(
+                        conversation,
+                        selection.envelope(),
+                        finalUserMessage,
+                        finalAttachedImages.isEmpty() ? null : finalAttachedImages,
+                        chunkHandler,
+                        reasoningHandler,
+                        statusHandler
+                    );
+                } else if (structuredFindings && includeRequestResponse && requestResponse != null) {
+                    List<Finding> findings = ollamaClient.analyzeFindings(
+                        conversation,
+                        requestResponse.request().toString(),
+                        requestResponse.response() != null ? requestResponse.response().toString() : "",
+                        finalUserMessage,
+                        finalAttachedImages.isEmpty() ? null : finalAttachedImages,
+                        finding -> {
+                            postToCurrent(formatFinding(finding));
+                            if (ollamaClient.getConfigSettings().isRaiseAuditIssues()) {
+                                raiseAuditIssue(finding, requestResponse);
+                            }
+                        },
+                        statusHandler
+                    );
+                    if (findings.isEmpty()) {
+                        postToCurrent("No findings reported.");
+                    }
+                } else if (includeRequestResponse && requestResponse != null) {
                     String request = requestResponse.request().toString();
                     String response = requestResponse.response() != null ? 
                         requestResponse.response().toString() : "";
                     
                     ollamaClient.analyzeRequest(
+                        conversation,
                         request,
                         response,
                         finalUserMessage,
                         finalAttachedImages.isEmpty() ? null : finalAttachedImages,
-                        chunkHandler
+                        chunkHandler,
+                        reasoningHandler,
+                        statusHandler
                     );
                 } else {
                     ollamaClient.chat(
+                        conversation,
                         finalUserMessage,
                         ollamaClient.getConfigSettings().isUseSystemPrompt() ? 
                             ollamaClient.getConfigSettings().getSystemPrompt() : "",
                         finalAttachedImages,
-                        chunkHandler
+                        chunkHandler,
+                        reasoningHandler,
+                        statusHandler
                     );
                 }
+                if (includeRequestResponse && requestResponse != null) {
+                    learnFromAnswer(requestResponse, finalUserMessage);
+                }
 
-                // Add final newlines
-                SwingUtilities.invokeLater(() -> {
-                    chatArea.append("\n\n");
-                });
             } catch (IOException ex) {
                 SwingUtilities.invokeLater(() -> {
                     appendToChatArea("System", "Error: " + ex.getMessage());
@@ -222,35 +438,464 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
                 // Re-enable controls
                 SwingUtilities.invokeLater(() -> {
                     isReceivingResponse = false;
+                    finishIndexedMessage();
+                    statusLabel.setText(ollamaClient.getCircuitSummary());
                     updateControls(true);
                     
                     // Clear images after sending
                     attachedImages.clear();
                     updateImageControls();
+                    updateBudget();
+                });
+            }
+        }).start();
+    }
+
+    // The same prompt goes to every compare target at once; the chat history is neither sent nor extended
+    private void sendComparison(String userMessage) {
+        List<ModelComparison.Target> targets = new ArrayList<>();
+        for (String spec : ollamaClient.getConfigSettings().getCompareTargets()) {
+            ModelComparison.Target target = ModelComparison.Target.parse(spec);
+            if (target != null) {
+                targets.add(target);
+            }
+        }
+        if (targets.isEmpty()) {
+            comparePanel.showMessage("Add compare targets (model or model@server URL, one per line) in the LLM Config tab.");
+            return;
+        }
+
+        String prompt;
+        if (includeRequestResponseCheckbox.isSelected() && selectionOnlyCheckbox.isSelected() && activeSelection != null) {
+            prompt = OllamaClient.buildSelectionPrompt(activeSelection.envelope(), userMessage);
+        } else if (includeRequestResponseCheckbox.isSelected() && currentRequestResponse != null) {
+            prompt = OllamaClient.buildAnalysisPrompt(currentRequestResponse.request().toString(),
+                currentRequestResponse.response() != null ? currentRequestResponse.response().toString() : "", userMessage);
+        } else {
+            prompt = userMessage;
+        }
+
+        inputArea.setText("");
+        isReceivingResponse = true;
+        updateControls(false);
+        comparePanel.start(targets);
+        statusLabel.setText(String.format("comparing %d targets", targets.size()));
+
+        final List<String> images = new ArrayList<>(attachedImages);
+        new Thread(() -> {
+            try {
+                ollamaClient.compare(prompt, images.isEmpty() ? null : images, targets, comparePanel);
+            } finally {
+                SwingUtilities.invokeLater(() -> {
+                    isReceivingResponse = false;
+                    statusLabel.setText(ollamaClient.getCircuitSummary());
+                    updateControls(true);
+                    attachedImages.clear();
+                    updateImageControls();
+                    updateBudget();
                 });
             }
         }).start();
     }
 
+    // One hypothesis round trip: the model streams test variants, each is sent as soon as it is complete while
+    // the rest are still being written, and all results go back in a single follow-up turn
+    private void sendVerification(String userMessage) {
+        appendToChatArea("You", userMessage + " [auto-verify]");
+        inputArea.setText("");
+        isReceivingResponse = true;
+        updateControls(false);
+        appendToChatArea("Assistant", "");
+        reasoningArea.setText("");
+        reasoningTokens = 0;
+        updateReasoningToggle();
+
+        final HttpRequestResponse requestResponse = currentRequestResponse;
+        new Thread(() -> {
+            Consumer<String> statusHandler = status -> SwingUtilities.invokeLater(() -> statusLabel.setText(status));
+            ConfigSettings settings = ollamaClient.getConfigSettings();
+            HttpRequest baseline = requestResponse.request();
+            Future<VariantResult> control = variantRunner.submit(baseline, null);
+            List<Future<VariantResult>> pending = new ArrayList<>();
+            long startNanos = System.nanoTime();
+            try {
+                applyKnowledge(requestResponse, userMessage, statusHandler);
+                List<TestVariant> variants = ollamaClient.proposeVariants(
+                    conversation,
+                    baseline.toString(),
+                    requestResponse.response() != null ? requestResponse.response().toString() : "",
+                    userMessage,
+                    settings.getVerifyMaxVariants(),
+                    variant -> {
+                        pending.add(variantRunner.submit(baseline, variant));
+                        int number = pending.size();
+                        postToCurrent(String.format("#%d %s%s%n", number, variant.describe(),
+                            variant.getHypothesis().isEmpty() ? "" : " (" + variant.getHypothesis() + ")"));
+                    },
+                    statusHandler
+                );
+                if (variants.isEmpty()) {
+                    control.cancel(true);
+                    postToCurrent("No test requests proposed.");
+                    return;
+                }
+
+                statusHandler.accept(String.format("waiting for %d test requests", pending.size()));
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.getVerifyTimeoutSeconds() * 2L);
+                VariantResult controlResult = await(control, null, deadline);
+                List<VariantResult> results = new ArrayList<>();
+                StringBuilder shown = new StringBuilder(String.format("%d test requests in %.1f s%n",
+                    pending.size(), (System.nanoTime() - startNanos) / 1e9));
+                for (int i = 0; i < pending.size(); i++) {
+                    VariantResult result = await(pending.get(i), variants.get(i), deadline);
+                    results.add(result);
+                    shown.append('#').append(i + 1).append(' ').append(result.describe(controlResult)).append('\n');
+                }
+                String summary = VariantResult.summarize(controlResult, results);
+                SwingUtilities.invokeLater(() -> {
+                    appendToChatArea("Verify", shown.toString().trim());
+                    appendToChatArea("Assistant", "");
+                });
+
+                TokenEstimator estimator = TokenEstimator.forModel(settings.getModel());
+                ollamaClient.chat(
+                    conversation,
+                    summary,
+                    settings.isUseSystemPrompt() ? settings.getSystemPrompt() : "",
+                    null,
+                    this::postToCurrent,
+                    chunk -> {
+                        int tokens = estimator.estimate(chunk);
+                        SwingUtilities.invokeLater(() -> {
+                            reasoningArea.append(chunk);
+                            reasoningTokens += tokens;
+                            updateReasoningToggle();
+                        });
+                    },
+                    statusHandler
+                );
+                learnFromAnswer(requestResponse, userMessage);
+            } catch (IOException ex) {
+                control.cancel(true);
+                pending.forEach(future -> future.cancel(true));
+                SwingUtilities.invokeLater(() -> {
+                    appendToChatArea("System", "Error: " + ex.getMessage());
+                    api.logging().logToError("Error in auto-verify: " + ex.getMessage());
+                });
+            } finally {
+                SwingUtilities.invokeLater(() -> {
+                    isReceivingResponse = false;
+                    finishIndexedMessage();
+                    statusLabel.setText(ollamaClient.getCircuitSummary());
+                    updateControls(true);
+                    updateBudget();
+                });
+            }
+        }).start();
+    }
+
+    // Decided once per chat, at its first question about a request, so every turn sends the same prefix
+    private void applyKnowledge(HttpRequestResponse requestResponse, String question, Consumer<String> onStatus) {
+        String host = hostOf(requestResponse);
+        if (host == null || conversation.getKnowledgePrefix() != null) {
+            return;
+        }
+        String prefix = knowledgeBase.prefixFor(host, question + " " + requestResponse.request().path());
+        conversation.setKnowledgePrefix(prefix);
+        if (!prefix.isEmpty()) {
+            onStatus.accept(String.format("sending %d notes about %s", prefix.lines().count() - 1, host));
+        }
+    }
+
+    private void learnFromAnswer(HttpRequestResponse requestResponse, String question) {
+        String host = hostOf(requestResponse);
+        if (host != null) {
+            knowledgeBase.learn(host, question, conversation.getLastAnswer());
+        }
+    }
+
+    private static String hostOf(HttpRequestResponse requestResponse) {
+        return requestResponse != null && requestResponse.request().httpService() != null
+            ? requestResponse.request().httpService().host() : null;
+    }
+
+    // A request still running at the deadline is reported as such instead of holding up the follow-up turn
+    private static VariantResult await(Future<VariantResult> future, TestVariant variant, long deadlineNanos) throws IOException {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return VariantResult.failed(variant, "still running when the results were collected");
+        } catch (ExecutionException e) {
+            throw new IOException("Test request failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for test requests");
+        }
+    }
+
+    // Reasoning tokens are estimated per chunk, which is close enough for a running count
+    private void updateReasoningToggle() {
+        reasoningToggle.setText(reasoningTokens > 0
+            ? String.format("Reasoning (≈%,d tokens)", reasoningTokens) : "Reasoning");
+    }
+
+    private void updateBudget() {
+        ConfigSettings settings = ollamaClient.getConfigSettings();
+        TokenEstimator estimator = TokenEstimator.forModel(settings.getModel());
+
+        int tokens = estimator.estimate(inputArea.getText()) + TokenEstimator.MESSAGE_OVERHEAD_TOKENS;
+        if (settings.isUseSystemPrompt()) {
+            tokens += estimator.estimate(settings.getSystemPrompt()) + TokenEstimator.MESSAGE_OVERHEAD_TOKENS;
+        }
+        tokens += conversation.estimateHistoryTokens(estimator);
+        if (includeRequestResponseCheckbox.isSelected() && selectionOnlyCheckbox.isSelected() && activeSelection != null) {
+            tokens += selectionTokens(estimator);
+        } else if (includeRequestResponseCheckbox.isSelected() && currentRequestResponse != null) {
+            tokens += messageTokens(estimator);
+        }
+
+        String model = settings.getModel();
+        if (!model.equals(contextLimitModel)) {
+            contextLimitModel = model;
+            contextLimit = -1;
+            new Thread(() -> {
+                contextLimit = ollamaClient.getContextLength(model);
+                SwingUtilities.invokeLater(this::updateBudget);
+            }).start();
+        }
+
+        int limit = contextLimit;
+        if (limit > 0) {
+            budgetLabel.setText(String.format("≈ %,d / %,d tokens", tokens, limit));
+            budgetLabel.setForeground(tokens > limit ? new Color(200, 0, 0) : Color.GRAY);
+        } else {
+            budgetLabel.setText(String.format("≈ %,d tokens", tokens));
+            budgetLabel.setForeground(Color.GRAY);
+        }
+    }
+
+    // The attached message is only re-estimated when it or the history it is diffed against changes
+    private int messageTokens(TokenEstimator estimator) {
+        if (budgetSource != currentRequestResponse || budgetEstimator != estimator
+                || budgetHistorySize != conversation.getMessageCount()) {
+            String request = currentRequestResponse.request().toString();
+            String response = currentRequestResponse.response() != null ? currentRequestResponse.response().toString() : "";
+            budgetMessageTokens = estimator.estimate(conversation.previewAnalysisPrompt(request, response, "",
+                ollamaClient.getConfigSettings().isRedactSecrets()));
+            budgetSource = currentRequestResponse;
+            budgetEstimator = estimator;
+            budgetHistorySize = conversation.getMessageCount();
+        }
+        return budgetMessageTokens;
+    }
+
+    private int selectionTokens(TokenEstimator estimator) {
+        if (budgetSelection != activeSelection || budgetEstimator != estimator) {
+            budgetSelectionTokens = estimator.estimate(OllamaClient.buildSelectionPrompt(activeSelection.envelope(), ""));
+            budgetSelection = activeSelection;
+            budgetEstimator = estimator;
+            budgetSource = null;
+        }
+        return budgetSelectionTokens;
+    }
+
+    // A selection handed over from the editor wins over regions highlighted by other tools
+    private void refreshSelection() {
+        SelectionContextMenu.EditorSelection handed = selectionMenu.selectionFor(currentRequestResponse);
+        SelectionContextMenu.EditorSelection selection = handed != null ? handed : highlightedRegion(currentRequestResponse);
+        if (handed != null && handed != activeSelection) {
+            selectionOnlyCheckbox.setSelected(true);
+        }
+        activeSelection = selection;
+        selectionOnlyCheckbox.setEnabled(selection != null && !isReceivingResponse);
+        if (selection == null) {
+            selectionOnlyCheckbox.setSelected(false);
+            selectionOnlyCheckbox.setText("Selection only");
+        } else {
+            selectionOnlyCheckbox.setText("Selection only (" + selection.describe() + ")");
+        }
+    }
+
+    private static SelectionContextMenu.EditorSelection highlightedRegion(HttpRequestResponse requestResponse) {
+        if (requestResponse == null) {
+            return null;
+        }
+        String request = requestResponse.request().toString();
+        String response = requestResponse.response() != null ? requestResponse.response().toString() : "";
+        if (requestResponse.response() != null && !requestResponse.responseMarkers().isEmpty()) {
+            Marker marker = requestResponse.responseMarkers().get(0);
+            return new SelectionContextMenu.EditorSelection(request, response, SelectionEnvelope.Part.RESPONSE,
+                marker.range().startIndexInclusive(), marker.range().endIndexExclusive());
+        }
+        if (!requestResponse.requestMarkers().isEmpty()) {
+            Marker marker = requestResponse.requestMarkers().get(0);
+            return new SelectionContextMenu.EditorSelection(request, response, SelectionEnvelope.Part.REQUEST,
+                marker.range().startIndexInclusive(), marker.range().endIndexExclusive());
+        }
+        return null;
+    }
+
     private void updateControls(boolean enabled) {
         inputArea.setEnabled(enabled);
         attachImageButton.setEnabled(enabled && ollamaClient.isMultimodalModel());
         includeRequestResponseCheckbox.setEnabled(enabled);
+        selectionOnlyCheckbox.setEnabled(enabled && activeSelection != null);
+        structuredFindingsCheckbox.setEnabled(enabled);
+        compareCheckbox.setEnabled(enabled);
+        autoVerifyCheckbox.setEnabled(enabled);
+    }
+
+    private static String formatFinding(Finding finding) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%n[%s/%s] %s%n", finding.getSeverity().toUpperCase(),
+            finding.getConfidence(), finding.getTitle()));
+        if (!finding.getDetail().isEmpty()) {
+            text.append(finding.getDetail()).append('\n');
+        }
+        if (!finding.getEvidence().isEmpty()) {
+            text.append("Evidence: ").append(finding.getEvidence()).append('\n');
+        }
+        if (!finding.getRemediation().isEmpty()) {
+            text.append("Remediation: ").append(finding.getRemediation()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private void raiseAuditIssue(Finding finding, HttpRequestResponse requestResponse) {
+        try {
+            AuditIssueSeverity severity = switch (finding.getSeverity().toLowerCase()) {
+                case "high" -> AuditIssueSeverity.HIGH;
+                case "medium" -> AuditIssueSeverity.MEDIUM;
+                case "low" -> AuditIssueSeverity.LOW;
+                default -> AuditIssueSeverity.INFORMATION;
+            };
+            AuditIssueConfidence confidence = switch (finding.getConfidence().toLowerCase()) {
+                case "certain" -> AuditIssueConfidence.CERTAIN;
+                case "firm" -> AuditIssueConfidence.FIRM;
+                default -> AuditIssueConfidence.TENTATIVE;
+            };
+            // Model output quotes the target's responses, so it is escaped before going into the issue's HTML
+            String detail = htmlEscape(finding.getDetail())
+                + (finding.getEvidence().isEmpty() ? "" : "<br><br>Evidence:<pre>" + htmlEscape(finding.getEvidence()) + "</pre>");
+
+            api.siteMap().add(AuditIssue.auditIssue(
+                "AI: " + finding.getTitle(),
+                detail,
+                htmlEscape(finding.getRemediation()),
+                requestResponse.request().url(),
+                severity,
+                confidence,
+                "Reported by the AI Chat extension (" + ollamaClient.getConfigSettings().getModel() + ").",
+                null,
+                severity,
+                requestResponse
+            ));
+        } catch (Exception e) {
+            api.logging().logToError("Error raising audit issue: " + e.getMessage());
+        }
+    }
+
+    private static String htmlEscape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+            .replace("\"", "&quot;").replace("'", "&#39;");
     }
 
     private void clearChat() {
-        chatArea.setText("");
+        finishIndexedMessage();
+        // Later messages start a new conversation; the cleared one stays searchable
+        conversationId = 0;
+        chatArea.clear();
+        reasoningArea.setText("");
+        reasoningTokens = 0;
+        updateReasoningToggle();
         attachedImages.clear();
         updateImageControls();
-        ollamaClient.clearHistory();  // Clear the message history
+        conversation.clear();  // Clear the message history
+        updateBudget();
     }
 
     private void appendToChatArea(String sender, String message) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-        chatArea.append(String.format("[%s] %s: %s", timestamp, sender, message));
-        if (!message.isEmpty()) {
-            chatArea.append("\n\n");
+        chatArea.addMessage(String.format("[%s] %s: ", timestamp, sender), message);
+
+        finishIndexedMessage();
+        ConversationIndex index = navigator.getIndex();
+        HttpRequest request = currentRequestResponse != null ? currentRequestResponse.request() : null;
+        if (conversationId == 0) {
+            conversationId = index.newConversationId();
+            navigator.register(conversationId, this, request);
         }
+        currentMessage = index.start(conversationId, sender,
+            request != null && request.httpService() != null ? request.httpService().host() : "",
+            request != null ? request.url() : "",
+            ollamaClient.getConfigSettings().getModel());
+        index.append(currentMessage, message);
+    }
+
+    // Continues the last message from a background thread
+    private void postToCurrent(String text) {
+        long postedNanos = System.nanoTime();
+        SwingUtilities.invokeLater(() -> appendToCurrent(text, postedNanos));
+    }
+
+    // Continues the last message, in the transcript and in the search index
+    private void appendToCurrent(String text, long postedNanos) {
+        ChatEvents.EdtAppend event = ChatEvents.EdtAppend.start(postedNanos);
+        chatArea.append(text);
+        if (currentMessage != null) {
+            navigator.getIndex().append(currentMessage, text);
+        }
+        event.finish(text.length());
+    }
+
+    private void finishIndexedMessage() {
+        if (currentMessage != null) {
+            navigator.getIndex().finish(currentMessage);
+            currentMessage = null;
+        }
+    }
+
+    // Refills the transcript and the model's history from the index, for a conversation reopened from search
+    private void restoreConversation(int id) {
+        finishIndexedMessage();
+        chatArea.clear();
+        conversation.clear();
+        DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm:ss");
+        JsonObject question = null;
+        for (IndexedMessage message : navigator.getIndex().conversation(id)) {
+            String timestamp = Instant.ofEpochMilli(message.getTimestamp()).atZone(ZoneId.systemDefault()).format(timeFormat);
+            chatArea.addMessage(String.format("[%s] %s: ", timestamp, message.getRole()), message.getText());
+            if ("You".equals(message.getRole()) || "Verify".equals(message.getRole())) {
+                question = new JsonObject();
+                question.addProperty("role", "user");
+                question.addProperty("content", message.getText());
+            } else if ("Assistant".equals(message.getRole()) && question != null) {
+                conversation.addTurn(question, message.getText());
+                question = null;
+            }
+        }
+        conversationId = id;
+        navigator.register(id, this, currentRequestResponse != null ? currentRequestResponse.request() : null);
+    }
+
+    // Brings this editor to the front if it still shows the conversation
+    boolean reveal(int id) {
+        if (conversationId != id || !component.isDisplayable()) {
+            return false;
+        }
+        Component child = component;
+        for (Container parent = component.getParent(); parent != null; child = parent, parent = parent.getParent()) {
+            if (parent instanceof JTabbedPane tabs) {
+                tabs.setSelectedComponent(child);
+            }
+        }
+        Window window = SwingUtilities.getWindowAncestor(component);
+        if (window != null) {
+            window.toFront();
+        }
+        inputArea.requestFocusInWindow();
+        return true;
     }
 
     @Override
@@ -271,6 +916,14 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
     @Override
     public void setRequestResponse(HttpRequestResponse requestResponse) {
         this.currentRequestResponse = requestResponse;
+        Integer restored = requestResponse != null ? navigator.claimRestore(requestResponse.request()) : null;
+        if (restored != null) {
+            restoreConversation(restored);
+        }
+        refreshSelection();
+        if (component.isShowing()) {
+            updateBudget();
+        }
     }
 
     @Override
@@ -285,6 +938,11 @@ public class LLMRequestEditorTab implements ExtensionProvidedHttpRequestEditor {
 
     @Override
     public Selection selectedData() {
-        return null;  // No text selection functionality needed
+        // The request range the chat is about, so Burp's selection actions apply to the same bytes
+        SelectionContextMenu.EditorSelection selection = activeSelection;
+        if (selection != null && selectionOnlyCheckbox.isSelected() && selection.getPart() == SelectionEnvelope.Part.REQUEST) {
+            return Selection.selection(selection.getStart(), selection.getEnd());
+        }
+        return null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.burp.llm.ui;
+
+import com.burp.llm.search.ConversationIndex;
+import com.burp.llm.search.IndexedMessage;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Searches every message of every chat tab as you type; double-click a result to go to its conversation
+public class SearchPanel extends JPanel {
+    private static final int MAX_RESULTS = 500;
+    private static final int SNIPPET_WIDTH = 160;
+
+    private final ConversationNavigator navigator;
+    private final JTextField queryField;
+    private final JLabel statusLabel;
+    private final ResultsTableModel resultsModel;
+    private final JTable resultsTable;
+    private final JTextArea previewArea;
+
+    public SearchPanel(ConversationNavigator navigator) {
+        super(new BorderLayout());
+        this.navigator = navigator;
+
+        queryField = new JTextField();
+        queryField.setToolTipText("<html>All words must occur; the last one matches as a prefix.<br>"
+            + "\"exact text\", host:, url:, model:, role:, since:yyyy-mm-dd and before:yyyy-mm-dd narrow the results.</html>");
+        statusLabel = new JLabel();
+        statusLabel.setForeground(Color.GRAY);
+        JButton openButton = new JButton("Open Conversation");
+
+        JPanel queryPanel = new JPanel(new BorderLayout(5, 0));
+        queryPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        queryPanel.add(new JLabel("Search chats:"), BorderLayout.WEST);
+        queryPanel.add(queryField, BorderLayout.CENTER);
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        actions.add(statusLabel);
+        actions.add(openButton);
+        queryPanel.add(actions, BorderLayout.EAST);
+
+        resultsModel = new ResultsTableModel();
+        resultsTable = new JTable(resultsModel);
+        resultsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultsTable.getColumnModel().getColumn(0).setPreferredWidth(120);
+        resultsTable.getColumnModel().getColumn(1).setPreferredWidth(140);
+        resultsTable.getColumnModel().getColumn(2).setPreferredWidth(220);
+        resultsTable.getColumnModel().getColumn(3).setPreferredWidth(110);
+        resultsTable.getColumnModel().getColumn(4).setPreferredWidth(70);
+        resultsTable.getColumnModel().getColumn(5).setPreferredWidth(500);
+
+        previewArea = new JTextArea();
+        previewArea.setEditable(false);
+        previewArea.setLineWrap(true);
+        previewArea.setWrapStyleWord(true);
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+            new JScrollPane(resultsTable), new JScrollPane(previewArea));
+        splitPane.setResizeWeight(0.6);
+
+        add(queryPanel, BorderLayout.NORTH);
+        add(splitPane, BorderLayout.CENTER);
+
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+        resultsTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                IndexedMessage message = selectedMessage();
+                previewArea.setText(message != null ? message.getText() : "");
+                previewArea.setCaretPosition(0);
+            }
+        });
+        resultsTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    openSelected();
+                }
+            }
+        });
+        openButton.addActionListener(e -> openSelected());
+        // Messages written since the last search show up when the tab is opened again
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing()) {
+                search();
+            }
+        });
+    }
+
+    private void search() {
+        String query = queryField.getText();
+        ConversationIndex index = navigator.getIndex();
+        long startNanos = System.nanoTime();
+        List<IndexedMessage> results = query.isBlank() ? List.of() : index.search(query, MAX_RESULTS);
+        double millis = (System.nanoTime() - startNanos) / 1e6;
+        resultsModel.setResults(query, results);
+        statusLabel.setText(query.isBlank()
+            ? String.format("%,d messages indexed", index.size())
+            : String.format("%s%,d results in %.1f ms of %,d messages", results.size() == MAX_RESULTS ? "first " : "",
+                results.size(), millis, index.size()));
+    }
+
+    private IndexedMessage selectedMessage() {
+        int row = resultsTable.getSelectedRow();
+        return row >= 0 ? resultsModel.getMessage(resultsTable.convertRowIndexToModel(row)) : null;
+    }
+
+    private void openSelected() {
+        IndexedMessage message = selectedMessage();
+        if (message != null) {
+            navigator.open(message.getConversationId(), this);
+        }
+    }
+
+    private static class ResultsTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"Time", "Host", "URL", "Model", "From", "Text"};
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        private List<IndexedMessage> results = new ArrayList<>();
+        // Snippets are cut when a row is first painted, not for all results up front
+        private String[] snippets = new String[0];
+        private String query = "";
+
+        void setResults(String query, List<IndexedMessage> results) {
+            this.query = query;
+            this.results = results;
+            this.snippets = new String[results.size()];
+            fireTableDataChanged();
+        }
+
+        IndexedMessage getMessage(int row) {
+            return results.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return results.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            IndexedMessage message = results.get(row);
+            return switch (column) {
+                case 0 -> timeFormat.format(new Date(message.getTimestamp()));
+                case 1 -> message.getHost();
+                case 2 -> message.getUrl();
+                case 3 -> message.getModel();
+                case 4 -> message.getRole();
+                case 5 -> {
+                    if (snippets[row] == null) {
+                        snippets[row] = ConversationIndex.snippet(message.getText(), query, SNIPPET_WIDTH);
+                    }
+                    yield snippets[row];
+                }
+                default -> null;
+            };
+        }
+    }
+}
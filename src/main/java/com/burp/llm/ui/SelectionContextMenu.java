@@ -0,0 +1,94 @@
+package com.burp.llm.ui;
+
+import burp.api.montoya.core.Range;
+import burp.api.montoya.http.message.HttpRequestResponse;
+import burp.api.montoya.ui.contextmenu.ContextMenuEvent;
+import burp.api.montoya.ui.contextmenu.ContextMenuItemsProvider;
+import burp.api.montoya.ui.contextmenu.MessageEditorHttpRequestResponse;
+import com.burp.llm.api.SelectionEnvelope;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.Optional;
+
+// Message editors do not tell other editor tabs what is selected in them, so the selection is handed
+// over through the context menu: the AI Chat tab of the same message picks it up when it is shown.
+public class SelectionContextMenu implements ContextMenuItemsProvider {
+    private volatile EditorSelection latest;
+
+    @Override
+    public List<Component> provideMenuItems(ContextMenuEvent event) {
+        Optional<MessageEditorHttpRequestResponse> editor = event.messageEditorRequestResponse();
+        if (editor.isEmpty() || editor.get().selectionOffsets().isEmpty()) {
+            return List.of();
+        }
+
+        MessageEditorHttpRequestResponse message = editor.get();
+        Range range = message.selectionOffsets().get();
+        if (range.endIndexExclusive() <= range.startIndexInclusive()) {
+            return List.of();
+        }
+        SelectionEnvelope.Part part = message.selectionContext() == MessageEditorHttpRequestResponse.SelectionContext.REQUEST
+            ? SelectionEnvelope.Part.REQUEST : SelectionEnvelope.Part.RESPONSE;
+
+        JMenuItem item = new JMenuItem("Ask AI Chat about selection");
+        item.setToolTipText("Open the AI Chat tab of this message to ask about the selected bytes only");
+        item.addActionListener(e -> latest = new EditorSelection(message.requestResponse(), part,
+            range.startIndexInclusive(), range.endIndexExclusive()));
+        return List.of(item);
+    }
+
+    // The last selection handed over, if it was made in this message
+    public EditorSelection selectionFor(HttpRequestResponse requestResponse) {
+        EditorSelection selection = latest;
+        if (selection == null || requestResponse == null) {
+            return null;
+        }
+        return selection.request.equals(requestResponse.request().toString()) ? selection : null;
+    }
+
+    public static class EditorSelection {
+        private final String request;
+        private final String response;
+        private final SelectionEnvelope.Part part;
+        private final int start;
+        private final int end;
+
+        EditorSelection(HttpRequestResponse requestResponse, SelectionEnvelope.Part part, int start, int end) {
+            this.request = requestResponse.request().toString();
+            this.response = requestResponse.response() != null ? requestResponse.response().toString() : "";
+            this.part = part;
+            this.start = start;
+            this.end = end;
+        }
+
+        EditorSelection(String request, String response, SelectionEnvelope.Part part, int start, int end) {
+            this.request = request;
+            this.response = response;
+            this.part = part;
+            this.start = start;
+            this.end = end;
+        }
+
+        public SelectionEnvelope.Part getPart() {
+            return part;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String envelope() {
+            return SelectionEnvelope.build(request, response, part, start, end);
+        }
+
+        public String describe() {
+            return String.format("%,d chars of the %s", end - start, part == SelectionEnvelope.Part.REQUEST ? "request" : "response");
+        }
+    }
+}
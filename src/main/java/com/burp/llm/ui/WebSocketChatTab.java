@@ -0,0 +1,220 @@
+package com.burp.llm.ui;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.ui.Selection;
+import burp.api.montoya.ui.contextmenu.WebSocketMessage;
+import burp.api.montoya.ui.editor.extension.ExtensionProvidedWebSocketMessageEditor;
+import burp.api.montoya.websocket.Direction;
+import com.burp.llm.api.ChatEvents;
+import com.burp.llm.api.Conversation;
+import com.burp.llm.api.OllamaClient;
+import com.burp.llm.api.TokenEstimator;
+import com.burp.llm.config.ConfigSettings;
+import com.burp.llm.knowledge.KnowledgeBase;
+import com.burp.llm.websocket.FrameWindow;
+import com.burp.llm.websocket.WebSocketAnalyzer;
+import com.burp.llm.websocket.WebSocketConnection;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+// Chat about a WebSocket message, shown next to it in Proxy history and Repeater. Each question is sent with
+// the message and a window of the connection's recent frames that fits the configured token budget.
+public class WebSocketChatTab implements ExtensionProvidedWebSocketMessageEditor {
+    private final MontoyaApi api;
+    private final OllamaClient ollamaClient;
+    private final WebSocketAnalyzer analyzer;
+    private final KnowledgeBase knowledgeBase;
+    private final Conversation conversation;
+    private final JPanel component;
+    private final ChatTranscript chatArea;
+    private final JTextArea inputArea;
+    private final JCheckBox includeFramesCheckbox;
+    private final JButton sendButton;
+    private final JLabel statusLabel;
+    private volatile boolean isReceivingResponse;
+    private WebSocketMessage currentMessage;
+
+    public WebSocketChatTab(MontoyaApi api, OllamaClient ollamaClient, WebSocketAnalyzer analyzer, KnowledgeBase knowledgeBase) {
+        this.api = api;
+        this.ollamaClient = ollamaClient;
+        this.analyzer = analyzer;
+        this.knowledgeBase = knowledgeBase;
+        this.conversation = new Conversation();
+
+        component = new JPanel(new BorderLayout());
+        chatArea = new ChatTranscript();
+
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        includeFramesCheckbox = new JCheckBox("Include recent frames", true);
+        includeFramesCheckbox.setToolTipText("Send the frames around this message and those matching the question; "
+            + "otherwise only the message itself");
+        statusLabel = new JLabel();
+        statusLabel.setForeground(Color.GRAY);
+        controlsPanel.add(includeFramesCheckbox);
+        controlsPanel.add(statusLabel);
+
+        inputArea = new JTextArea(3, 40);
+        inputArea.setLineWrap(true);
+        inputArea.setWrapStyleWord(true);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        sendButton = new JButton("Send");
+        JButton clearButton = new JButton("Clear Chat");
+        buttonPanel.add(clearButton);
+        buttonPanel.add(sendButton);
+
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        inputPanel.add(controlsPanel, BorderLayout.NORTH);
+        inputPanel.add(new JScrollPane(inputArea), BorderLayout.CENTER);
+        inputPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        component.add(new JScrollPane(chatArea), BorderLayout.CENTER);
+        component.add(inputPanel, BorderLayout.SOUTH);
+
+        sendButton.addActionListener(e -> sendMessage());
+        clearButton.addActionListener(e -> clearChat());
+        inputArea.addKeyListener(new java.awt.event.KeyAdapter() {
+            public void keyPressed(java.awt.event.KeyEvent evt) {
+                if (evt.getKeyCode() == java.awt.event.KeyEvent.VK_ENTER && evt.isControlDown()) {
+                    sendMessage();
+                    evt.consume();
+                }
+            }
+        });
+    }
+
+    private void sendMessage() {
+        if (isReceivingResponse) {
+            return;
+        }
+        String userMessage = inputArea.getText().trim();
+        if (userMessage.isEmpty()) {
+            return;
+        }
+
+        appendToChatArea("You", userMessage);
+        inputArea.setText("");
+        isReceivingResponse = true;
+        sendButton.setEnabled(false);
+        appendToChatArea("Assistant", "");
+
+        final WebSocketMessage message = currentMessage;
+        final boolean includeFrames = includeFramesCheckbox.isSelected();
+
+        new Thread(() -> {
+            try {
+                Consumer<String> statusHandler = status -> SwingUtilities.invokeLater(() -> statusLabel.setText(status));
+                ConfigSettings settings = ollamaClient.getConfigSettings();
+                HttpRequest upgradeRequest = message != null ? message.upgradeRequest() : null;
+                String host = upgradeRequest != null && upgradeRequest.httpService() != null
+                    ? upgradeRequest.httpService().host() : null;
+                applyKnowledge(host, userMessage, statusHandler);
+
+                // Taken again for every question, so later turns see the frames that arrived since
+                WebSocketConnection connection = includeFrames && message != null ? analyzer.find(upgradeRequest) : null;
+                String window = FrameWindow.build(
+                    connection,
+                    message != null ? message.payload().getBytes() : null,
+                    message != null && message.direction() == Direction.CLIENT_TO_SERVER,
+                    userMessage,
+                    settings.getWebSocketContextTokens(),
+                    TokenEstimator.forModel(settings.getModel())
+                );
+                if (connection != null) {
+                    statusHandler.accept(String.format("%d of %d kept frames in context",
+                        window.lines().filter(line -> line.startsWith("#") || line.startsWith(">> #")).count(),
+                        connection.getFrames().size()));
+                }
+
+                ollamaClient.analyzeWebSocket(conversation, window, userMessage, this::postToCurrent, null, statusHandler);
+                if (host != null) {
+                    knowledgeBase.learn(host, userMessage, conversation.getLastAnswer());
+                }
+            } catch (IOException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    appendToChatArea("System", "Error: " + ex.getMessage());
+                    api.logging().logToError("Error in WebSocket chat: " + ex.getMessage());
+                });
+            } finally {
+                SwingUtilities.invokeLater(() -> {
+                    isReceivingResponse = false;
+                    sendButton.setEnabled(true);
+                });
+            }
+        }).start();
+    }
+
+    // Decided once per chat, as in the request editor, so every turn sends the same prefix
+    private void applyKnowledge(String host, String question, Consumer<String> onStatus) {
+        if (host == null || conversation.getKnowledgePrefix() != null) {
+            return;
+        }
+        String prefix = knowledgeBase.prefixFor(host, question);
+        conversation.setKnowledgePrefix(prefix);
+        if (!prefix.isEmpty()) {
+            onStatus.accept(String.format("sending %d notes about %s", prefix.lines().count() - 1, host));
+        }
+    }
+
+    private void clearChat() {
+        chatArea.clear();
+        conversation.clear();
+        statusLabel.setText("");
+    }
+
+    private void appendToChatArea(String sender, String message) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        chatArea.addMessage(String.format("[%s] %s: ", timestamp, sender), message);
+    }
+
+    private void postToCurrent(String text) {
+        long postedNanos = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            ChatEvents.EdtAppend event = ChatEvents.EdtAppend.start(postedNanos);
+            chatArea.append(text);
+            event.finish(text.length());
+        });
+    }
+
+    @Override
+    public ByteArray getMessage() {
+        return currentMessage != null ? currentMessage.payload() : null;
+    }
+
+    @Override
+    public void setMessage(WebSocketMessage message) {
+        this.currentMessage = message;
+    }
+
+    @Override
+    public boolean isEnabledFor(WebSocketMessage message) {
+        return true;
+    }
+
+    @Override
+    public String caption() {
+        return "AI Chat";
+    }
+
+    @Override
+    public Component uiComponent() {
+        return component;
+    }
+
+    @Override
+    public Selection selectedData() {
+        return null;
+    }
+
+    @Override
+    public boolean isModified() {
+        return false;  // This editor doesn't modify the message
+    }
+}
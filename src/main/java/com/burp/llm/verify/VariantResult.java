@@ -0,0 +1,142 @@
+package com.burp.llm.verify;
+
+import burp.api.montoya.http.message.HttpRequestResponse;
+import com.burp.llm.api.TestVariant;
+
+import java.util.List;
+
+// What one test request got back, and the one-line comparison with the control that is sent to the model
+public class VariantResult {
+    // Values shorter than this match by chance too often to say anything about reflection
+    private static final int MIN_REFLECTION_LENGTH = 3;
+    private static final int EXCERPT_CONTEXT = 60;
+
+    private final TestVariant variant;
+    private final HttpRequestResponse requestResponse;
+    private final long millis;
+    private final String error;
+
+    VariantResult(TestVariant variant, HttpRequestResponse requestResponse, long millis, String error) {
+        this.variant = variant;
+        this.requestResponse = requestResponse;
+        this.millis = millis;
+        this.error = error;
+    }
+
+    public static VariantResult failed(TestVariant variant, String error) {
+        return new VariantResult(variant, null, -1, error != null ? error : "failed");
+    }
+
+    // null for the control
+    public TestVariant getVariant() {
+        return variant;
+    }
+
+    // null when the request could not be sent
+    public HttpRequestResponse getRequestResponse() {
+        return requestResponse;
+    }
+
+    public boolean hasResponse() {
+        return requestResponse != null && requestResponse.hasResponse();
+    }
+
+    public int getStatus() {
+        return hasResponse() ? requestResponse.response().statusCode() : -1;
+    }
+
+    public int getLength() {
+        return hasResponse() ? requestResponse.response().body().length() : -1;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    // "query id = 1' → 500 (control 200), 3,412 B (+2,101), 840 ms (+790), reflected 2x raw (control 0)"
+    public String describe(VariantResult control) {
+        StringBuilder line = new StringBuilder(variant != null ? variant.describe() : "control").append(" → ");
+        if (error != null) {
+            return line.append("not sent: ").append(error).toString();
+        }
+        if (!hasResponse()) {
+            return line.append("no response").toString();
+        }
+
+        boolean compared = control != null && control != this && control.hasResponse();
+        line.append(getStatus());
+        if (compared && control.getStatus() != getStatus()) {
+            line.append(" (control ").append(control.getStatus()).append(')');
+        }
+        line.append(String.format(", %,d B", getLength()));
+        if (compared) {
+            line.append(String.format(" (%+,d)", getLength() - control.getLength()));
+        }
+        line.append(String.format(", %,d ms", millis));
+        if (compared) {
+            line.append(String.format(" (%+,d)", millis - control.millis));
+        }
+
+        boolean excerpted = false;
+        if (variant != null) {
+            String value = variant.getValue();
+            if (value.length() < MIN_REFLECTION_LENGTH) {
+                line.append(", value too short to check reflection");
+            } else {
+                String body = requestResponse.response().bodyToString();
+                int raw = count(body, value);
+                String escaped = htmlEscape(value);
+                int encoded = escaped.equals(value) ? 0 : count(body, escaped);
+                int before = compared ? count(control.requestResponse.response().bodyToString(), value) : 0;
+                if (raw > 0) {
+                    line.append(String.format(", reflected %dx raw (control %d): \"%s\"", raw, before, excerpt(body, value)));
+                    excerpted = true;
+                } else if (encoded > 0) {
+                    line.append(String.format(", reflected %dx HTML-encoded only", encoded));
+                } else {
+                    line.append(", not reflected");
+                }
+            }
+        }
+        // A changed status usually comes with an error page, whose start says more than its length
+        if (compared && control.getStatus() != getStatus() && !excerpted) {
+            line.append(", body starts: \"").append(excerpt(requestResponse.response().bodyToString(), null)).append('"');
+        }
+        return line.toString();
+    }
+
+    // The follow-up turn: one line per variant, numbered in the order the model proposed them
+    public static String summarize(VariantResult control, List<VariantResult> results) {
+        StringBuilder text = new StringBuilder(String.format(
+            "I sent your %d test requests through Burp, with the unchanged request as a control (%s).%n"
+                + "Each line gives status, body length and time with the difference from the control, and whether the value "
+                + "appears in the response.%n%n", results.size(), control.describe(null).replaceFirst("^control → ", "")));
+        for (int i = 0; i < results.size(); i++) {
+            text.append('#').append(i + 1).append(' ').append(results.get(i).describe(control)).append('\n');
+        }
+        text.append("\nFor each hypothesis, say whether these results confirm it, rule it out or are inconclusive, "
+            + "and what to test next.");
+        return text.toString();
+    }
+
+    private static int count(String text, String value) {
+        int count = 0;
+        for (int index = text.indexOf(value); index >= 0; index = text.indexOf(value, index + value.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    // Text around the first occurrence of value, or the start of the body when value is null
+    private static String excerpt(String body, String value) {
+        int index = value != null ? body.indexOf(value) : 0;
+        int start = Math.max(0, index - EXCERPT_CONTEXT);
+        int end = Math.min(body.length(), index + (value != null ? value.length() : 0) + EXCERPT_CONTEXT);
+        return body.substring(start, end).replaceAll("\\s+", " ").replace("\"", "'").trim();
+    }
+
+    private static String htmlEscape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+            .replace("\"", "&quot;").replace("'", "&#39;");
+    }
+}
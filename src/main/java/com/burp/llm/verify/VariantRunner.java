@@ -0,0 +1,199 @@
+package com.burp.llm.verify;
+
+import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.http.RequestOptions;
+import burp.api.montoya.http.message.HttpRequestResponse;
+import burp.api.montoya.http.message.params.HttpParameter;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import com.burp.llm.api.TestVariant;
+import com.burp.llm.config.ConfigSettings;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Sends model-proposed test requests through Burp, so they appear in the Logger and go through the project's
+// session handling. Shared by all chat tabs: requests to one host are limited in number and spaced out,
+// however many verifications are running.
+public class VariantRunner {
+    private final MontoyaApi api;
+    private final ConfigSettings configSettings;
+    private final ExecutorService executor;
+    private final Map<String, HostGate> hosts = new ConcurrentHashMap<>();
+
+    public VariantRunner(MontoyaApi api, ConfigSettings configSettings) {
+        this.api = api;
+        this.configSettings = configSettings;
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "AI Chat verify");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A null variant sends the request unchanged, as the control the variants are compared with
+    public Future<VariantResult> submit(HttpRequest baseline, TestVariant variant) {
+        return executor.submit(() -> send(baseline, variant));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private VariantResult send(HttpRequest baseline, TestVariant variant) {
+        HttpRequest request;
+        try {
+            request = variant != null ? apply(baseline, variant) : baseline;
+        } catch (RuntimeException e) {
+            return VariantResult.failed(variant, "could not build the request: " + e.getMessage());
+        }
+
+        HostGate gate = hosts.computeIfAbsent(baseline.httpService().host().toLowerCase(), host -> new HostGate());
+        try {
+            gate.enter(configSettings.getVerifyConcurrencyPerHost(),
+                TimeUnit.MILLISECONDS.toNanos(configSettings.getVerifyHostDelayMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return VariantResult.failed(variant, "cancelled");
+        }
+        try {
+            long startNanos = System.nanoTime();
+            HttpRequestResponse requestResponse = api.http().sendRequest(request, RequestOptions.requestOptions()
+                .withResponseTimeout(TimeUnit.SECONDS.toMillis(configSettings.getVerifyTimeoutSeconds())));
+            long millis = requestResponse.timingData()
+                .map(timing -> timing.timeBetweenRequestSentAndEndOfResponse().toMillis())
+                .orElse(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return new VariantResult(variant, requestResponse, millis, null);
+        } catch (RuntimeException e) {
+            return VariantResult.failed(variant, e.getMessage());
+        } finally {
+            gate.exit();
+        }
+    }
+
+    // The request with the one value the variant changes; a parameter or header it names is added if missing
+    static HttpRequest apply(HttpRequest request, TestVariant variant) {
+        String name = variant.getName();
+        String value = variant.getValue();
+        switch (variant.getLocation()) {
+            case "path":
+                return request.withPath(value.startsWith("/") ? value : "/" + value);
+            case "header":
+                return request.hasHeader(name) ? request.withUpdatedHeader(name, value) : request.withAddedHeader(name, value);
+            case "cookie":
+                return withParameter(request, HttpParameter.cookieParameter(name, value.replace(";", "%3B")));
+            case "body":
+                return withParameter(request, HttpParameter.bodyParameter(name, encode(value)));
+            case "json":
+                return request.withBody(withJsonProperty(request.bodyToString(), name, value));
+            default:
+                return withParameter(request, HttpParameter.urlParameter(name, encode(value)));
+        }
+    }
+
+    private static HttpRequest withParameter(HttpRequest request, HttpParameter parameter) {
+        return request.hasParameter(parameter.name(), parameter.type())
+            ? request.withUpdatedParameters(parameter)
+            : request.withAddedParameters(parameter);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    // Sets a dotted property path such as "user.roles.0"; missing objects on the way are created
+    private static String withJsonProperty(String body, String path, String value) {
+        JsonElement root = JsonParser.parseString(body.isBlank() ? "{}" : body);
+        String[] keys = path.split("\\.");
+        JsonElement parent = root;
+        for (int i = 0; i < keys.length - 1; i++) {
+            JsonElement child = child(parent, keys[i]);
+            if (child == null || child.isJsonNull() || child.isJsonPrimitive()) {
+                child = new JsonObject();
+                setChild(parent, keys[i], child);
+            }
+            parent = child;
+        }
+        setChild(parent, keys[keys.length - 1], jsonValue(value));
+        return root.toString();
+    }
+
+    private static JsonElement child(JsonElement parent, String key) {
+        if (parent.isJsonArray()) {
+            JsonArray array = parent.getAsJsonArray();
+            int index = Integer.parseInt(key);
+            return index < array.size() ? array.get(index) : null;
+        }
+        return parent.getAsJsonObject().get(key);
+    }
+
+    private static void setChild(JsonElement parent, String key, JsonElement value) {
+        if (parent.isJsonArray()) {
+            JsonArray array = parent.getAsJsonArray();
+            int index = Integer.parseInt(key);
+            if (index < array.size()) {
+                array.set(index, value);
+            } else {
+                array.add(value);
+            }
+        } else {
+            parent.getAsJsonObject().add(key, value);
+        }
+    }
+
+    // A value that is itself JSON (a number, true, null, an object, a quoted string) keeps its type;
+    // anything else is sent as a string
+    private static JsonElement jsonValue(String value) {
+        String trimmed = value.trim();
+        if (!trimmed.isEmpty()) {
+            try {
+                JsonElement parsed = JsonParser.parseString(trimmed);
+                boolean bareWord = parsed.isJsonPrimitive() && parsed.getAsJsonPrimitive().isString() && !trimmed.startsWith("\"");
+                if (!bareWord) {
+                    return parsed;
+                }
+            } catch (RuntimeException e) {
+                // Not JSON
+            }
+        }
+        return new JsonPrimitive(value);
+    }
+
+    // At most limit requests in flight to one host, and at least spacingNanos between the starts of two
+    private static class HostGate {
+        private int inFlight;
+        private long nextStartNanos = System.nanoTime();
+
+        synchronized void enter(int limit, long spacingNanos) throws InterruptedException {
+            while (true) {
+                long now = System.nanoTime();
+                if (inFlight < limit && now - nextStartNanos >= 0) {
+                    inFlight++;
+                    nextStartNanos = now + spacingNanos;
+                    return;
+                }
+                if (inFlight < limit) {
+                    TimeUnit.NANOSECONDS.timedWait(this, nextStartNanos - now);
+                } else {
+                    wait();
+                }
+            }
+        }
+
+        synchronized void exit() {
+            inFlight--;
+            notifyAll();
+        }
+    }
+}
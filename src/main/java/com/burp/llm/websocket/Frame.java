@@ -0,0 +1,92 @@
+package com.burp.llm.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// One captured WebSocket message, copied out of a FrameRing
+public class Frame {
+    // Binary payloads are shown as hex, which doubles their size, so fewer bytes are shown
+    private static final int MAX_HEX_BYTES = 256;
+
+    private final long number;
+    private final long timeMillis;
+    private final boolean fromClient;
+    private final boolean binary;
+    private final byte[] payload;
+    // Chars of a text message, bytes of a binary one, before truncation to the ring's frame limit
+    private final int originalLength;
+    private String text;
+
+    Frame(long number, long timeMillis, boolean fromClient, boolean binary, byte[] payload, int originalLength) {
+        this.number = number;
+        this.timeMillis = timeMillis;
+        this.fromClient = fromClient;
+        this.binary = binary;
+        this.payload = payload;
+        this.originalLength = originalLength;
+    }
+
+    // Number of the frame since the connection opened, starting at 0
+    public long getNumber() {
+        return number;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public boolean isFromClient() {
+        return fromClient;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    // The payload as the model sees it: text as is, binary as hex
+    public String getText() {
+        if (text == null) {
+            if (binary) {
+                StringBuilder hex = new StringBuilder();
+                int shown = Math.min(payload.length, MAX_HEX_BYTES);
+                for (int i = 0; i < shown; i++) {
+                    hex.append(String.format("%02x", payload[i] & 0xFF));
+                }
+                text = hex.toString();
+            } else {
+                text = new String(payload, StandardCharsets.UTF_8);
+            }
+        }
+        return text;
+    }
+
+    public boolean isTruncated() {
+        return binary ? payload.length < originalLength : getText().length() < originalLength;
+    }
+
+    // "#12 12:01:33.250 client->server: {...}" with the payload cut to maxChars
+    public String render(int maxChars) {
+        String body = getText();
+        boolean cut = body.length() > maxChars;
+        if (cut) {
+            body = body.substring(0, maxChars);
+        }
+        StringBuilder line = new StringBuilder()
+            .append('#').append(number).append(' ')
+            .append(new SimpleDateFormat("HH:mm:ss.SSS").format(new Date(timeMillis))).append(' ')
+            .append(fromClient ? "client->server" : "server->client");
+        if (binary) {
+            line.append(" [binary, ").append(originalLength).append(" bytes, hex]");
+        }
+        line.append(": ").append(body);
+        if (cut || isTruncated()) {
+            line.append(" [... ").append(binary ? originalLength + " bytes" : originalLength + " chars").append(" in total]");
+        }
+        return line.toString();
+    }
+}
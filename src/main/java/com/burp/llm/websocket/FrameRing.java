@@ -0,0 +1,148 @@
+package com.burp.llm.websocket;
+
+import burp.api.montoya.core.ByteArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Recent frames of one connection in arrays allocated once: payload bytes go into a circular byte buffer and
+// per-frame fields into parallel primitive arrays, so capturing a frame allocates nothing and a busy socket costs
+// one copy of at most maxFrameBytes per frame. The oldest frames are dropped when either the bytes or the frame
+// slots run out; objects are only created when a window is taken for a question.
+public class FrameRing {
+    static final int MAX_FRAME_BYTES = 16 * 1024;
+    // A slot per this many bytes of buffer; frames are usually far smaller than the maximum
+    private static final int BYTES_PER_SLOT = 64;
+
+    private final byte[] data;
+    private final int maxFrameBytes;
+    private final long[] times;
+    // Absolute offsets: the number of bytes written before the frame; data index is the offset modulo capacity
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] originalLengths;
+    private final boolean[] fromClient;
+    private final boolean[] binary;
+    private long written;
+    // Frame numbers since the connection opened; the slot of a frame is its number modulo the slot count
+    private long first;
+    private long next;
+    private long capturedBytes;
+
+    public FrameRing(int capacityBytes) {
+        this.data = new byte[capacityBytes];
+        this.maxFrameBytes = Math.min(MAX_FRAME_BYTES, capacityBytes / 2);
+        int slots = Math.max(16, capacityBytes / BYTES_PER_SLOT);
+        this.times = new long[slots];
+        this.offsets = new long[slots];
+        this.lengths = new int[slots];
+        this.originalLengths = new int[slots];
+        this.fromClient = new boolean[slots];
+        this.binary = new boolean[slots];
+    }
+
+    // Encodes the text as UTF-8 straight into the buffer; originalLengths holds its length in chars
+    public synchronized void addText(String text, boolean clientToServer, long timeMillis) {
+        int slot = startFrame(clientToServer, false, timeMillis, text.length());
+        int length = 0;
+        int pos = (int) (written % data.length);
+        for (int i = 0; i < text.length(); i++) {
+            int codePoint = text.charAt(i);
+            if (Character.isHighSurrogate((char) codePoint) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                codePoint = Character.toCodePoint((char) codePoint, text.charAt(++i));
+            } else if (Character.isSurrogate((char) codePoint)) {
+                codePoint = '?';
+            }
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (length + size > maxFrameBytes) {
+                break;
+            }
+            if (size == 1) {
+                pos = put(pos, codePoint);
+            } else if (size == 2) {
+                pos = put(pos, 0xC0 | (codePoint >> 6));
+                pos = put(pos, 0x80 | (codePoint & 0x3F));
+            } else if (size == 3) {
+                pos = put(pos, 0xE0 | (codePoint >> 12));
+                pos = put(pos, 0x80 | ((codePoint >> 6) & 0x3F));
+                pos = put(pos, 0x80 | (codePoint & 0x3F));
+            } else {
+                pos = put(pos, 0xF0 | (codePoint >> 18));
+                pos = put(pos, 0x80 | ((codePoint >> 12) & 0x3F));
+                pos = put(pos, 0x80 | ((codePoint >> 6) & 0x3F));
+                pos = put(pos, 0x80 | (codePoint & 0x3F));
+            }
+            length += size;
+        }
+        endFrame(slot, length);
+    }
+
+    // Copies byte by byte rather than through getBytes(), which would copy the whole payload first
+    public synchronized void addBinary(ByteArray payload, boolean clientToServer, long timeMillis) {
+        int slot = startFrame(clientToServer, true, timeMillis, payload.length());
+        int length = Math.min(payload.length(), maxFrameBytes);
+        int pos = (int) (written % data.length);
+        for (int i = 0; i < length; i++) {
+            pos = put(pos, payload.getByte(i));
+        }
+        endFrame(slot, length);
+    }
+
+    private int put(int pos, int value) {
+        data[pos] = (byte) value;
+        return pos + 1 == data.length ? 0 : pos + 1;
+    }
+
+    private int startFrame(boolean clientToServer, boolean isBinary, long timeMillis, int originalLength) {
+        if (next - first == times.length) {
+            first++;
+        }
+        int slot = (int) (next % times.length);
+        times[slot] = timeMillis;
+        offsets[slot] = written;
+        fromClient[slot] = clientToServer;
+        binary[slot] = isBinary;
+        originalLengths[slot] = originalLength;
+        return slot;
+    }
+
+    private void endFrame(int slot, int length) {
+        lengths[slot] = length;
+        written += length;
+        capturedBytes += length;
+        next++;
+        // Frames whose bytes have been overwritten
+        while (first < next && offsets[(int) (first % times.length)] < written - data.length) {
+            first++;
+        }
+    }
+
+    // Frames seen since the connection opened, including those no longer kept
+    public synchronized long getFrameCount() {
+        return next;
+    }
+
+    public synchronized int size() {
+        return (int) (next - first);
+    }
+
+    public synchronized long getCapturedBytes() {
+        return capturedBytes;
+    }
+
+    // Copies of the frames still kept, oldest first
+    public synchronized List<Frame> snapshot() {
+        List<Frame> frames = new ArrayList<>((int) (next - first));
+        for (long number = first; number < next; number++) {
+            int slot = (int) (number % times.length);
+            byte[] payload = new byte[lengths[slot]];
+            int start = (int) (offsets[slot] % data.length);
+            int head = Math.min(payload.length, data.length - start);
+            System.arraycopy(data, start, payload, 0, head);
+            System.arraycopy(data, 0, payload, head, payload.length - head);
+            frames.add(new Frame(number, times[slot], fromClient[slot], binary[slot], payload, originalLengths[slot]));
+        }
+        return frames;
+    }
+}
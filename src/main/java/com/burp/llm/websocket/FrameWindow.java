@@ -0,0 +1,141 @@
+package com.burp.llm.websocket;
+
+import com.burp.llm.api.TokenEstimator;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Picks the frames of a connection worth sending with a question, within a token budget: the message the
+// editor shows, the frames around it, and frames containing words of the question, newest first on ties.
+// The picked frames are sent in order, with gaps marked, so the model still sees the sequence.
+public final class FrameWindow {
+    // Frames on either side of the selected message that are kept with it when they fit
+    private static final int NEIGHBOURS = 8;
+    private static final int MAX_FRAME_CHARS = 2000;
+    // The selected message may take up to this share of the budget
+    private static final int SELECTED_SHARE_PERCENT = 50;
+
+    private FrameWindow() {
+    }
+
+    // selectedPayload may be null when no message is selected; connection may be null when the socket
+    // was opened before the extension was loaded
+    public static String build(WebSocketConnection connection, byte[] selectedPayload, boolean selectedFromClient,
+                               String question, int maxTokens, TokenEstimator estimator) {
+        List<Frame> frames = connection != null ? connection.getFrames().snapshot() : List.of();
+        int selected = selectedPayload != null ? find(frames, selectedPayload, selectedFromClient) : -1;
+
+        int[] scores = new int[frames.size()];
+        Set<String> terms = words(question);
+        for (int i = 0; i < frames.size(); i++) {
+            String text = frames.get(i).getText().toLowerCase(Locale.ROOT);
+            for (String term : terms) {
+                if (text.contains(term)) {
+                    scores[i] += 10;
+                }
+            }
+            if (selected >= 0) {
+                int distance = Math.abs(i - selected);
+                if (distance <= NEIGHBOURS) {
+                    scores[i] += NEIGHBOURS + 1 - distance;
+                }
+            } else if (i >= frames.size() - 2 * NEIGHBOURS) {
+                // Without a selection the latest frames are the likely subject
+                scores[i] += 1;
+            }
+        }
+
+        String[] lines = new String[frames.size()];
+        int used = 0;
+        String selectedLine = null;
+        if (selected >= 0) {
+            int selectedChars = Math.max(MAX_FRAME_CHARS, maxTokens * 4 * SELECTED_SHARE_PERCENT / 100);
+            lines[selected] = ">> " + frames.get(selected).render(selectedChars);
+            used += estimator.estimate(lines[selected]);
+        } else if (selectedPayload != null) {
+            // Not captured (sent before the extension was loaded, or already dropped from the ring)
+            String text = new String(selectedPayload, StandardCharsets.UTF_8);
+            selectedLine = String.format(">> selected %s message, not among the captured frames: %s",
+                selectedFromClient ? "client->server" : "server->client", text.substring(0, Math.min(text.length(), MAX_FRAME_CHARS)));
+            used += estimator.estimate(selectedLine);
+        }
+
+        Integer[] order = new Integer[frames.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = frames.size() - 1 - i;
+        }
+        // Stable sort keeps newer frames first among equal scores
+        Arrays.sort(order, (a, b) -> Integer.compare(scores[b], scores[a]));
+        for (int i : order) {
+            if (lines[i] != null) {
+                continue;
+            }
+            String line = frames.get(i).render(MAX_FRAME_CHARS);
+            int tokens = estimator.estimate(line);
+            if (used + tokens <= maxTokens) {
+                lines[i] = line;
+                used += tokens;
+            }
+        }
+
+        StringBuilder window = new StringBuilder();
+        if (connection != null) {
+            long seen = connection.getFrames().getFrameCount();
+            window.append(String.format("WebSocket %s (opened %s in %s%s, %d frames seen, %d kept):%n",
+                connection.getUrl(), new SimpleDateFormat("HH:mm:ss").format(new Date(connection.getOpenedMillis())),
+                connection.getTool(), connection.isClosed() ? ", closed" : "", seen, frames.size()));
+            if (!frames.isEmpty() && frames.get(0).getNumber() > 0) {
+                window.append("[").append(frames.get(0).getNumber()).append(" earlier frames no longer kept]\n");
+            }
+        }
+        int skipped = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            if (lines[i] == null) {
+                skipped++;
+                continue;
+            }
+            if (skipped > 0) {
+                window.append("[").append(skipped).append(" frames not shown]\n");
+                skipped = 0;
+            }
+            window.append(lines[i]).append('\n');
+        }
+        if (skipped > 0) {
+            window.append("[").append(skipped).append(" frames not shown]\n");
+        }
+        if (selectedLine != null) {
+            window.append(selectedLine).append('\n');
+        }
+        return window.toString();
+    }
+
+    // The newest kept frame with this payload; a truncated frame matches on the part that was kept
+    private static int find(List<Frame> frames, byte[] payload, boolean fromClient) {
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            Frame frame = frames.get(i);
+            byte[] kept = frame.getPayload();
+            if (frame.isFromClient() == fromClient && kept.length <= payload.length
+                    && (kept.length == payload.length || frame.isTruncated())
+                    && Arrays.equals(kept, 0, kept.length, payload, 0, kept.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9_]+")) {
+            if (word.length() > 3) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
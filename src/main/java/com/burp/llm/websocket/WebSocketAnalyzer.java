@@ -0,0 +1,111 @@
+package com.burp.llm.websocket;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.websocket.BinaryMessage;
+import burp.api.montoya.websocket.BinaryMessageAction;
+import burp.api.montoya.websocket.Direction;
+import burp.api.montoya.websocket.MessageHandler;
+import burp.api.montoya.websocket.TextMessage;
+import burp.api.montoya.websocket.TextMessageAction;
+import burp.api.montoya.websocket.WebSocketCreated;
+import burp.api.montoya.websocket.WebSocketCreatedHandler;
+import com.burp.llm.config.ConfigSettings;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Captures the frames of every WebSocket Burp opens, from any tool, into a ring per connection, for the
+// WebSocket chat tab to take a window from. The handlers run on Burp's message threads: they only copy the
+// payload into the ring and pass the message on unchanged.
+public class WebSocketAnalyzer implements WebSocketCreatedHandler {
+    // Beyond this, closed connections are forgotten first, then the oldest open ones
+    private static final int MAX_CONNECTIONS = 64;
+
+    private final ConfigSettings configSettings;
+    private final List<WebSocketConnection> connections = new ArrayList<>();
+    private int nextId = 1;
+
+    public WebSocketAnalyzer(ConfigSettings configSettings) {
+        this.configSettings = configSettings;
+    }
+
+    @Override
+    public void handleWebSocketCreated(WebSocketCreated created) {
+        WebSocketConnection connection = add(created.upgradeRequest(),
+            created.toolSource() != null ? created.toolSource().toolType().toolName() : "unknown tool");
+        FrameRing frames = connection.getFrames();
+        created.webSocket().registerMessageHandler(new MessageHandler() {
+            @Override
+            public TextMessageAction handleTextMessage(TextMessage message) {
+                frames.addText(message.payload(), message.direction() == Direction.CLIENT_TO_SERVER, System.currentTimeMillis());
+                return TextMessageAction.continueWith(message);
+            }
+
+            @Override
+            public BinaryMessageAction handleBinaryMessage(BinaryMessage message) {
+                frames.addBinary(message.payload(), message.direction() == Direction.CLIENT_TO_SERVER, System.currentTimeMillis());
+                return BinaryMessageAction.continueWith(message);
+            }
+
+            @Override
+            public void onClose() {
+                connection.markClosed();
+            }
+        });
+    }
+
+    synchronized WebSocketConnection add(HttpRequest upgradeRequest, String tool) {
+        WebSocketConnection connection = new WebSocketConnection(nextId++, upgradeRequest, tool,
+            configSettings.getWebSocketBufferKb() * 1024);
+        connections.add(connection);
+        if (connections.size() > MAX_CONNECTIONS) {
+            Iterator<WebSocketConnection> oldest = connections.iterator();
+            WebSocketConnection evict = null;
+            while (oldest.hasNext() && evict == null) {
+                WebSocketConnection candidate = oldest.next();
+                if (candidate.isClosed()) {
+                    evict = candidate;
+                }
+            }
+            connections.remove(evict != null ? evict : connections.get(0));
+        }
+        return connection;
+    }
+
+    // The connection a message shown in an editor belongs to: the same handshake if it is still known,
+    // otherwise the latest connection to the same URL
+    public synchronized WebSocketConnection find(HttpRequest upgradeRequest) {
+        if (upgradeRequest == null) {
+            return null;
+        }
+        String key = WebSocketConnection.keyOf(upgradeRequest);
+        String url = upgradeRequest.url();
+        WebSocketConnection sameUrl = null;
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            WebSocketConnection connection = connections.get(i);
+            if (!key.isEmpty() && key.equals(connection.getKey())) {
+                return connection;
+            }
+            if (sameUrl == null && connection.getUrl().equals(url)) {
+                sameUrl = connection;
+            }
+        }
+        return sameUrl;
+    }
+
+    public synchronized String getSummary() {
+        long frames = 0;
+        long bytes = 0;
+        int open = 0;
+        for (WebSocketConnection connection : connections) {
+            frames += connection.getFrames().getFrameCount();
+            bytes += connection.getFrames().getCapturedBytes();
+            if (!connection.isClosed()) {
+                open++;
+            }
+        }
+        return String.format("%d WebSockets (%d open), %d frames captured, %.1f MB copied",
+            connections.size(), open, frames, bytes / (1024.0 * 1024.0));
+    }
+}
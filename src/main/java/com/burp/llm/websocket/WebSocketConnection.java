@@ -0,0 +1,67 @@
+package com.burp.llm.websocket;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+// A WebSocket seen by Burp and the recent frames captured from it
+public class WebSocketConnection {
+    private final int id;
+    private final String url;
+    private final String host;
+    // Random per handshake, so it tells apart reconnects to the same URL
+    private final String key;
+    private final String tool;
+    private final long openedMillis;
+    private final FrameRing frames;
+    private volatile boolean closed;
+
+    WebSocketConnection(int id, HttpRequest upgradeRequest, String tool, int bufferBytes) {
+        this.id = id;
+        this.url = upgradeRequest.url();
+        this.host = upgradeRequest.httpService() != null ? upgradeRequest.httpService().host() : "";
+        this.key = keyOf(upgradeRequest);
+        this.tool = tool;
+        this.openedMillis = System.currentTimeMillis();
+        this.frames = new FrameRing(bufferBytes);
+    }
+
+    static String keyOf(HttpRequest upgradeRequest) {
+        String key = upgradeRequest.headerValue("Sec-WebSocket-Key");
+        return key != null ? key.trim() : "";
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    public String getTool() {
+        return tool;
+    }
+
+    public long getOpenedMillis() {
+        return openedMillis;
+    }
+
+    public FrameRing getFrames() {
+        return frames;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void markClosed() {
+        closed = true;
+    }
+}
@@ -0,0 +1,53 @@
+package com.burp.llm.api;
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationTest {
+    private static final String RESPONSE = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n\r\n"
+        + "{\"orders\": [" + "{\"id\": 1, \"item\": \"widget\", \"quantity\": 3, \"status\": \"shipped\"}, ".repeat(20) + "{}]}";
+
+    @Test
+    void deltaPromptSendsChangedSecretsAsPlaceholders() {
+        Conversation conversation = new Conversation();
+        String first = request("session=AAAAsecret1; uid=7", "Bearer tokenONE123");
+        String second = request("session=BBBBsecret2; uid=7", "Bearer tokenTWO456");
+
+        String full = conversation.buildAnalysisPrompt(first, RESPONSE, "Is the session checked?", true);
+        assertFalse(conversation.isPendingDelta());
+        conversation.addTurn(userMessage(full), "It is.");
+
+        String delta = conversation.buildAnalysisPrompt(second, RESPONSE, "And now?", true);
+        assertTrue(conversation.isPendingDelta());
+        for (String secret : new String[] {"AAAAsecret1", "BBBBsecret2", "tokenONE123", "tokenTWO456"}) {
+            assertFalse(full.contains(secret), "full prompt contains " + secret);
+            assertFalse(delta.contains(secret), "delta prompt contains " + secret);
+        }
+        assertTrue(delta.contains("[[AUTH_"), delta);
+        assertTrue(delta.contains("[[COOKIE_"), delta);
+    }
+
+    @Test
+    void previewLeavesVaultUnchanged() {
+        Conversation conversation = new Conversation();
+        String preview = conversation.previewAnalysisPrompt(request("session=AAAAsecret1", "Bearer tokenONE123"), RESPONSE, "", true);
+        assertFalse(preview.contains("tokenONE123"));
+        assertEquals(0, conversation.getRedactionVault().size());
+    }
+
+    private static String request(String cookie, String authorization) {
+        return "GET /api/orders?page=2 HTTP/1.1\r\nHost: shop.example.com\r\nCookie: " + cookie
+            + "\r\nAuthorization: " + authorization + "\r\nAccept: application/json\r\n\r\n";
+    }
+
+    private static JsonObject userMessage(String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "user");
+        message.addProperty("content", content);
+        return message;
+    }
+}
@@ -0,0 +1,117 @@
+package com.burp.llm.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class RedactionVaultTest {
+
+    @Test
+    void restoresPlaceholderSplitAcrossChunks() {
+        RedactionVault vault = new RedactionVault();
+        String placeholder = vault.placeholderFor("s3cr3t", "AUTH");
+        assertEquals("[[AUTH_1]]", placeholder);
+
+        List<String> chunks = new ArrayList<>();
+        RedactionVault.Restorer restorer = vault.restorer(chunks::add, false);
+        for (String chunk : new String[] {"the token ", "[", "[AU", "TH_", "1]", "] is reused"}) {
+            restorer.accept(chunk);
+        }
+        restorer.finish();
+
+        assertEquals("the token s3cr3t is reused", String.join("", chunks));
+        for (String chunk : chunks) {
+            assertFalse(chunk.contains("[") || chunk.contains("]"), "placeholder part leaked: " + chunk);
+        }
+    }
+
+    @Test
+    void restoresEveryPlaceholderOfOneChunk() {
+        RedactionVault vault = new RedactionVault();
+        vault.placeholderFor("alice-cookie", "COOKIE");
+        vault.placeholderFor("hunter2", "PASSWORD");
+
+        StringBuilder out = new StringBuilder();
+        RedactionVault.Restorer restorer = vault.restorer(out::append, false);
+        restorer.accept("[[COOKIE_1]] and [[PASSWORD_2]] and [[COOKIE_1]]");
+        restorer.finish();
+        assertEquals("alice-cookie and hunter2 and alice-cookie", out.toString());
+    }
+
+    @Test
+    void passesUnknownPlaceholdersAndBracketsThrough() {
+        RedactionVault vault = new RedactionVault();
+        vault.placeholderFor("value", "SECRET");
+
+        StringBuilder out = new StringBuilder();
+        RedactionVault.Restorer restorer = vault.restorer(out::append, false);
+        restorer.accept("array[[0]] and [[SECRET_9]] and a[");
+        restorer.accept("1] end");
+        restorer.finish();
+        assertEquals("array[[0]] and [[SECRET_9]] and a[1] end", out.toString());
+    }
+
+    @Test
+    void releasesUnclosedBracketsOnceTooLongOrFinished() {
+        RedactionVault vault = new RedactionVault();
+        vault.placeholderFor("value", "SECRET");
+
+        List<String> chunks = new ArrayList<>();
+        RedactionVault.Restorer restorer = vault.restorer(chunks::add, false);
+        restorer.accept("[[ this is a long bracketed aside, not a placeholder");
+        assertEquals("[[ this is a long bracketed aside, not a placeholder", String.join("", chunks));
+
+        chunks.clear();
+        restorer.accept("cut off at [[SECR");
+        assertEquals("cut off at ", String.join("", chunks));
+        restorer.finish();
+        assertEquals("cut off at [[SECR", String.join("", chunks));
+    }
+
+    @Test
+    void escapesRestoredValuesInsideJson() {
+        RedactionVault vault = new RedactionVault();
+        vault.placeholderFor("a\"b\\c\nd", "SECRET");
+
+        StringBuilder out = new StringBuilder();
+        RedactionVault.Restorer restorer = vault.restorer(out::append, true);
+        restorer.accept("{\"evidence\": \"[[SECRET_1]]\"}");
+        restorer.finish();
+        assertEquals("{\"evidence\": \"a\\\"b\\\\c\\nd\"}", out.toString());
+    }
+
+    @Test
+    void passesChunksUnchangedWithEmptyVault() {
+        List<String> chunks = new ArrayList<>();
+        RedactionVault.Restorer restorer = new RedactionVault().restorer(chunks::add, false);
+        restorer.accept("[[AUTH_1]]");
+        restorer.accept(" [");
+        assertEquals(List.of("[[AUTH_1]]", " ["), chunks);
+    }
+
+    @Test
+    void roundTripsThroughRedactorAndStreamedAnswer() {
+        RedactionVault vault = new RedactionVault();
+        String prompt = Redactor.getInstance().redact("Cookie: sid=8d7f6e5c4b3a\r\n", vault);
+        assertEquals("Cookie: sid=[[COOKIE_1]]\r\n", prompt);
+
+        String answer = "The cookie sid=[[COOKIE_1]] lacks the Secure flag.";
+        StringBuilder out = new StringBuilder();
+        RedactionVault.Restorer restorer = vault.restorer(out::append, false);
+        for (int i = 0; i < answer.length(); i += 3) {
+            restorer.accept(answer.substring(i, Math.min(answer.length(), i + 3)));
+        }
+        restorer.finish();
+        assertEquals("The cookie sid=8d7f6e5c4b3a lacks the Secure flag.", out.toString());
+    }
+
+    @Test
+    void masksPlaceholdersForTextKeptAcrossConversations() {
+        assertEquals("session <redacted> is not HttpOnly; [[x]] stays",
+            RedactionVault.maskPlaceholders("session [[COOKIE_1]] is not HttpOnly; [[x]] stays"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.burp.llm.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void followerContinuesGenerationItsLeaderCancelled() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch followerJoined = new CountDownLatch(1);
+        AtomicReference<String> resumedFrom = new AtomicReference<>();
+        StringBuilder followerText = new StringBuilder();
+        AtomicReference<Object> followerResult = new AtomicReference<>();
+
+        Thread follower = new Thread(() -> {
+            try {
+                followerResult.set(singleFlight.execute("body", followerText::append,
+                    status -> followerJoined.countDown(), (delivered, onChunk) -> {
+                        resumedFrom.set(delivered);
+                        onChunk.accept(" world");
+                        return " world";
+                    }));
+            } catch (IOException e) {
+                followerResult.set(e);
+            }
+        });
+
+        IOException leaderError = null;
+        try {
+            singleFlight.execute("body", chunk -> { }, null, (delivered, onChunk) -> {
+                onChunk.accept("hello");
+                follower.start();
+                try {
+                    followerJoined.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new InterruptedIOException("stopped by the user");
+            });
+        } catch (IOException e) {
+            leaderError = e;
+        }
+        follower.join(5000);
+
+        assertTrue(leaderError instanceof InterruptedIOException);
+        assertEquals("hello", resumedFrom.get());
+        assertEquals("hello world", followerText.toString());
+        assertEquals("hello world", followerResult.get());
+    }
+
+    @Test
+    void followerSharesRealFailure() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch followerJoined = new CountDownLatch(1);
+        AtomicReference<Object> followerResult = new AtomicReference<>();
+
+        Thread follower = new Thread(() -> {
+            try {
+                followerResult.set(singleFlight.execute("body", chunk -> { }, status -> followerJoined.countDown(),
+                    (delivered, onChunk) -> "generated twice"));
+            } catch (IOException e) {
+                followerResult.set(e);
+            }
+        });
+
+        try {
+            singleFlight.execute("body", chunk -> { }, null, (delivered, onChunk) -> {
+                follower.start();
+                try {
+                    followerJoined.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Unexpected response code: 500");
+            });
+        } catch (IOException e) {
+            // Expected
+        }
+        follower.join(5000);
+
+        assertTrue(followerResult.get() instanceof IOException);
+        assertEquals("Unexpected response code: 500", ((IOException) followerResult.get()).getMessage());
+    }
+}
@@ -0,0 +1,51 @@
+package com.burp.llm.api;
+
+import java.util.Arrays;
+
+// Times TokenEstimator.estimate on a 1 MB HTTP exchange of mixed JSON, HTML and headers, the size of a large
+// request/response pair sent with a question. Not a unit test; after `mvn test-compile` run:
+//   java -cp target/classes:target/test-classes com.burp.llm.api.TokenEstimatorBenchmark
+public class TokenEstimatorBenchmark {
+    private static final int MESSAGE_BYTES = 1024 * 1024;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+
+    public static void main(String[] args) {
+        String message = buildMessage();
+        TokenEstimator estimator = TokenEstimator.forModel("llama3.1:8b");
+
+        // The sink keeps the JIT from dropping calls whose result is unused
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += estimator.estimate(message);
+        }
+
+        long[] nanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += estimator.estimate(message);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        long median = nanos[MEASURED_ROUNDS / 2];
+        System.out.printf("estimate() on %,d chars: %,d tokens%n", message.length(), estimator.estimate(message));
+        System.out.printf("  min %,d us, median %,d us, p99 %,d us, %.0f MB/s at the median%n",
+            nanos[0] / 1000, median / 1000, nanos[MEASURED_ROUNDS * 99 / 100] / 1000,
+            message.length() / (median / 1e9) / (1024 * 1024));
+        System.out.println("  (sink " + sink + ")");
+    }
+
+    private static String buildMessage() {
+        StringBuilder message = new StringBuilder(MESSAGE_BYTES + 4096);
+        message.append("HTTP/1.1 200 OK\r\nContent-Type: application/json; charset=utf-8\r\n")
+            .append("Set-Cookie: session=4f9c2a17be0d46e3a5c8e1f07b62d9aa; Path=/; HttpOnly\r\n\r\n[");
+        for (int i = 0; message.length() < MESSAGE_BYTES; i++) {
+            message.append("{\"id\":").append(100000 + i)
+                .append(",\"name\":\"Customer ").append(i).append("\",\"email\":\"user").append(i).append("@example.com\"")
+                .append(",\"bio\":\"<p>Ordered <b>").append(i % 17).append("</b> items &amp; left a review: ")
+                .append("Schnelle Lieferung, très bien — 5★</p>\",\"balance\":").append(i * 37 % 10007).append(".25},\n  ");
+        }
+        return message.append(']').toString();
+    }
+}
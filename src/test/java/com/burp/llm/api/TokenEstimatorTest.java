@@ -0,0 +1,62 @@
+package com.burp.llm.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// BPE tokenizers of the Llama 3 / cl100k kind split JSON like the fixture below into roughly 2.7 characters
+// per token and markup into roughly 3. The estimate may err a little high, so a prompt is never sent thinking
+// it fits when it does not, but not so high that map-reduce or a larger num_ctx kicks in long before needed.
+class TokenEstimatorTest {
+    private static final String JSON = "{\"id\": 4211, \"name\": \"Order confirmation\", \"status\": \"shipped\", "
+        + "\"total\": 129.95, \"currency\": \"EUR\", \"customer\": {\"email\": \"jane.doe@example.com\", \"country\": \"DE\"}, "
+        + "\"items\": [{\"sku\": \"A-1001\", \"title\": \"Wireless mouse\", \"quantity\": 2}, "
+        + "{\"sku\": \"B-2040\", \"title\": \"USB-C cable\", \"quantity\": 1}], \"created_at\": \"2024-05-17T09:21:44Z\"}";
+
+    private static final String HTML = """
+        <!DOCTYPE html>
+        <html lang="en">
+        <head>
+          <meta charset="utf-8">
+          <title>Account settings</title>
+          <link rel="stylesheet" href="/static/css/main.css">
+        </head>
+        <body>
+          <div class="container">
+            <form method="post" action="/account/update">
+              <label for="email">Email address</label>
+              <input type="email" id="email" name="email" value="jane.doe@example.com">
+              <button type="submit" class="btn btn-primary">Save changes</button>
+            </form>
+          </div>
+        </body>
+        </html>
+        """;
+
+    private final TokenEstimator estimator = TokenEstimator.forModel("llama3.1:8b");
+
+    @Test
+    void chargesPunctuationRunsAsMergedTokens() {
+        assertEquals(1, estimator.estimate("\":\""));
+        assertEquals(1, estimator.estimate("{\""));
+        assertEquals(2, estimator.estimate("\"},{\""));
+        assertEquals(2, estimator.estimate("\": \""));
+    }
+
+    @Test
+    void jsonRatioMatchesTokenizer() {
+        double ratio = charsPerToken(JSON);
+        assertTrue(ratio >= 2.2 && ratio <= 3.0, "JSON chars per token: " + ratio);
+    }
+
+    @Test
+    void htmlRatioMatchesTokenizer() {
+        double ratio = charsPerToken(HTML);
+        assertTrue(ratio >= 2.4 && ratio <= 3.3, "HTML chars per token: " + ratio);
+    }
+
+    private double charsPerToken(String text) {
+        return text.length() / (double) estimator.estimate(text);
+    }
+}